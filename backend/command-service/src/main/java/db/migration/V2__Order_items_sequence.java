@@ -0,0 +1,33 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Moves order item ids from an identity column to the pooled {@code order_items_seq} (see OrderItem).
+ * <p>
+ * Hibernate's pooled optimizer treats each value it reads as the top of a block of 50 ids, so the sequence
+ * starts 50 past the highest existing id. This is a Java migration because the start depends on the data
+ * and sequences cannot be reset from an expression in both PostgreSQL and H2.
+ */
+public class V2__Order_items_sequence extends BaseJavaMigration {
+
+    private static final int ALLOCATION_SIZE = 50;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            long maxId;
+            try (ResultSet result = statement.executeQuery("select coalesce(max(id), 0) from order_items")) {
+                result.next();
+                maxId = result.getLong(1);
+            }
+            statement.execute("alter table order_items alter column id drop identity");
+            statement.execute("create sequence order_items_seq start with " + (maxId + ALLOCATION_SIZE)
+                    + " increment by " + ALLOCATION_SIZE);
+        }
+    }
+}
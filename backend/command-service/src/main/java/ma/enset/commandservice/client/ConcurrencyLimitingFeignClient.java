@@ -0,0 +1,84 @@
+package ma.enset.commandservice.client;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.commandservice.config.ConcurrencyLimitProperties;
+import ma.enset.commandservice.exception.ProductServiceOverloadedException;
+import ma.enset.common.concurrency.AdaptiveConcurrencyLimit;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Feign client that keeps Product Service calls in flight under an {@link AdaptiveConcurrencyLimit}. A call over
+ * the limit is not sent: it fails at once with {@link ProductServiceOverloadedException}, answered with 503,
+ * rather than holding a request thread while Product Service queues. Responses 502, 503 and 504 and I/O errors
+ * count as dropped and lower the limit.
+ * <p>
+ * Publishes {@code product.calls.concurrency.limit}, {@code product.calls.concurrency.in-flight} and
+ * {@code product.calls.concurrency.rejected}.
+ */
+@Slf4j
+public class ConcurrencyLimitingFeignClient implements Client, AutoCloseable {
+
+    static final String METRIC = "product.calls.concurrency";
+
+    private static final Set<Integer> DROPPED = Set.of(502, 503, 504);
+
+    private final Client delegate;
+    private final AdaptiveConcurrencyLimit limit;
+    private final Counter rejected;
+
+    public ConcurrencyLimitingFeignClient(Client delegate, ConcurrencyLimitProperties properties,
+                                          MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.limit = new AdaptiveConcurrencyLimit(properties.getInitialLimit(), properties.getMinLimit(),
+                properties.getMaxLimit(), properties.getTolerance());
+        Gauge.builder(METRIC + ".limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                .description("Product Service calls allowed in flight, adjusted to its latency")
+                .register(meterRegistry);
+        Gauge.builder(METRIC + ".in-flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                .description("Product Service calls currently in flight")
+                .register(meterRegistry);
+        this.rejected = Counter.builder(METRIC + ".rejected")
+                .description("Product Service calls refused because the concurrency limit was reached")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        AdaptiveConcurrencyLimit.Permit permit = limit.tryAcquire();
+        if (permit == null) {
+            rejected.increment();
+            log.warn("Rejected {} {}: {} Product Service calls in flight", request.httpMethod(), request.url(),
+                    limit.getInFlight());
+            throw new ProductServiceOverloadedException(limit.getLimit());
+        }
+        try {
+            Response response = delegate.execute(request, options);
+            if (DROPPED.contains(response.status())) {
+                permit.dropped();
+            } else {
+                permit.success();
+            }
+            return response;
+        } catch (IOException e) {
+            permit.dropped();
+            throw e;
+        } finally {
+            permit.ignore();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
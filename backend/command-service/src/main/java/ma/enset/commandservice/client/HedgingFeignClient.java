@@ -0,0 +1,280 @@
+package ma.enset.commandservice.client;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.commandservice.config.HedgingProperties;
+import ma.enset.common.hedging.HedgeBudget;
+import ma.enset.common.hedging.HedgeDelay;
+import ma.enset.common.loadbalancer.LatencyAwareLoadBalancer;
+import ma.enset.common.loadbalancer.LoadBalancerStats;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feign client that hedges slow idempotent reads. A GET matching {@link HedgingProperties#getPaths()} is sent to
+ * an instance chosen by the load balancer; if it has not answered after the endpoint's hedge delay and the budget
+ * allows it, the same request goes to another instance, the first successful response is returned and the other
+ * call is interrupted. When the call that finishes first failed or answered with a 5xx, the other one is awaited.
+ * Both calls run on virtual threads, whose blocking socket reads end when interrupted. Other calls go through the
+ * regular load-balanced client.
+ * <p>
+ * Publishes {@code product.calls.hedging} per endpoint and outcome: hedges sent, hedges whose response was used,
+ * and hedges denied by the budget.
+ */
+@Slf4j
+public class HedgingFeignClient implements Client, AutoCloseable {
+
+    static final String METRIC = "product.calls.hedging";
+
+    private final Client loadBalanced;
+    private final Client delegate;
+    private final LoadBalancerClient loadBalancerClient;
+    private final LoadBalancerStats loadBalancerStats;
+    private final HedgingProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final List<Endpoint> endpoints;
+    private final HedgeBudget budget;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public HedgingFeignClient(Client loadBalanced, Client delegate, LoadBalancerClient loadBalancerClient,
+                              LoadBalancerStats loadBalancerStats, HedgingProperties properties,
+                              MeterRegistry meterRegistry) {
+        this.loadBalanced = loadBalanced;
+        this.delegate = delegate;
+        this.loadBalancerClient = loadBalancerClient;
+        this.loadBalancerStats = loadBalancerStats;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.endpoints = properties.getPaths().stream()
+                .map(path -> new Endpoint(path, PathPatternParser.defaultInstance.parse(path),
+                        new HedgeDelay(properties.getPercentile(), properties.getMinDelay(), properties.getMaxDelay())))
+                .toList();
+        this.budget = new HedgeBudget(properties.getBudgetRatio(), properties.getBudgetBurst());
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        Endpoint endpoint = hedgedEndpoint(request);
+        if (endpoint == null) {
+            return loadBalanced.execute(request, options);
+        }
+        budget.deposit();
+        URI uri = URI.create(request.url());
+        BlockingQueue<Attempt> done = new LinkedBlockingQueue<>();
+        Attempt primary = start(request, options, uri, Set.of(), done);
+        if (primary == null) {
+            // No instance: let the regular client report it the usual way
+            return loadBalanced.execute(request, options);
+        }
+        Attempt hedge = null;
+        try {
+            Attempt first = done.poll(endpoint.delay().current().toNanos(), TimeUnit.NANOSECONDS);
+            if (first == null) {
+                if (budget.tryWithdraw()) {
+                    hedge = start(request, options, uri, Set.of(LoadBalancerStats.key(primary.instance)), done);
+                    log.debug("Hedging {} after {} ms", request.url(), TimeUnit.NANOSECONDS.toMillis(primary.elapsed()));
+                    record(endpoint, hedge != null ? "sent" : "no-other-instance");
+                } else {
+                    record(endpoint, "budget-exhausted");
+                }
+                first = done.take();
+            }
+            if (first.failed() && hedge != null) {
+                // The other call may still succeed; otherwise an error response says more than an exception
+                Attempt other = done.take();
+                if (!other.failed() || first.response == null) {
+                    first.discard();
+                    first = other;
+                } else {
+                    other.discard();
+                }
+            }
+            if (first == hedge && !first.failed()) {
+                record(endpoint, "won");
+            }
+            return first.result();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for " + request.url(), e);
+        } finally {
+            endpoint.delay().record(primary.elapsed());
+            primary.cancel();
+            if (hedge != null) {
+                hedge.cancel();
+            }
+        }
+    }
+
+    private Endpoint hedgedEndpoint(Request request) {
+        if (!properties.isEnabled() || request.httpMethod() != Request.HttpMethod.GET) {
+            return null;
+        }
+        PathContainer path = PathContainer.parsePath(URI.create(request.url()).getRawPath());
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.pattern().matches(path)) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Chooses an instance other than {@code excluded} and calls it on a virtual thread.
+     *
+     * @return the running call, or {@code null} if no such instance is available
+     */
+    private Attempt start(Request request, Request.Options options, URI uri, Set<String> excluded,
+                          BlockingQueue<Attempt> done) {
+        Map<String, Object> attributes = new HashMap<>();
+        if (!excluded.isEmpty()) {
+            attributes.put(LatencyAwareLoadBalancer.EXCLUDED_INSTANCES_ATTR, excluded);
+        }
+        RequestData requestData = new RequestData(HttpMethod.GET, uri, new HttpHeaders(), new LinkedMultiValueMap<>(),
+                attributes);
+        ServiceInstance instance = loadBalancerClient.choose(uri.getHost(),
+                new DefaultRequest<>(new RequestDataContext(requestData)));
+        if (instance == null) {
+            return null;
+        }
+        Request call = Request.create(request.httpMethod(), loadBalancerClient.reconstructURI(instance, uri).toString(),
+                request.headers(), request.body(), request.charset(), request.requestTemplate());
+        Attempt attempt = new Attempt(instance, loadBalancerStats.get(instance));
+        attempt.future = executor.submit(() -> attempt.run(() -> delegate.execute(call, options), done));
+        return attempt;
+    }
+
+    private void record(Endpoint endpoint, String outcome) {
+        counters.computeIfAbsent(endpoint.path() + ':' + outcome, name -> Counter.builder(METRIC)
+                        .description("Hedged Product Service calls by whether they were sent, used or denied")
+                        .tags("endpoint", endpoint.path(), "outcome", outcome)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private record Endpoint(String path, PathPattern pattern, HedgeDelay delay) {
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        Response execute() throws IOException;
+    }
+
+    /**
+     * One call to one instance, recorded in the load balancer stats like any other call.
+     */
+    private static final class Attempt {
+
+        private final ServiceInstance instance;
+        private final LoadBalancerStats.InstanceStats stats;
+        private final long start = System.nanoTime();
+        private volatile Future<?> future;
+        private volatile Response response;
+        private volatile Throwable failure;
+        private volatile boolean cancelled;
+        private volatile long end;
+
+        Attempt(ServiceInstance instance, LoadBalancerStats.InstanceStats stats) {
+            this.instance = instance;
+            this.stats = stats;
+        }
+
+        void run(Call call, BlockingQueue<Attempt> done) {
+            stats.started();
+            try {
+                response = call.execute();
+                end = System.nanoTime();
+                if (response.status() >= 500) {
+                    stats.failed(end - start, end);
+                } else {
+                    stats.completed(end - start, end);
+                }
+            } catch (Throwable e) {
+                end = System.nanoTime();
+                failure = e;
+                if (cancelled) {
+                    stats.cancelled();
+                } else {
+                    stats.failed(end - start, end);
+                }
+            }
+            done.add(this);
+            if (cancelled && response != null) {
+                response.close();
+            }
+        }
+
+        /**
+         * Interrupts the call unless it already returned; a response that arrives anyway is closed.
+         */
+        void cancel() {
+            if (end == 0) {
+                cancelled = true;
+                future.cancel(true);
+            }
+        }
+
+        boolean failed() {
+            return failure != null || response.status() >= 500;
+        }
+
+        /**
+         * Closes the response of a call that finished but is not returned.
+         */
+        void discard() {
+            if (response != null) {
+                response.close();
+            }
+        }
+
+        long elapsed() {
+            long finishedAt = end;
+            return (finishedAt != 0 ? finishedAt : System.nanoTime()) - start;
+        }
+
+        Response result() throws IOException {
+            if (failure instanceof IOException e) {
+                throw e;
+            }
+            if (failure instanceof RuntimeException e) {
+                throw e;
+            }
+            if (failure != null) {
+                throw new IOException(failure);
+            }
+            return response;
+        }
+    }
+}
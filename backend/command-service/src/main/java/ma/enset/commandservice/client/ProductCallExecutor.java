@@ -0,0 +1,96 @@
+package ma.enset.commandservice.client;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Fans out Product Service calls on virtual threads.
+ * Each task runs with the caller's SecurityContext (the Feign interceptor reads the JWT from it)
+ * and MDC, and at most {@code maxConcurrency} tasks of one fan-out are in flight at a time.
+ */
+@Slf4j
+@Component
+public class ProductCallExecutor {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public <T> List<T> invokeAll(List<Callable<T>> tasks, int maxConcurrency, Duration timeout) {
+        Semaphore permits = new Semaphore(Math.max(1, maxConcurrency));
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            Callable<T> limited = () -> {
+                permits.acquire();
+                if (mdc != null) {
+                    MDC.setContextMap(mdc);
+                }
+                try {
+                    return task.call();
+                } finally {
+                    MDC.clear();
+                    permits.release();
+                }
+            };
+            futures.add(executor.submit(new DelegatingSecurityContextCallable<>(
+                    limited, SecurityContextHolder.getContext())));
+        }
+
+        // Wait for every task so callers compensating on failure see all completed side effects
+        long deadline = System.nanoTime() + timeout.toNanos();
+        List<T> results = new ArrayList<>(futures.size());
+        RuntimeException failure = null;
+        try {
+            for (Future<T> future : futures) {
+                try {
+                    results.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof RuntimeException runtimeException
+                                ? runtimeException
+                                : new IllegalStateException("Product Service call failed", e.getCause());
+                    }
+                }
+            }
+        } catch (TimeoutException e) {
+            cancelAll(futures);
+            throw new IllegalStateException("Product Service calls did not complete within " + timeout);
+        } catch (InterruptedException e) {
+            cancelAll(futures);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for Product Service calls", e);
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    private void cancelAll(List<? extends Future<?>> futures) {
+        futures.forEach(future -> future.cancel(true));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        log.info("Shutting down Product Service call executor");
+        executor.shutdownNow();
+    }
+}
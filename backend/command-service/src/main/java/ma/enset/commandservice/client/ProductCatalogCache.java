@@ -0,0 +1,91 @@
+package ma.enset.commandservice.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.commandservice.config.ProductCacheProperties;
+import ma.enset.commandservice.dto.CatalogChangesDTO;
+import ma.enset.commandservice.dto.ProductDTO;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded local cache of product names and prices in front of {@link ProductServiceClient#getProductById}.
+ * <p>
+ * Entries expire after a TTL and are invalidated individually by polling Product Service's catalog change log.
+ * Stock is stripped from cached entries: it is only trusted when Product Service applies the reservation.
+ * Hit, miss and eviction counts are published as {@code cache.*} metrics with {@code cache=product-catalog}.
+ */
+@Slf4j
+@Component
+public class ProductCatalogCache {
+
+    private final ProductServiceClient productServiceClient;
+    private final ProductCacheProperties properties;
+    private final Cache<String, ProductDTO> cache;
+
+    // Change log cursor returned by the last successful poll; null until the first one
+    private volatile Long changesCursor;
+
+    public ProductCatalogCache(ProductServiceClient productServiceClient,
+                               ProductCacheProperties properties,
+                               ObjectProvider<MeterRegistry> meterRegistry) {
+        this.productServiceClient = productServiceClient;
+        this.properties = properties;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, cache, "product-catalog"));
+    }
+
+    /**
+     * Read-through lookup. A missing product is not cached and surfaces as {@code ProductNotAvailableException}.
+     */
+    public ProductDTO getProduct(String productId) {
+        if (!properties.isEnabled()) {
+            return productServiceClient.getProductById(productId);
+        }
+        return cache.get(productId, id -> withoutStock(productServiceClient.getProductById(id)));
+    }
+
+    public ProductDTO getIfPresent(String productId) {
+        return properties.isEnabled() ? cache.getIfPresent(productId) : null;
+    }
+
+    public void put(ProductDTO product) {
+        if (properties.isEnabled()) {
+            cache.put(product.id(), withoutStock(product));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${order.product-cache.poll-interval-ms:5000}")
+    public void pollCatalogChanges() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Long cursor = changesCursor;
+        try {
+            CatalogChangesDTO changes = productServiceClient.getCatalogChanges(cursor);
+            if (cursor == null) {
+                // Nothing tells us what changed before the first poll
+                cache.invalidateAll();
+            } else if (!changes.productIds().isEmpty()) {
+                cache.invalidateAll(changes.productIds());
+                log.debug("Invalidated {} changed products", changes.productIds().size());
+            }
+            changesCursor = changes.cursor();
+        } catch (Exception e) {
+            // The next successful poll reads the log from the same point, so no change is missed
+            log.warn("Failed to poll catalog changes: {}", e.getMessage());
+        }
+    }
+
+    private ProductDTO withoutStock(ProductDTO product) {
+        return new ProductDTO(product.id(), product.name(), product.description(), product.price(), null);
+    }
+}
@@ -1,25 +1,48 @@
 package ma.enset.commandservice.client;
 
 import ma.enset.commandservice.config.FeignConfig;
+import ma.enset.commandservice.dto.CatalogChangesDTO;
+import ma.enset.commandservice.dto.ProductAvailabilityDTO;
 import ma.enset.commandservice.dto.ProductDTO;
+import ma.enset.commandservice.dto.StockBatchRequestDTO;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import java.util.List;
+
 @FeignClient(name = "product-service", configuration = FeignConfig.class)
 public interface ProductServiceClient {
 
     @GetMapping("/api/products/{id}")
     ProductDTO getProductById(@PathVariable("id") String id);
 
+    @GetMapping("/api/products/changes")
+    CatalogChangesDTO getCatalogChanges(@RequestParam(value = "cursor", required = false) Long cursor);
+
     @GetMapping("/api/products/{id}/check-stock")
     Boolean checkStock(@PathVariable("id") String id, @RequestParam("quantity") Integer quantity);
 
+    @PostMapping("/api/products/availability")
+    List<ProductAvailabilityDTO> checkAvailability(@RequestBody StockBatchRequestDTO request);
+
     @PutMapping("/api/products/{id}/reduce-stock")
     void reduceStock(@PathVariable("id") String id, @RequestParam("quantity") Integer quantity);
 
     @PutMapping("/api/products/{id}/restore-stock")
     void restoreStock(@PathVariable("id") String id, @RequestParam("quantity") Integer quantity);
+
+    @PutMapping("/api/products/reserve-stock")
+    void reserveStock(@RequestHeader("Idempotency-Key") String idempotencyKey,
+                      @RequestBody StockBatchRequestDTO request);
+
+    @PutMapping("/api/products/release-stock")
+    void releaseStock(@RequestHeader("Idempotency-Key") String idempotencyKey,
+                      @RequestParam("reservationKey") String reservationKey,
+                      @RequestBody StockBatchRequestDTO request);
 }
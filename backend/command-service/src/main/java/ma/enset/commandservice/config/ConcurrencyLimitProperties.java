@@ -0,0 +1,29 @@
+package ma.enset.commandservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Adaptive limit on Product Service calls in flight: calls over the limit fail at once with a 503 for the order
+ * request instead of waiting on a Product Service that is already queueing.
+ */
+@Data
+@ConfigurationProperties(prefix = "order.product-calls.concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Limit used until latencies are known.
+     */
+    private int initialLimit = 20;
+
+    private int minLimit = 5;
+
+    private int maxLimit = 200;
+
+    /**
+     * How much slower than usual Product Service may get before the limit shrinks, e.g. 1.5 for 50% slower.
+     */
+    private double tolerance = 1.5;
+}
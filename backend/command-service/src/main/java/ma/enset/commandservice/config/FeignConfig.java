@@ -4,17 +4,28 @@ import feign.Logger;
 import feign.RequestInterceptor;
 import feign.codec.ErrorDecoder;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.common.security.InternalIdentityJwtDecoder;
+import ma.enset.common.security.InternalIdentityProperties;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 
+@Slf4j
 @Configuration
 @RequiredArgsConstructor
 public class FeignConfig {
 
+    static final String SERVICE_CLIENT_REGISTRATION = "product-service";
+
     private final FeignErrorDecoder feignErrorDecoder;
+    private final ObjectProvider<OAuth2AuthorizedClientManager> authorizedClientManager;
 
     @Bean
     public RequestInterceptor requestInterceptor() {
@@ -22,7 +33,28 @@ public class FeignConfig {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             if (authentication instanceof JwtAuthenticationToken jwtAuth) {
                 String token = jwtAuth.getToken().getTokenValue();
-                requestTemplate.header("Authorization", "Bearer " + token);
+                if (InternalIdentityJwtDecoder.isInternal(jwtAuth.getToken())) {
+                    // Already verified by the gateway, so product-service only needs to check the HMAC
+                    requestTemplate.header(InternalIdentityProperties.HEADER, token);
+                } else {
+                    requestTemplate.header("Authorization", "Bearer " + token);
+                }
+                return;
+            }
+
+            // Background work (e.g. the order outbox) has no user token, so use the service account
+            OAuth2AuthorizedClientManager manager = authorizedClientManager.getIfAvailable();
+            if (manager == null) {
+                log.warn("No '{}' client registration, calling {} without a token",
+                        SERVICE_CLIENT_REGISTRATION, requestTemplate.path());
+                return;
+            }
+            OAuth2AuthorizedClient client = manager.authorize(OAuth2AuthorizeRequest
+                    .withClientRegistrationId(SERVICE_CLIENT_REGISTRATION)
+                    .principal("command-service")
+                    .build());
+            if (client != null) {
+                requestTemplate.header("Authorization", "Bearer " + client.getAccessToken().getTokenValue());
             }
         };
     }
@@ -0,0 +1,44 @@
+package ma.enset.commandservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hedging of idempotent Product Service reads: a GET of one of {@code paths} that has had no response for
+ * longer than the {@code percentile} of its recent latencies is sent again to another instance, and the first
+ * response is used.
+ */
+@Data
+@ConfigurationProperties(prefix = "order.product-calls.hedging")
+public class HedgingProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Path patterns of the GET endpoints that are hedged; each has its own delay.
+     */
+    private List<String> paths = new ArrayList<>(List.of("/api/products/{id}", "/api/products/{id}/check-stock"));
+
+    private double percentile = 0.95;
+
+    private Duration minDelay = Duration.ofMillis(10);
+
+    /**
+     * Delay used until enough latencies are known, and upper bound afterwards.
+     */
+    private Duration maxDelay = Duration.ofSeconds(1);
+
+    /**
+     * Hedged calls allowed per hedgeable call, e.g. 0.05 for at most 5% more calls.
+     */
+    private double budgetRatio = 0.05;
+
+    /**
+     * Hedged calls that can be saved up while Product Service is fast.
+     */
+    private int budgetBurst = 10;
+}
@@ -0,0 +1,26 @@
+package ma.enset.commandservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "order.idempotency")
+public class IdempotencyProperties {
+
+    /**
+     * Maximum number of recent order responses kept in memory.
+     */
+    private int cacheSize = 10_000;
+
+    /**
+     * How long a key is honoured, in memory and in the order_idempotency_keys table.
+     */
+    private Duration retention = Duration.ofHours(24);
+
+    /**
+     * How long a duplicate request waits for the in-flight request with the same key.
+     */
+    private Duration waitTimeout = Duration.ofSeconds(30);
+}
@@ -0,0 +1,24 @@
+package ma.enset.commandservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "order.pagination")
+public class OrderPageProperties {
+
+    /**
+     * Page size used when the request does not specify a limit.
+     */
+    private int defaultLimit = 20;
+
+    /**
+     * Largest page size a client may request.
+     */
+    private int maxLimit = 100;
+
+    /**
+     * Most orders returned by the deprecated unpaged listing endpoints.
+     */
+    private int unpagedLimit = 500;
+}
@@ -0,0 +1,27 @@
+package ma.enset.commandservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "order.outbox")
+public class OutboxProperties {
+
+    /**
+     * Maximum number of events claimed per dispatcher run.
+     */
+    private int batchSize = 50;
+
+    /**
+     * How long a claimed event is hidden from other dispatchers before it can be picked up again.
+     */
+    private Duration lease = Duration.ofSeconds(30);
+
+    private int maxAttempts = 10;
+
+    private Duration initialBackoff = Duration.ofSeconds(1);
+
+    private Duration maxBackoff = Duration.ofMinutes(5);
+}
@@ -0,0 +1,23 @@
+package ma.enset.commandservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Local cache of product names and prices. Stock is never cached: it is checked when the reservation is applied.
+ */
+@Data
+@ConfigurationProperties(prefix = "order.product-cache")
+public class ProductCacheProperties {
+
+    private boolean enabled = true;
+
+    private long maximumSize = 10_000;
+
+    /**
+     * Upper bound on how long an entry is used, even if no change notification arrives.
+     */
+    private Duration ttl = Duration.ofMinutes(10);
+}
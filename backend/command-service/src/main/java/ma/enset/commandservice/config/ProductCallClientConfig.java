@@ -0,0 +1,40 @@
+package ma.enset.commandservice.config;
+
+import feign.Client;
+import io.micrometer.core.instrument.MeterRegistry;
+import ma.enset.commandservice.client.ConcurrencyLimitingFeignClient;
+import ma.enset.commandservice.client.HedgingFeignClient;
+import ma.enset.common.loadbalancer.LoadBalancerStats;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.cloud.openfeign.loadbalancer.FeignBlockingLoadBalancerClient;
+import org.springframework.cloud.openfeign.loadbalancer.LoadBalancerFeignRequestTransformer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Replaces the load-balanced Feign client of Spring Cloud OpenFeign with one that keeps calls under the
+ * adaptive limit of {@link ConcurrencyLimitProperties}, hedges the reads listed in {@link HedgingProperties}
+ * and passes other calls to it. Kept out of {@link FeignConfig}, which is also instantiated per Feign client,
+ * so all clients share one limit and one hedging budget.
+ */
+@Configuration
+public class ProductCallClientConfig {
+
+    @Bean
+    public Client feignClient(LoadBalancerClient loadBalancerClient, LoadBalancerClientFactory loadBalancerClientFactory,
+                              ObjectProvider<LoadBalancerFeignRequestTransformer> transformers,
+                              LoadBalancerStats loadBalancerStats, HedgingProperties hedgingProperties,
+                              ConcurrencyLimitProperties concurrencyLimitProperties, MeterRegistry meterRegistry) {
+        Client delegate = new Client.Default(null, null);
+        FeignBlockingLoadBalancerClient loadBalanced = new FeignBlockingLoadBalancerClient(
+                delegate, loadBalancerClient, loadBalancerClientFactory, transformers.orderedStream().toList());
+        Client hedging = new HedgingFeignClient(loadBalanced, delegate, loadBalancerClient, loadBalancerStats,
+                hedgingProperties, meterRegistry);
+        if (!concurrencyLimitProperties.isEnabled()) {
+            return hedging;
+        }
+        return new ConcurrencyLimitingFeignClient(hedging, concurrencyLimitProperties, meterRegistry);
+    }
+}
@@ -0,0 +1,29 @@
+package ma.enset.commandservice.config;
+
+import lombok.Data;
+import ma.enset.commandservice.enums.ProductCallMode;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Controls how the order flow looks up products in Product Service.
+ * BATCH uses the multi-item endpoint, SEQUENTIAL and CONCURRENT issue one call per item.
+ * Stock reservations and releases always go through the outbox and the batch endpoints.
+ */
+@Data
+@ConfigurationProperties(prefix = "order.product-calls")
+public class ProductCallProperties {
+
+    private ProductCallMode mode = ProductCallMode.BATCH;
+
+    /**
+     * Maximum number of in-flight Product Service calls for a single order in CONCURRENT mode.
+     */
+    private int maxConcurrencyPerOrder = 8;
+
+    /**
+     * Upper bound on the time spent waiting for all per-item calls of an order.
+     */
+    private Duration timeout = Duration.ofSeconds(10);
+}
@@ -1,5 +1,8 @@
 package ma.enset.commandservice.config;
 
+import ma.enset.common.security.InternalIdentityJwtDecoder;
+import ma.enset.common.security.InternalIdentityProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.convert.converter.Converter;
@@ -11,7 +14,13 @@ import org.springframework.security.config.annotation.web.configurers.AbstractHt
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.client.AuthorizedClientServiceOAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProviderBuilder;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
 import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import org.springframework.security.web.SecurityFilterChain;
 
@@ -26,7 +35,8 @@ import java.util.Map;
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtDecoder jwtDecoder,
+                                                   InternalIdentityProperties internalIdentity) throws Exception {
         return http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
@@ -43,15 +53,42 @@ public class SecurityConfig {
                         // Any other request requires authentication
                         .anyRequest().authenticated()
                 )
-                .oauth2ResourceServer(oauth2 -> oauth2
-                        .jwt(jwt -> jwt.jwtAuthenticationConverter(jwtAuthenticationConverter()))
-                )
+                .oauth2ResourceServer(oauth2 -> {
+                    // Requests from the gateway carry its HMAC-signed identity assertion, other callers a Keycloak JWT
+                    if (internalIdentity.isEnabled()) {
+                        oauth2.bearerTokenResolver(InternalIdentityJwtDecoder.bearerTokenResolver());
+                    }
+                    oauth2.jwt(jwt -> jwt
+                            .decoder(internalIdentity.isEnabled()
+                                    ? new InternalIdentityJwtDecoder(jwtDecoder, internalIdentity)
+                                    : jwtDecoder)
+                            .jwtAuthenticationConverter(jwtAuthenticationConverter()));
+                })
                 .sessionManagement(session -> session
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 )
                 .build();
     }
 
+    /**
+     * Client-credentials manager usable outside of an HTTP request, for service-to-service calls.
+     * Only created when the {@code product-service} client registration is configured; without it the outbox
+     * dispatcher calls Product Service unauthenticated and its stock changes are refused until retries run out.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.security.oauth2.client.registration." + FeignConfig.SERVICE_CLIENT_REGISTRATION,
+            name = "client-id")
+    public OAuth2AuthorizedClientManager authorizedClientManager(
+            ClientRegistrationRepository clientRegistrationRepository,
+            OAuth2AuthorizedClientService authorizedClientService) {
+        AuthorizedClientServiceOAuth2AuthorizedClientManager manager =
+                new AuthorizedClientServiceOAuth2AuthorizedClientManager(clientRegistrationRepository, authorizedClientService);
+        manager.setAuthorizedClientProvider(OAuth2AuthorizedClientProviderBuilder.builder()
+                .clientCredentials()
+                .build());
+        return manager;
+    }
+
     @Bean
     public JwtAuthenticationConverter jwtAuthenticationConverter() {
         JwtAuthenticationConverter jwtConverter = new JwtAuthenticationConverter();
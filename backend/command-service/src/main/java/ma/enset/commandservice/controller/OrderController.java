@@ -10,17 +10,26 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import ma.enset.commandservice.dto.OrderItemResponseDTO;
+import ma.enset.commandservice.dto.OrderPageDTO;
 import ma.enset.commandservice.dto.OrderRequestDTO;
 import ma.enset.commandservice.dto.OrderResponseDTO;
+import ma.enset.commandservice.enums.ExportFormat;
 import ma.enset.commandservice.enums.OrderStatus;
+import ma.enset.commandservice.service.OrderExportService;
 import ma.enset.commandservice.service.OrderService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Slf4j
@@ -32,6 +41,7 @@ import java.util.List;
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderExportService orderExportService;
 
     /**
      * Extract user ID from JWT token with fallback to preferred_username
@@ -69,31 +79,35 @@ public class OrderController {
 
     @PostMapping
     @PreAuthorize("hasAnyRole('CLIENT', 'ADMIN')")
-    @Operation(summary = "Create a new order", description = "Create a new order with products.")
+    @Operation(summary = "Create a new order", description = "Create a new order with products. Requests repeating an Idempotency-Key return the order created by the first one.")
     @ApiResponses({
             @ApiResponse(responseCode = "201", description = "Order created successfully"),
             @ApiResponse(responseCode = "400", description = "Invalid input or insufficient stock"),
+            @ApiResponse(responseCode = "409", description = "A request with the same Idempotency-Key is still in progress"),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key already used for a different order"),
             @ApiResponse(responseCode = "401", description = "Unauthorized"),
             @ApiResponse(responseCode = "403", description = "Forbidden")
     })
     public ResponseEntity<OrderResponseDTO> createOrder(
+            @RequestHeader(value = "Idempotency-Key", required = false) @Parameter(description = "Client-generated key that makes retries of this request safe") String idempotencyKey,
             @Valid @RequestBody OrderRequestDTO request,
             @AuthenticationPrincipal Jwt jwt) {
         String userId = extractUserId(jwt);
         String username = extractUsername(jwt);
-        log.info("User {} (id: {}) creating new order", username, userId);
+        log.info("User {} (id: {}) creating new order (key: {})", username, userId, idempotencyKey);
 
-        OrderResponseDTO order = orderService.createOrder(request, userId, username);
+        OrderResponseDTO order = orderService.createOrder(request, userId, username, idempotencyKey);
         return ResponseEntity.status(HttpStatus.CREATED).body(order);
     }
 
     @GetMapping("/my-orders")
     @PreAuthorize("hasAnyRole('CLIENT', 'ADMIN')")
-    @Operation(summary = "Get my orders", description = "Retrieve all orders for the current user.")
+    @Operation(summary = "Get my orders", deprecated = true, description = "Retrieve the most recent orders of the current user, capped at order.pagination.unpaged-limit. Use /my-orders/page instead.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Orders retrieved successfully"),
             @ApiResponse(responseCode = "401", description = "Unauthorized")
     })
+    @Deprecated
     public ResponseEntity<List<OrderResponseDTO>> getMyOrders(
             @AuthenticationPrincipal Jwt jwt) {
         String userId = extractUserId(jwt);
@@ -103,6 +117,24 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    @GetMapping("/my-orders/page")
+    @PreAuthorize("hasAnyRole('CLIENT', 'ADMIN')")
+    @Operation(summary = "Get a page of my orders", description = "Retrieve the current user's orders, newest first. Pass nextCursor back as cursor to get the following page.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Orders retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public ResponseEntity<OrderPageDTO> getMyOrdersPage(
+            @RequestParam(required = false) @Parameter(description = "Cursor returned by the previous page") String cursor,
+            @RequestParam(required = false) @Parameter(description = "Page size") Integer limit,
+            @AuthenticationPrincipal Jwt jwt) {
+        String userId = extractUserId(jwt);
+        log.info("User {} fetching a page of their orders", extractUsername(jwt));
+
+        return ResponseEntity.ok(orderService.getMyOrdersPage(userId, cursor, limit));
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get order by ID", description = "Retrieve an order by its ID. Clients can only view their own orders, admins can view any order.")
     @ApiResponses({
@@ -123,12 +155,13 @@ public class OrderController {
 
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    @Operation(summary = "Get all orders", description = "Retrieve all orders. Only accessible by ADMIN role.")
+    @Operation(summary = "Get all orders", deprecated = true, description = "Retrieve the most recent orders, capped at order.pagination.unpaged-limit. Use /page instead. Only accessible by ADMIN role.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Orders retrieved successfully"),
             @ApiResponse(responseCode = "401", description = "Unauthorized"),
             @ApiResponse(responseCode = "403", description = "Forbidden - Admin role required")
     })
+    @Deprecated
     public ResponseEntity<List<OrderResponseDTO>> getAllOrders(
             @AuthenticationPrincipal Jwt jwt) {
         log.info("Admin {} fetching all orders", extractUsername(jwt));
@@ -136,6 +169,49 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    @GetMapping("/page")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get a page of orders", description = "Retrieve orders newest first. Pass nextCursor back as cursor to get the following page. Only accessible by ADMIN role.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Orders retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Admin role required")
+    })
+    public ResponseEntity<OrderPageDTO> getAllOrdersPage(
+            @RequestParam(required = false) @Parameter(description = "Cursor returned by the previous page") String cursor,
+            @RequestParam(required = false) @Parameter(description = "Page size") Integer limit,
+            @AuthenticationPrincipal Jwt jwt) {
+        log.info("Admin {} fetching a page of orders", extractUsername(jwt));
+        return ResponseEntity.ok(orderService.getAllOrdersPage(cursor, limit));
+    }
+
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Export orders", description = "Stream orders oldest first as NDJSON (one order per line) or CSV (one line per item), optionally filtered by status and by an order date range [from, to). Only accessible by ADMIN role.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Export streamed successfully"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Admin role required")
+    })
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(defaultValue = "NDJSON") @Parameter(description = "Export format") ExportFormat format,
+            @RequestParam(required = false) @Parameter(description = "Only orders with this status") OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Orders placed at or after this time") LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Orders placed before this time") LocalDateTime to,
+            @AuthenticationPrincipal Jwt jwt) {
+        log.info("Admin {} exporting orders as {}", extractUsername(jwt), format);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("orders." + format.getFileExtension())
+                        .build()
+                        .toString())
+                .body(out -> orderExportService.export(format, status, from, to, out));
+    }
+
     @PutMapping("/{id}/status")
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Update order status", description = "Update the status of an order. Only accessible by ADMIN role.")
@@ -174,12 +250,13 @@ public class OrderController {
 
     @GetMapping("/status/{status}")
     @PreAuthorize("hasRole('ADMIN')")
-    @Operation(summary = "Get orders by status", description = "Retrieve all orders with a specific status. Only accessible by ADMIN role.")
+    @Operation(summary = "Get orders by status", deprecated = true, description = "Retrieve the most recent orders with a specific status, capped at order.pagination.unpaged-limit. Use /status/{status}/page instead. Only accessible by ADMIN role.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Orders retrieved successfully"),
             @ApiResponse(responseCode = "401", description = "Unauthorized"),
             @ApiResponse(responseCode = "403", description = "Forbidden - Admin role required")
     })
+    @Deprecated
     public ResponseEntity<List<OrderResponseDTO>> getOrdersByStatus(
             @PathVariable @Parameter(description = "Order status to filter by") OrderStatus status,
             @AuthenticationPrincipal Jwt jwt) {
@@ -188,6 +265,24 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    @GetMapping("/status/{status}/page")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get a page of orders by status", description = "Retrieve orders with a specific status, newest first. Only accessible by ADMIN role.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Orders retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Admin role required")
+    })
+    public ResponseEntity<OrderPageDTO> getOrdersByStatusPage(
+            @PathVariable @Parameter(description = "Order status to filter by") OrderStatus status,
+            @RequestParam(required = false) @Parameter(description = "Cursor returned by the previous page") String cursor,
+            @RequestParam(required = false) @Parameter(description = "Page size") Integer limit,
+            @AuthenticationPrincipal Jwt jwt) {
+        log.info("Admin {} fetching a page of orders with status: {}", extractUsername(jwt), status);
+        return ResponseEntity.ok(orderService.getOrdersByStatusPage(status, cursor, limit));
+    }
+
     @GetMapping("/{id}/items")
     @Operation(summary = "Get order items", description = "Retrieve items for a specific order. Clients can only view items from their own orders.")
     @ApiResponses({
@@ -0,0 +1,9 @@
+package ma.enset.commandservice.dto;
+
+import java.util.List;
+
+public record CatalogChangesDTO(
+        long cursor,
+        List<String> productIds
+) {
+}
@@ -0,0 +1,26 @@
+package ma.enset.commandservice.dto;
+
+import ma.enset.commandservice.enums.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One order item joined with its order, as streamed by the export.
+ */
+public record OrderExportRow(
+        String orderId,
+        String userId,
+        String username,
+        OrderStatus status,
+        BigDecimal totalAmount,
+        LocalDateTime orderDate,
+        LocalDateTime updatedAt,
+        Long itemId,
+        String productId,
+        String productName,
+        Integer quantity,
+        BigDecimal unitPrice,
+        BigDecimal subtotal
+) {
+}
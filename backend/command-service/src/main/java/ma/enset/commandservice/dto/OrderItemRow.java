@@ -0,0 +1,21 @@
+package ma.enset.commandservice.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * An order item with the id of its order, read by the listing queries straight into this record.
+ */
+public record OrderItemRow(
+        String orderId,
+        Long id,
+        String productId,
+        String productName,
+        Integer quantity,
+        BigDecimal unitPrice,
+        BigDecimal subtotal
+) {
+
+    public OrderItemResponseDTO toResponseDTO() {
+        return new OrderItemResponseDTO(id, productId, productName, quantity, unitPrice, subtotal);
+    }
+}
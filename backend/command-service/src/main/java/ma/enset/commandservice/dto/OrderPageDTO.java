@@ -0,0 +1,12 @@
+package ma.enset.commandservice.dto;
+
+import java.util.List;
+
+/**
+ * @param nextCursor opaque token for the next page, null on the last page
+ */
+public record OrderPageDTO(
+        List<OrderResponseDTO> orders,
+        String nextCursor
+) {
+}
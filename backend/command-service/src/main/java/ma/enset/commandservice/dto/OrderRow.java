@@ -0,0 +1,25 @@
+package ma.enset.commandservice.dto;
+
+import ma.enset.commandservice.enums.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * An order without its items, read by the listing queries straight into this record.
+ */
+public record OrderRow(
+        String id,
+        String userId,
+        String username,
+        OrderStatus status,
+        BigDecimal totalAmount,
+        LocalDateTime orderDate,
+        LocalDateTime updatedAt
+) {
+
+    public OrderResponseDTO toResponseDTO(List<OrderItemResponseDTO> items) {
+        return new OrderResponseDTO(id, userId, username, status, totalAmount, items, orderDate, updatedAt);
+    }
+}
@@ -0,0 +1,8 @@
+package ma.enset.commandservice.dto;
+
+import java.util.List;
+
+public record StockBatchRequestDTO(
+        List<StockItemDTO> items
+) {
+}
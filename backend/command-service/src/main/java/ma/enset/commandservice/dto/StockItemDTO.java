@@ -0,0 +1,7 @@
+package ma.enset.commandservice.dto;
+
+public record StockItemDTO(
+        String productId,
+        Integer quantity
+) {
+}
@@ -20,8 +20,10 @@ import java.math.BigDecimal;
 @Builder
 public class OrderItem {
 
+    // Ids are reserved 50 at a time, so the items of an order are inserted in JDBC batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_items_seq")
+    @SequenceGenerator(name = "order_items_seq", sequenceName = "order_items_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
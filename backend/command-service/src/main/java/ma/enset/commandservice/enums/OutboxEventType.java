@@ -0,0 +1,6 @@
+package ma.enset.commandservice.enums;
+
+public enum OutboxEventType {
+    RESERVE_STOCK,
+    RELEASE_STOCK
+}
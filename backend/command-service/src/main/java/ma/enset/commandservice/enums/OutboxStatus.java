@@ -0,0 +1,7 @@
+package ma.enset.commandservice.enums;
+
+public enum OutboxStatus {
+    PENDING,
+    SENT,
+    FAILED
+}
@@ -0,0 +1,7 @@
+package ma.enset.commandservice.enums;
+
+public enum ProductCallMode {
+    BATCH,
+    SEQUENTIAL,
+    CONCURRENT
+}
@@ -0,0 +1,8 @@
+package ma.enset.commandservice.exception;
+
+public class ProductServiceOverloadedException extends RuntimeException {
+
+    public ProductServiceOverloadedException(int limit) {
+        super("Product Service is at its limit of " + limit + " calls in flight. Please try again later.");
+    }
+}
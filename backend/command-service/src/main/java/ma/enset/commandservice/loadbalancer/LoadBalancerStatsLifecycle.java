@@ -0,0 +1,54 @@
+package ma.enset.commandservice.loadbalancer;
+
+import lombok.RequiredArgsConstructor;
+import ma.enset.common.loadbalancer.LoadBalancerStats;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records the latency and outcome of each Feign call on the instance the load balancer picked. Feign calls
+ * block, so every started call reaches {@link #onComplete}.
+ */
+@Component
+@RequiredArgsConstructor
+public class LoadBalancerStatsLifecycle implements LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+
+    private final LoadBalancerStats stats;
+
+    @Override
+    public void onStart(Request<Object> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<Object> request, Response<ServiceInstance> lbResponse) {
+        if (lbResponse.hasServer() && request.getContext() instanceof TimedRequestContext context) {
+            context.setRequestStartTime(System.nanoTime());
+            stats.get(lbResponse.getServer()).started();
+        }
+    }
+
+    @Override
+    public void onComplete(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (lbResponse == null || !lbResponse.hasServer()
+                || !(completionContext.getLoadBalancerRequest().getContext() instanceof TimedRequestContext context)) {
+            return;
+        }
+        long now = System.nanoTime();
+        long latency = now - context.getRequestStartTime();
+        LoadBalancerStats.InstanceStats instance = stats.get(lbResponse.getServer());
+        boolean serverError = completionContext.getClientResponse() instanceof ResponseData response
+                && response.getHttpStatus() != null && response.getHttpStatus().is5xxServerError();
+        if (completionContext.status() == CompletionContext.Status.FAILED || serverError) {
+            instance.failed(latency, now);
+        } else {
+            instance.completed(latency, now);
+        }
+    }
+}
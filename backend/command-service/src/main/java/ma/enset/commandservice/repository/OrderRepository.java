@@ -1,20 +1,93 @@
 package ma.enset.commandservice.repository;
 
+import jakarta.persistence.QueryHint;
+import ma.enset.commandservice.dto.OrderExportRow;
+import ma.enset.commandservice.dto.OrderItemRow;
+import ma.enset.commandservice.dto.OrderRow;
 import ma.enset.commandservice.entity.Order;
 import ma.enset.commandservice.enums.OrderStatus;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, String> {
 
+    @EntityGraph(attributePaths = "items")
     List<Order> findByUserId(String userId);
 
+    @EntityGraph(attributePaths = "items")
     List<Order> findByUserIdOrderByOrderDateDesc(String userId);
 
-    List<Order> findByStatus(OrderStatus status);
+    /*
+     * Keyset pages, newest first. The id breaks ties between orders placed at the same instant, and
+     * a page only reads the orders it returns (plus one to know whether another page follows).
+     * Rows are read straight into records, without managed entities; the items of a page are read
+     * with one findItemRows call.
+     */
 
-    List<Order> findAllByOrderByOrderDateDesc();
+    Window<OrderRow> findByUserIdOrderByOrderDateDescIdDesc(String userId, ScrollPosition position, Limit limit);
+
+    Window<OrderRow> findByStatusOrderByOrderDateDescIdDesc(OrderStatus status, ScrollPosition position, Limit limit);
+
+    Window<OrderRow> findAllByOrderByOrderDateDescIdDesc(ScrollPosition position, Limit limit);
+
+    @Query("""
+            select new ma.enset.commandservice.dto.OrderItemRow(
+                i.order.id, i.id, i.productId, i.productName, i.quantity, i.unitPrice, i.subtotal)
+            from OrderItem i
+            where i.order.id in :orderIds
+            order by i.id
+            """)
+    List<OrderItemRow> findItemRows(@Param("orderIds") Collection<String> orderIds);
+
+    /**
+     * Order items with their order, oldest order first, for the export. Rows are plain values, so nothing
+     * accumulates in the persistence context, and the driver reads them through a cursor in chunks of the
+     * fetch size. The caller must be in a transaction and close the stream.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            select new ma.enset.commandservice.dto.OrderExportRow(
+                o.id, o.userId, o.username, o.status, o.totalAmount, o.orderDate, o.updatedAt,
+                i.id, i.productId, i.productName, i.quantity, i.unitPrice, i.subtotal)
+            from Order o left join o.items i
+            where (:status is null or o.status = :status)
+              and (:from is null or o.orderDate >= :from)
+              and (:to is null or o.orderDate < :to)
+            order by o.orderDate, o.id, i.id
+            """)
+    Stream<OrderExportRow> streamForExport(@Param("status") OrderStatus status,
+                                           @Param("from") LocalDateTime from,
+                                           @Param("to") LocalDateTime to);
+
+    /**
+     * Move an order to a new status only if it is still in the expected one.
+     * Returns the number of updated rows (0 when the order is missing or was changed concurrently).
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            update Order o
+            set o.status = :newStatus, o.updatedAt = local datetime
+            where o.id = :id and o.status = :expectedStatus
+            """)
+    int transitionStatus(@Param("id") String id,
+                         @Param("expectedStatus") OrderStatus expectedStatus,
+                         @Param("newStatus") OrderStatus newStatus);
 }
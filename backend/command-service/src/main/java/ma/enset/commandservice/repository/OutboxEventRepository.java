@@ -0,0 +1,34 @@
+package ma.enset.commandservice.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import ma.enset.commandservice.entity.OutboxEvent;
+import ma.enset.commandservice.enums.OutboxStatus;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Lock due events, skipping rows already locked by another instance's dispatcher.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+            select e from OutboxEvent e
+            where e.status = :status and e.nextAttemptAt <= :now
+            order by e.id
+            """)
+    List<OutboxEvent> findDueForUpdate(@Param("status") OutboxStatus status,
+                                       @Param("now") LocalDateTime now,
+                                       Limit limit);
+}
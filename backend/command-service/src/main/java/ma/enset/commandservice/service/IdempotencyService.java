@@ -0,0 +1,204 @@
+package ma.enset.commandservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.commandservice.config.IdempotencyProperties;
+import ma.enset.commandservice.dto.OrderItemRequestDTO;
+import ma.enset.commandservice.dto.OrderRequestDTO;
+import ma.enset.commandservice.dto.OrderResponseDTO;
+import ma.enset.commandservice.entity.IdempotencyRecord;
+import ma.enset.commandservice.exception.IdempotencyKeyInProgressException;
+import ma.enset.commandservice.exception.IdempotencyKeyMismatchException;
+import ma.enset.commandservice.mapper.OrderMapper;
+import ma.enset.commandservice.repository.IdempotencyRecordRepository;
+import ma.enset.commandservice.repository.OrderRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Makes order creation safe to retry with an {@code Idempotency-Key}.
+ * <p>
+ * Recent responses are answered from a bounded in-memory cache, older ones from the
+ * {@code order_idempotency_keys} table written together with the order. A duplicate that arrives while
+ * the first request is still running waits for its outcome instead of creating a second order.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    private record CachedResponse(String requestHash, OrderResponseDTO response, LocalDateTime createdAt) {
+    }
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final OrderRepository orderRepository;
+    private final OrderMapper orderMapper;
+    private final IdempotencyProperties properties;
+
+    private final Map<String, CompletableFuture<OrderResponseDTO>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, CachedResponse> recent;
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              OrderRepository orderRepository,
+                              OrderMapper orderMapper,
+                              IdempotencyProperties properties) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.orderRepository = orderRepository;
+        this.orderMapper = orderMapper;
+        this.properties = properties;
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > properties.getCacheSize();
+            }
+        };
+    }
+
+    /**
+     * Run {@code createOrder} once per user and key. The action must store an {@link IdempotencyRecord}
+     * for the key in the transaction that creates the order.
+     */
+    public OrderResponseDTO execute(String userId, String idempotencyKey, String requestHash,
+                                    Supplier<OrderResponseDTO> createOrder) {
+        String cacheKey = userId + ":" + idempotencyKey;
+
+        OrderResponseDTO cached = fromCache(cacheKey, idempotencyKey, requestHash);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<OrderResponseDTO> execution = new CompletableFuture<>();
+        CompletableFuture<OrderResponseDTO> running = inFlight.putIfAbsent(cacheKey, execution);
+        if (running != null) {
+            log.info("Waiting for in-flight order request with Idempotency-Key {}", idempotencyKey);
+            OrderResponseDTO response = await(running, idempotencyKey);
+            verifySameRequest(cacheKey, idempotencyKey, requestHash);
+            return response;
+        }
+
+        try {
+            OrderResponseDTO response = fromDatabase(userId, idempotencyKey, requestHash);
+            if (response == null) {
+                try {
+                    response = createOrder.get();
+                } catch (DataIntegrityViolationException e) {
+                    // Another instance stored the same key first
+                    response = fromDatabase(userId, idempotencyKey, requestHash);
+                    if (response == null) {
+                        throw e;
+                    }
+                }
+            }
+            remember(cacheKey, requestHash, response);
+            execution.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            execution.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, execution);
+        }
+    }
+
+    /**
+     * Hash of the cart, independent of JSON formatting and line order.
+     */
+    public static String requestHash(OrderRequestDTO request) {
+        String canonical = request.items().stream()
+                .sorted(Comparator.comparing(OrderItemRequestDTO::productId)
+                        .thenComparing(OrderItemRequestDTO::quantity))
+                .map(item -> item.productId() + "=" + item.quantity())
+                .collect(Collectors.joining(","));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${order.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpiredKeys() {
+        int purged = idempotencyRecordRepository.deleteCreatedBefore(LocalDateTime.now().minus(properties.getRetention()));
+        if (purged > 0) {
+            log.info("Purged {} expired idempotency keys", purged);
+        }
+    }
+
+    private OrderResponseDTO fromCache(String cacheKey, String idempotencyKey, String requestHash) {
+        CachedResponse cached;
+        synchronized (recent) {
+            cached = recent.get(cacheKey);
+        }
+        if (cached == null || cached.createdAt().isBefore(LocalDateTime.now().minus(properties.getRetention()))) {
+            return null;
+        }
+        if (!cached.requestHash().equals(requestHash)) {
+            throw new IdempotencyKeyMismatchException(idempotencyKey);
+        }
+        log.info("Replaying order {} for Idempotency-Key {}", cached.response().id(), idempotencyKey);
+        return cached.response();
+    }
+
+    private OrderResponseDTO fromDatabase(String userId, String idempotencyKey, String requestHash) {
+        // Stored keys are honoured until the purge removes them
+        return idempotencyRecordRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey)
+                .map(record -> {
+                    if (!record.getRequestHash().equals(requestHash)) {
+                        throw new IdempotencyKeyMismatchException(idempotencyKey);
+                    }
+                    log.info("Replaying stored order {} for Idempotency-Key {}", record.getOrderId(), idempotencyKey);
+                    return orderRepository.findById(record.getOrderId())
+                            .map(orderMapper::toResponseDTO)
+                            .orElse(null);
+                })
+                .orElse(null);
+    }
+
+    private OrderResponseDTO await(CompletableFuture<OrderResponseDTO> running, String idempotencyKey) {
+        try {
+            return running.get(properties.getWaitTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // The duplicate gets the same outcome as the request it waited for
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IdempotencyKeyInProgressException(idempotencyKey);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyInProgressException(idempotencyKey);
+        }
+    }
+
+    private void verifySameRequest(String cacheKey, String idempotencyKey, String requestHash) {
+        synchronized (recent) {
+            CachedResponse cached = recent.get(cacheKey);
+            if (cached != null && !cached.requestHash().equals(requestHash)) {
+                throw new IdempotencyKeyMismatchException(idempotencyKey);
+            }
+        }
+    }
+
+    private void remember(String cacheKey, String requestHash, OrderResponseDTO response) {
+        synchronized (recent) {
+            recent.put(cacheKey, new CachedResponse(requestHash, response, LocalDateTime.now()));
+        }
+    }
+}
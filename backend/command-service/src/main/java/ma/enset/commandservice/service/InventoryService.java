@@ -0,0 +1,16 @@
+package ma.enset.commandservice.service;
+
+import ma.enset.commandservice.dto.ProductAvailabilityDTO;
+import ma.enset.commandservice.dto.StockItemDTO;
+
+import java.util.List;
+import java.util.Map;
+
+public interface InventoryService {
+
+    Map<String, ProductAvailabilityDTO> checkAvailability(List<StockItemDTO> items);
+
+    void reserveStock(String idempotencyKey, List<StockItemDTO> items);
+
+    void releaseStock(String idempotencyKey, String reservationKey, List<StockItemDTO> items);
+}
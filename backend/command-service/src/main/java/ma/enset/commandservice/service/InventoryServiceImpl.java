@@ -0,0 +1,146 @@
+package ma.enset.commandservice.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.commandservice.client.ProductCallExecutor;
+import ma.enset.commandservice.client.ProductCatalogCache;
+import ma.enset.commandservice.client.ProductServiceClient;
+import ma.enset.commandservice.config.ProductCallProperties;
+import ma.enset.commandservice.dto.ProductAvailabilityDTO;
+import ma.enset.commandservice.dto.ProductDTO;
+import ma.enset.commandservice.dto.StockBatchRequestDTO;
+import ma.enset.commandservice.dto.StockItemDTO;
+import ma.enset.commandservice.enums.ProductCallMode;
+import ma.enset.commandservice.exception.ProductNotAvailableException;
+import ma.enset.commandservice.exception.ProductServiceOverloadedException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+
+/**
+ * Talks to Product Service on behalf of the order flow. Availability lookups go through the batch endpoint
+ * or one call per product, run sequentially or fanned out on virtual threads; stock changes always use
+ * the idempotent batch endpoints.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InventoryServiceImpl implements InventoryService {
+
+    private final ProductServiceClient productServiceClient;
+    private final ProductCallExecutor productCallExecutor;
+    private final ProductCallProperties properties;
+    private final ProductCatalogCache productCatalogCache;
+
+    /**
+     * Products found in the catalog cache are answered locally with their cached name and price and reported
+     * available: their stock is verified when the reservation is applied. Only the others go to Product Service.
+     */
+    @Override
+    public Map<String, ProductAvailabilityDTO> checkAvailability(List<StockItemDTO> items) {
+        Map<String, Integer> requested = new LinkedHashMap<>();
+        items.forEach(item -> requested.merge(item.productId(), item.quantity(), Integer::sum));
+
+        Map<String, ProductAvailabilityDTO> result = new LinkedHashMap<>();
+        List<StockItemDTO> toFetch = new ArrayList<>();
+        requested.forEach((productId, quantity) -> {
+            ProductDTO cached = productCatalogCache.getIfPresent(productId);
+            if (cached != null) {
+                result.put(productId, new ProductAvailabilityDTO(
+                        productId, true, cached.name(), cached.price(), null, quantity, true));
+            } else {
+                toFetch.add(new StockItemDTO(productId, quantity));
+            }
+        });
+        if (toFetch.isEmpty()) {
+            log.debug("All {} products served from the catalog cache", result.size());
+            return result;
+        }
+
+        try {
+            List<ProductAvailabilityDTO> availability = properties.getMode() == ProductCallMode.BATCH
+                    ? productServiceClient.checkAvailability(new StockBatchRequestDTO(toFetch))
+                    : invokeAll(perProduct(toFetch, this::fetchAvailability));
+            availability.forEach(product -> {
+                if (product.found()) {
+                    productCatalogCache.put(new ProductDTO(product.productId(), product.name(), null, product.price(), null));
+                }
+                result.put(product.productId(), product);
+            });
+            return result;
+        } catch (ProductServiceOverloadedException e) {
+            // Not the items' fault: answered with 503 so the client retries later
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to check availability for order items: {}", e.getMessage());
+            throw new ProductNotAvailableException("Unable to validate order items", e);
+        }
+    }
+
+    /**
+     * Always uses the batch endpoint: it is atomic on the product-service side and honours the idempotency key.
+     */
+    @Override
+    public void reserveStock(String idempotencyKey, List<StockItemDTO> items) {
+        productServiceClient.reserveStock(idempotencyKey, new StockBatchRequestDTO(items));
+        log.info("Stock reserved for {} order items (key: {})", items.size(), idempotencyKey);
+    }
+
+    @Override
+    public void releaseStock(String idempotencyKey, String reservationKey, List<StockItemDTO> items) {
+        productServiceClient.releaseStock(idempotencyKey, reservationKey, new StockBatchRequestDTO(items));
+        log.info("Stock released for {} order items (key: {})", items.size(), idempotencyKey);
+    }
+
+    private ProductAvailabilityDTO fetchAvailability(StockItemDTO item) {
+        ProductDTO product;
+        try {
+            product = productCatalogCache.getProduct(item.productId());
+        } catch (ProductNotAvailableException e) {
+            return new ProductAvailabilityDTO(item.productId(), false, null, null, null, item.quantity(), false);
+        }
+        Boolean hasStock = productServiceClient.checkStock(item.productId(), item.quantity());
+        return new ProductAvailabilityDTO(
+                product.id(),
+                true,
+                product.name(),
+                product.price(),
+                null,
+                item.quantity(),
+                Boolean.TRUE.equals(hasStock));
+    }
+
+    /**
+     * Build one task per product, summing quantities of repeated products.
+     */
+    private <T> List<Callable<T>> perProduct(List<StockItemDTO> items, Function<StockItemDTO, T> call) {
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        items.forEach(item -> quantities.merge(item.productId(), item.quantity(), Integer::sum));
+        return quantities.entrySet().stream()
+                .map(entry -> (Callable<T>) () -> call.apply(new StockItemDTO(entry.getKey(), entry.getValue())))
+                .toList();
+    }
+
+    private <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        if (properties.getMode() == ProductCallMode.CONCURRENT) {
+            return productCallExecutor.invokeAll(tasks, properties.getMaxConcurrencyPerOrder(), properties.getTimeout());
+        }
+
+        List<T> results = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            try {
+                results.add(task.call());
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException("Product Service call failed", e);
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,44 @@
+package ma.enset.commandservice.service;
+
+import ma.enset.commandservice.dto.OrderRow;
+import ma.enset.commandservice.exception.InvalidCursorException;
+import org.springframework.data.domain.ScrollPosition;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Opaque page token holding the {@code (orderDate, id)} key of the last order on a page.
+ */
+final class OrderCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private OrderCursor() {
+    }
+
+    static String encode(OrderRow last) {
+        String key = last.orderDate().toString() + SEPARATOR + last.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the position after the encoded order, or the first page when {@code cursor} is null
+     */
+    static ScrollPosition decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = key.indexOf(SEPARATOR);
+            LocalDateTime orderDate = LocalDateTime.parse(key.substring(0, separator));
+            String id = key.substring(separator + 1);
+            return ScrollPosition.forward(Map.of("orderDate", orderDate, "id", id));
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+}
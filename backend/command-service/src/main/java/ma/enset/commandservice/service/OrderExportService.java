@@ -0,0 +1,151 @@
+package ma.enset.commandservice.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.commandservice.dto.OrderExportRow;
+import ma.enset.commandservice.dto.OrderItemResponseDTO;
+import ma.enset.commandservice.dto.OrderResponseDTO;
+import ma.enset.commandservice.enums.ExportFormat;
+import ma.enset.commandservice.enums.OrderStatus;
+import ma.enset.commandservice.repository.OrderRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Writes orders straight from a database cursor to the response, one order or item at a time, so memory use
+ * does not depend on how many orders are exported.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderExportService {
+
+    static final String CSV_HEADER = "order_id,user_id,username,status,total_amount,order_date,updated_at,"
+            + "item_id,product_id,product_name,quantity,unit_price,subtotal";
+
+    private final OrderRepository orderRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @param from inclusive lower bound on the order date, or null
+     * @param to   exclusive upper bound on the order date, or null
+     * @return the number of orders written
+     */
+    @Transactional(readOnly = true)
+    public long export(ExportFormat format, OrderStatus status, LocalDateTime from, LocalDateTime to,
+                       OutputStream out) throws IOException {
+        try (Stream<OrderExportRow> rows = orderRepository.streamForExport(status, from, to)) {
+            long orders = switch (format) {
+                case NDJSON -> writeNdjson(rows.iterator(), out);
+                case CSV -> writeCsv(rows.iterator(), out);
+            };
+            log.info("Exported {} orders as {} (status={}, from={}, to={})", orders, format, status, from, to);
+            return orders;
+        }
+    }
+
+    /**
+     * One JSON order per line. Rows arrive ordered by order, so an order is complete when the next one starts.
+     */
+    private long writeNdjson(Iterator<OrderExportRow> rows, OutputStream out) throws IOException {
+        long orders = 0;
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            OrderExportRow first = null;
+            List<OrderItemResponseDTO> items = new ArrayList<>();
+            while (rows.hasNext()) {
+                OrderExportRow row = rows.next();
+                if (first == null || !first.orderId().equals(row.orderId())) {
+                    if (first != null) {
+                        writeOrder(generator, first, items);
+                        orders++;
+                        items.clear();
+                    }
+                    first = row;
+                }
+                if (row.itemId() != null) {
+                    items.add(new OrderItemResponseDTO(row.itemId(), row.productId(), row.productName(),
+                            row.quantity(), row.unitPrice(), row.subtotal()));
+                }
+            }
+            if (first != null) {
+                writeOrder(generator, first, items);
+                orders++;
+            }
+        }
+        return orders;
+    }
+
+    private void writeOrder(JsonGenerator generator, OrderExportRow order, List<OrderItemResponseDTO> items)
+            throws IOException {
+        generator.writeObject(new OrderResponseDTO(order.orderId(), order.userId(), order.username(),
+                order.status(), order.totalAmount(), items, order.orderDate(), order.updatedAt()));
+        generator.writeRaw('\n');
+    }
+
+    /**
+     * One line per item, repeating the order columns. Orders without items get one line with empty item columns.
+     */
+    private long writeCsv(Iterator<OrderExportRow> rows, OutputStream out) throws IOException {
+        long orders = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        String previousOrderId = null;
+        while (rows.hasNext()) {
+            OrderExportRow row = rows.next();
+            if (!row.orderId().equals(previousOrderId)) {
+                orders++;
+                previousOrderId = row.orderId();
+            }
+            writeCsvLine(writer, row.orderId(), row.userId(), row.username(), row.status(), row.totalAmount(),
+                    row.orderDate(), row.updatedAt(), row.itemId(), row.productId(), row.productName(),
+                    row.quantity(), row.unitPrice(), row.subtotal());
+        }
+        writer.flush();
+        return orders;
+    }
+
+    private static void writeCsvLine(Writer writer, Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (values[i] != null) {
+                writer.write(csvField(values[i]));
+            }
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * Quotes fields that contain separators, and prefixes text starting with a formula character so
+     * spreadsheets open user-supplied names as text.
+     */
+    static String csvField(Object value) {
+        String text = Objects.toString(value);
+        if (value instanceof CharSequence && !text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+}
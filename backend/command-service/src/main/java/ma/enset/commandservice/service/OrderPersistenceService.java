@@ -0,0 +1,123 @@
+package ma.enset.commandservice.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.commandservice.dto.StockItemDTO;
+import ma.enset.commandservice.entity.IdempotencyRecord;
+import ma.enset.commandservice.entity.Order;
+import ma.enset.commandservice.entity.OrderItem;
+import ma.enset.commandservice.entity.OutboxEvent;
+import ma.enset.commandservice.enums.OrderStatus;
+import ma.enset.commandservice.enums.OutboxEventType;
+import ma.enset.commandservice.exception.OrderNotFoundException;
+import ma.enset.commandservice.repository.IdempotencyRecordRepository;
+import ma.enset.commandservice.repository.OrderRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Short database transactions used by the order workflow.
+ * Remote calls to Product Service happen between these steps, never inside them,
+ * so a slow product-service does not hold a pooled connection.
+ * Stock side effects are queued in the outbox in the same transaction as the order change.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderPersistenceService {
+
+    private final OrderRepository orderRepository;
+    private final OutboxService outboxService;
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+
+    /**
+     * Persist a PENDING order together with the outbox entry that reserves its stock
+     * and, when the client sent one, its Idempotency-Key.
+     */
+    @Transactional
+    public Order createOrder(Order order, List<StockItemDTO> stockItems, IdempotencyRecord idempotencyRecord) {
+        Order savedOrder = orderRepository.saveAndFlush(order);
+        if (idempotencyRecord != null) {
+            // Flushed right away so a concurrent duplicate from another instance fails before anything is queued
+            idempotencyRecord.setOrderId(savedOrder.getId());
+            idempotencyRecordRepository.saveAndFlush(idempotencyRecord);
+        }
+        outboxService.enqueue(savedOrder.getId(), OutboxEventType.RESERVE_STOCK, stockItems);
+        log.debug("Order {} persisted with stock reservation queued", savedOrder.getId());
+        return savedOrder;
+    }
+
+    @Transactional(readOnly = true)
+    public Order findOrder(String orderId) {
+        return orderRepository.findById(orderId)
+                .orElseThrow(() -> new OrderNotFoundException(orderId));
+    }
+
+    /**
+     * Compare-and-set the order status so concurrent updates cannot both act on the same transition.
+     */
+    @Transactional
+    public Order transitionStatus(String orderId, OrderStatus expectedStatus, OrderStatus newStatus) {
+        if (orderRepository.transitionStatus(orderId, expectedStatus, newStatus) == 0) {
+            Order current = findOrder(orderId);
+            throw new IllegalStateException(String.format(
+                    "Order %s is %s, expected %s", orderId, current.getStatus(), expectedStatus));
+        }
+        return findOrder(orderId);
+    }
+
+    /**
+     * Cancel the order and queue the release of its stock in one transaction.
+     */
+    @Transactional
+    public Order cancelOrder(String orderId, OrderStatus expectedStatus) {
+        Order cancelledOrder = transitionStatus(orderId, expectedStatus, OrderStatus.CANCELLED);
+        outboxService.enqueue(orderId, OutboxEventType.RELEASE_STOCK, toStockItems(cancelledOrder.getItems()));
+        return cancelledOrder;
+    }
+
+    /**
+     * Product Service acknowledged the reservation: the order can be confirmed.
+     */
+    @Transactional
+    public void completeReservation(OutboxEvent event) {
+        outboxService.markSent(event.getId());
+        if (orderRepository.transitionStatus(event.getOrderId(), OrderStatus.PENDING, OrderStatus.CONFIRMED) == 1) {
+            log.info("Order {} confirmed", event.getOrderId());
+        } else {
+            log.info("Stock reserved for order {} which is no longer pending", event.getOrderId());
+        }
+    }
+
+    /**
+     * Product Service refused the reservation (missing product or insufficient stock), so nothing was reserved.
+     */
+    @Transactional
+    public void rejectReservation(OutboxEvent event, String reason) {
+        outboxService.markFailed(event.getId(), reason);
+        if (orderRepository.transitionStatus(event.getOrderId(), OrderStatus.PENDING, OrderStatus.CANCELLED) == 1) {
+            log.warn("Order {} cancelled, stock reservation rejected: {}", event.getOrderId(), reason);
+        }
+    }
+
+    /**
+     * Delivery kept failing and the outcome is unknown: cancel the order and queue a release,
+     * which Product Service turns into a void if the reservation was never applied.
+     */
+    @Transactional
+    public void abandonReservation(OutboxEvent event, List<StockItemDTO> stockItems, String reason) {
+        outboxService.markFailed(event.getId(), reason);
+        if (orderRepository.transitionStatus(event.getOrderId(), OrderStatus.PENDING, OrderStatus.CANCELLED) == 1) {
+            outboxService.enqueue(event.getOrderId(), OutboxEventType.RELEASE_STOCK, stockItems);
+            log.error("Order {} cancelled after repeated stock reservation failures: {}", event.getOrderId(), reason);
+        }
+    }
+
+    private List<StockItemDTO> toStockItems(List<OrderItem> items) {
+        return items.stream()
+                .map(item -> new StockItemDTO(item.getProductId(), item.getQuantity()))
+                .toList();
+    }
+}
@@ -1,6 +1,7 @@
 package ma.enset.commandservice.service;
 
 import ma.enset.commandservice.dto.OrderItemResponseDTO;
+import ma.enset.commandservice.dto.OrderPageDTO;
 import ma.enset.commandservice.dto.OrderRequestDTO;
 import ma.enset.commandservice.dto.OrderResponseDTO;
 import ma.enset.commandservice.enums.OrderStatus;
@@ -9,16 +10,41 @@ import java.util.List;
 
 public interface OrderService {
 
-    OrderResponseDTO createOrder(OrderRequestDTO request, String userId, String username);
+    /**
+     * @param idempotencyKey optional client key; repeated requests with the same key return the first order
+     */
+    OrderResponseDTO createOrder(OrderRequestDTO request, String userId, String username, String idempotencyKey);
 
     OrderResponseDTO getOrderById(String orderId, String userId, boolean isAdmin);
 
+    /**
+     * @deprecated returns at most {@code order.pagination.unpaged-limit} orders; use {@link #getMyOrdersPage}
+     */
+    @Deprecated
     List<OrderResponseDTO> getMyOrders(String userId);
 
+    /**
+     * @deprecated returns at most {@code order.pagination.unpaged-limit} orders; use {@link #getAllOrdersPage}
+     */
+    @Deprecated
     List<OrderResponseDTO> getAllOrders();
 
+    /**
+     * @deprecated returns at most {@code order.pagination.unpaged-limit} orders; use {@link #getOrdersByStatusPage}
+     */
+    @Deprecated
     List<OrderResponseDTO> getOrdersByStatus(OrderStatus status);
 
+    /**
+     * @param cursor {@code nextCursor} of the previous page, or null for the newest orders
+     * @param limit  page size, defaulted and capped by {@code order.pagination}
+     */
+    OrderPageDTO getMyOrdersPage(String userId, String cursor, Integer limit);
+
+    OrderPageDTO getAllOrdersPage(String cursor, Integer limit);
+
+    OrderPageDTO getOrdersByStatusPage(OrderStatus status, String cursor, Integer limit);
+
     OrderResponseDTO updateOrderStatus(String orderId, OrderStatus status);
 
     void cancelOrder(String orderId, String userId, boolean isAdmin);
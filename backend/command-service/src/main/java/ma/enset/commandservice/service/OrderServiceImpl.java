@@ -2,12 +2,17 @@ package ma.enset.commandservice.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import ma.enset.commandservice.client.ProductServiceClient;
 import ma.enset.commandservice.dto.OrderItemRequestDTO;
+import ma.enset.commandservice.config.OrderPageProperties;
 import ma.enset.commandservice.dto.OrderItemResponseDTO;
+import ma.enset.commandservice.dto.OrderItemRow;
+import ma.enset.commandservice.dto.OrderPageDTO;
 import ma.enset.commandservice.dto.OrderRequestDTO;
 import ma.enset.commandservice.dto.OrderResponseDTO;
-import ma.enset.commandservice.dto.ProductDTO;
+import ma.enset.commandservice.dto.OrderRow;
+import ma.enset.commandservice.dto.ProductAvailabilityDTO;
+import ma.enset.commandservice.dto.StockItemDTO;
+import ma.enset.commandservice.entity.IdempotencyRecord;
 import ma.enset.commandservice.entity.Order;
 import ma.enset.commandservice.entity.OrderItem;
 import ma.enset.commandservice.enums.OrderStatus;
@@ -17,62 +22,77 @@ import ma.enset.commandservice.exception.ProductNotAvailableException;
 import ma.enset.commandservice.exception.UnauthorizedOrderAccessException;
 import ma.enset.commandservice.mapper.OrderMapper;
 import ma.enset.commandservice.repository.OrderRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
-@Transactional
 public class OrderServiceImpl implements OrderService {
 
     private final OrderRepository orderRepository;
+    private final OrderPersistenceService orderPersistenceService;
     private final OrderMapper orderMapper;
-    private final ProductServiceClient productServiceClient;
-
+    private final InventoryService inventoryService;
+    private final IdempotencyService idempotencyService;
+    private final OrderPageProperties pageProperties;
+
+    /**
+     * Remote validation runs outside any transaction. The order is stored as PENDING together with an outbox
+     * entry reserving its stock; the order is confirmed once Product Service acknowledges the reservation.
+     */
     @Override
-    public OrderResponseDTO createOrder(OrderRequestDTO request, String userId, String username) {
+    public OrderResponseDTO createOrder(OrderRequestDTO request, String userId, String username, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return placeOrder(request, userId, username, null);
+        }
+        String requestHash = IdempotencyService.requestHash(request);
+        return idempotencyService.execute(userId, idempotencyKey, requestHash, () -> placeOrder(
+                request, userId, username,
+                IdempotencyRecord.builder()
+                        .userId(userId)
+                        .idempotencyKey(idempotencyKey)
+                        .requestHash(requestHash)
+                        .build()));
+    }
+
+    private OrderResponseDTO placeOrder(OrderRequestDTO request, String userId, String username,
+                                        IdempotencyRecord idempotencyRecord) {
         log.info("Creating order for user: {}", username);
 
+        // Validate the whole cart against Product Service
+        List<StockItemDTO> stockItems = request.items().stream()
+                .map(item -> new StockItemDTO(item.productId(), item.quantity()))
+                .toList();
+        Map<String, ProductAvailabilityDTO> availability = inventoryService.checkAvailability(stockItems);
+
         List<OrderItem> orderItems = new ArrayList<>();
         BigDecimal totalAmount = BigDecimal.ZERO;
 
-        // Validate products and calculate totals
         for (OrderItemRequestDTO itemRequest : request.items()) {
-            // Get product details from Product Service
-            ProductDTO product;
-            try {
-                product = productServiceClient.getProductById(itemRequest.productId());
-            } catch (Exception e) {
-                log.error("Failed to fetch product {}: {}", itemRequest.productId(), e.getMessage());
-                throw new ProductNotAvailableException(itemRequest.productId());
-            }
-
-            if (product == null) {
-                throw new ProductNotAvailableException(itemRequest.productId());
-            }
-
-            // Check stock availability
-            Boolean hasStock;
-            try {
-                hasStock = productServiceClient.checkStock(itemRequest.productId(), itemRequest.quantity());
-            } catch (Exception e) {
-                log.error("Failed to check stock for product {}: {}", itemRequest.productId(), e.getMessage());
+            ProductAvailabilityDTO product = availability.get(itemRequest.productId());
+            if (product == null || !product.found()) {
                 throw new ProductNotAvailableException(itemRequest.productId());
             }
 
-            if (hasStock == null || !hasStock) {
-                throw new InsufficientStockException(itemRequest.productId(), itemRequest.quantity());
+            // Availability is computed against the total quantity requested for this product
+            if (!product.available()) {
+                throw new InsufficientStockException(itemRequest.productId(), product.requestedQuantity());
             }
 
             // Create order item
             BigDecimal subtotal = product.price().multiply(BigDecimal.valueOf(itemRequest.quantity()));
             OrderItem orderItem = OrderItem.builder()
-                    .productId(product.id())
+                    .productId(product.productId())
                     .productName(product.name())
                     .quantity(itemRequest.quantity())
                     .unitPrice(product.price())
@@ -96,25 +116,8 @@ public class OrderServiceImpl implements OrderService {
             order.addItem(item);
         }
 
-        // Save order first
-        Order savedOrder = orderRepository.save(order);
-        log.info("Order created with id: {}", savedOrder.getId());
-
-        // Reduce stock for each product
-        for (OrderItemRequestDTO itemRequest : request.items()) {
-            try {
-                productServiceClient.reduceStock(itemRequest.productId(), itemRequest.quantity());
-                log.info("Stock reduced for product: {}", itemRequest.productId());
-            } catch (Exception e) {
-                log.error("Failed to reduce stock for product {}: {}", itemRequest.productId(), e.getMessage());
-                // Note: In a production system, you would implement compensation/rollback
-            }
-        }
-
-        // Update order status to CONFIRMED
-        savedOrder.setStatus(OrderStatus.CONFIRMED);
-        savedOrder = orderRepository.save(savedOrder);
-        log.info("Order {} confirmed", savedOrder.getId());
+        Order savedOrder = orderPersistenceService.createOrder(order, stockItems, idempotencyRecord);
+        log.info("Order {} created, stock reservation queued", savedOrder.getId());
 
         return orderMapper.toResponseDTO(savedOrder);
     }
@@ -136,43 +139,94 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     @Transactional(readOnly = true)
+    @Deprecated
     public List<OrderResponseDTO> getMyOrders(String userId) {
         log.debug("Fetching orders for user: {}", userId);
-        List<Order> orders = orderRepository.findByUserIdOrderByOrderDateDesc(userId);
-        return orderMapper.toResponseDTOList(orders);
+        return toList(orderRepository.findByUserIdOrderByOrderDateDescIdDesc(userId, ScrollPosition.keyset(), unpagedLimit()));
     }
 
     @Override
     @Transactional(readOnly = true)
+    @Deprecated
     public List<OrderResponseDTO> getAllOrders() {
         log.debug("Fetching all orders");
-        List<Order> orders = orderRepository.findAllByOrderByOrderDateDesc();
-        return orderMapper.toResponseDTOList(orders);
+        return toList(orderRepository.findAllByOrderByOrderDateDescIdDesc(ScrollPosition.keyset(), unpagedLimit()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public OrderPageDTO getMyOrdersPage(String userId, String cursor, Integer limit) {
+        log.debug("Fetching orders page for user: {}", userId);
+        return toPage(orderRepository.findByUserIdOrderByOrderDateDescIdDesc(
+                userId, OrderCursor.decode(cursor), pageLimit(limit)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public OrderPageDTO getAllOrdersPage(String cursor, Integer limit) {
+        log.debug("Fetching orders page");
+        return toPage(orderRepository.findAllByOrderByOrderDateDescIdDesc(OrderCursor.decode(cursor), pageLimit(limit)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public OrderPageDTO getOrdersByStatusPage(OrderStatus status, String cursor, Integer limit) {
+        log.debug("Fetching orders page by status: {}", status);
+        return toPage(orderRepository.findByStatusOrderByOrderDateDescIdDesc(
+                status, OrderCursor.decode(cursor), pageLimit(limit)));
+    }
+
+    private Limit pageLimit(Integer requested) {
+        int limit = requested == null ? pageProperties.getDefaultLimit() : requested;
+        return Limit.of(Math.clamp(limit, 1, pageProperties.getMaxLimit()));
+    }
+
+    private Limit unpagedLimit() {
+        return Limit.of(pageProperties.getUnpagedLimit());
+    }
+
+    private List<OrderResponseDTO> toList(Window<OrderRow> window) {
+        if (window.hasNext()) {
+            log.warn("Unpaged order listing truncated to {} orders", window.size());
+        }
+        return withItems(window.getContent());
+    }
+
+    private OrderPageDTO toPage(Window<OrderRow> window) {
+        List<OrderRow> orders = window.getContent();
+        String nextCursor = window.hasNext() && !orders.isEmpty() ? OrderCursor.encode(orders.getLast()) : null;
+        return new OrderPageDTO(withItems(orders), nextCursor);
+    }
+
+    private List<OrderResponseDTO> withItems(List<OrderRow> orders) {
+        if (orders.isEmpty()) {
+            return List.of();
+        }
+        Map<String, List<OrderItemResponseDTO>> items = new HashMap<>();
+        for (OrderItemRow item : orderRepository.findItemRows(orders.stream().map(OrderRow::id).toList())) {
+            items.computeIfAbsent(item.orderId(), id -> new ArrayList<>()).add(item.toResponseDTO());
+        }
+        return orders.stream()
+                .map(order -> order.toResponseDTO(items.getOrDefault(order.id(), List.of())))
+                .toList();
     }
 
     @Override
     public OrderResponseDTO updateOrderStatus(String orderId, OrderStatus status) {
         log.info("Updating order {} status to {}", orderId, status);
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new OrderNotFoundException(orderId));
-
+        Order order = orderPersistenceService.findOrder(orderId);
         OrderStatus previousStatus = order.getStatus();
 
-        // If changing to CANCELLED from PENDING/CONFIRMED, restore stock
-        if (status == OrderStatus.CANCELLED && 
+        Order updatedOrder;
+        if (status == OrderStatus.CANCELLED &&
             (previousStatus == OrderStatus.PENDING || previousStatus == OrderStatus.CONFIRMED)) {
-            for (OrderItem item : order.getItems()) {
-                try {
-                    productServiceClient.restoreStock(item.getProductId(), item.getQuantity());
-                    log.info("Stock restored for product: {}, quantity: {}", item.getProductId(), item.getQuantity());
-                } catch (Exception e) {
-                    log.error("Failed to restore stock for product {}: {}", item.getProductId(), e.getMessage());
-                }
-            }
+            // Cancelling releases the order's stock through the outbox
+            updatedOrder = orderPersistenceService.cancelOrder(orderId, previousStatus);
+        } else if (previousStatus == OrderStatus.PENDING) {
+            throw new IllegalStateException("Order " + orderId + " is waiting for stock confirmation and can only be cancelled");
+        } else {
+            updatedOrder = orderPersistenceService.transitionStatus(orderId, previousStatus, status);
         }
-
-        order.setStatus(status);
-        Order updatedOrder = orderRepository.save(order);
         log.info("Order {} status updated to {}", orderId, status);
 
         return orderMapper.toResponseDTO(updatedOrder);
@@ -181,8 +235,7 @@ public class OrderServiceImpl implements OrderService {
     @Override
     public void cancelOrder(String orderId, String userId, boolean isAdmin) {
         log.info("Cancelling order: {}", orderId);
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new OrderNotFoundException(orderId));
+        Order order = orderPersistenceService.findOrder(orderId);
 
         // Check authorization
         if (!isAdmin && !order.getUserId().equals(userId)) {
@@ -190,32 +243,21 @@ public class OrderServiceImpl implements OrderService {
         }
 
         // Only allow cancellation of PENDING or CONFIRMED orders
-        if (order.getStatus() != OrderStatus.PENDING && order.getStatus() != OrderStatus.CONFIRMED) {
-            throw new IllegalStateException("Cannot cancel order with status: " + order.getStatus());
-        }
-
-        // Restore stock for each item in the order
-        for (OrderItem item : order.getItems()) {
-            try {
-                productServiceClient.restoreStock(item.getProductId(), item.getQuantity());
-                log.info("Stock restored for product: {}, quantity: {}", item.getProductId(), item.getQuantity());
-            } catch (Exception e) {
-                log.error("Failed to restore stock for product {}: {}", item.getProductId(), e.getMessage());
-                // Continue with cancellation even if stock restoration fails
-            }
+        OrderStatus previousStatus = order.getStatus();
+        if (previousStatus != OrderStatus.PENDING && previousStatus != OrderStatus.CONFIRMED) {
+            throw new IllegalStateException("Cannot cancel order with status: " + previousStatus);
         }
 
-        order.setStatus(OrderStatus.CANCELLED);
-        orderRepository.save(order);
-        log.info("Order {} cancelled", orderId);
+        orderPersistenceService.cancelOrder(orderId, previousStatus);
+        log.info("Order {} cancelled, stock release queued", orderId);
     }
 
     @Override
     @Transactional(readOnly = true)
+    @Deprecated
     public List<OrderResponseDTO> getOrdersByStatus(OrderStatus status) {
         log.debug("Fetching orders by status: {}", status);
-        List<Order> orders = orderRepository.findByStatus(status);
-        return orderMapper.toResponseDTOList(orders);
+        return toList(orderRepository.findByStatusOrderByOrderDateDescIdDesc(status, ScrollPosition.keyset(), unpagedLimit()));
     }
 
     @Override
@@ -233,4 +275,3 @@ public class OrderServiceImpl implements OrderService {
         return orderMapper.toOrderItemResponseDTOList(order.getItems());
     }
 }
-
@@ -0,0 +1,77 @@
+package ma.enset.commandservice.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.commandservice.dto.StockItemDTO;
+import ma.enset.commandservice.entity.OutboxEvent;
+import ma.enset.commandservice.enums.OutboxEventType;
+import ma.enset.commandservice.exception.InsufficientStockException;
+import ma.enset.commandservice.exception.ProductNotAvailableException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Drains the order outbox: delivers stock reservations and releases to Product Service
+ * with their idempotency keys, retrying transient failures with backoff.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OutboxDispatcher {
+
+    private final OutboxService outboxService;
+    private final OrderPersistenceService orderPersistenceService;
+    private final InventoryService inventoryService;
+
+    @Scheduled(fixedDelayString = "${order.outbox.poll-interval-ms:500}")
+    public void dispatchDueEvents() {
+        List<OutboxEvent> events = outboxService.claimDueEvents();
+        if (!events.isEmpty()) {
+            log.debug("Dispatching {} outbox events", events.size());
+        }
+        events.forEach(this::dispatch);
+    }
+
+    private void dispatch(OutboxEvent event) {
+        List<StockItemDTO> items = outboxService.readItems(event);
+        try {
+            switch (event.getType()) {
+                case RESERVE_STOCK -> {
+                    inventoryService.reserveStock(event.getIdempotencyKey(), items);
+                    orderPersistenceService.completeReservation(event);
+                }
+                case RELEASE_STOCK -> {
+                    String reservationKey = OutboxService.idempotencyKey(event.getOrderId(), OutboxEventType.RESERVE_STOCK);
+                    inventoryService.releaseStock(event.getIdempotencyKey(), reservationKey, items);
+                    outboxService.markSent(event.getId());
+                    log.info("Stock released for order {}", event.getOrderId());
+                }
+            }
+        } catch (InsufficientStockException | ProductNotAvailableException e) {
+            if (event.getType() == OutboxEventType.RESERVE_STOCK) {
+                orderPersistenceService.rejectReservation(event, e.getMessage());
+            } else {
+                retryOrAbandon(event, items, e);
+            }
+        } catch (Exception e) {
+            retryOrAbandon(event, items, e);
+        }
+    }
+
+    private void retryOrAbandon(OutboxEvent event, List<StockItemDTO> items, Exception e) {
+        log.warn("Outbox event {} ({}) for order {} failed: {}",
+                event.getId(), event.getType(), event.getOrderId(), e.getMessage());
+        if (outboxService.scheduleRetry(event.getId(), e.getMessage())) {
+            return;
+        }
+        if (event.getType() == OutboxEventType.RESERVE_STOCK) {
+            orderPersistenceService.abandonReservation(event, items, e.getMessage());
+        } else {
+            // Stock stays held for a cancelled order until released manually
+            outboxService.markFailed(event.getId(), e.getMessage());
+            log.error("Giving up releasing stock for order {}: {}", event.getOrderId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package ma.enset.commandservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.commandservice.config.OutboxProperties;
+import ma.enset.commandservice.dto.StockItemDTO;
+import ma.enset.commandservice.entity.OutboxEvent;
+import ma.enset.commandservice.enums.OutboxEventType;
+import ma.enset.commandservice.enums.OutboxStatus;
+import ma.enset.commandservice.repository.OutboxEventRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private static final TypeReference<List<StockItemDTO>> ITEMS_TYPE = new TypeReference<>() {
+    };
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxProperties properties;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Deterministic per order and type, so Product Service applies each side effect at most once.
+     */
+    public static String idempotencyKey(String orderId, OutboxEventType type) {
+        return "order-" + orderId + "-" + type.name().toLowerCase();
+    }
+
+    /**
+     * Must join the transaction that writes the order so both commit or neither does.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public OutboxEvent enqueue(String orderId, OutboxEventType type, List<StockItemDTO> items) {
+        OutboxEvent event = outboxEventRepository.save(OutboxEvent.builder()
+                .orderId(orderId)
+                .type(type)
+                .idempotencyKey(idempotencyKey(orderId, type))
+                .payload(writeItems(items))
+                .nextAttemptAt(LocalDateTime.now())
+                .build());
+        log.debug("Queued {} for order {}", type, orderId);
+        return event;
+    }
+
+    /**
+     * Claim a batch of due events by pushing their next attempt past the lease,
+     * so other dispatcher instances skip them while this one delivers.
+     */
+    @Transactional
+    public List<OutboxEvent> claimDueEvents() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> events = outboxEventRepository.findDueForUpdate(
+                OutboxStatus.PENDING, now, Limit.of(properties.getBatchSize()));
+        events.forEach(event -> event.setNextAttemptAt(now.plus(properties.getLease())));
+        return events;
+    }
+
+    @Transactional
+    public void markSent(Long eventId) {
+        outboxEventRepository.findById(eventId).ifPresent(event -> {
+            event.setStatus(OutboxStatus.SENT);
+            event.setProcessedAt(LocalDateTime.now());
+            event.setAttempts(event.getAttempts() + 1);
+        });
+    }
+
+    @Transactional
+    public void markFailed(Long eventId, String error) {
+        outboxEventRepository.findById(eventId).ifPresent(event -> {
+            event.setStatus(OutboxStatus.FAILED);
+            event.setProcessedAt(LocalDateTime.now());
+            event.setAttempts(event.getAttempts() + 1);
+            event.setLastError(truncate(error));
+        });
+    }
+
+    /**
+     * Schedule another attempt with exponential backoff.
+     *
+     * @return false when the event has used up its attempts and should be abandoned
+     */
+    @Transactional
+    public boolean scheduleRetry(Long eventId, String error) {
+        OutboxEvent event = outboxEventRepository.findById(eventId).orElse(null);
+        if (event == null) {
+            return true;
+        }
+        int attempts = event.getAttempts() + 1;
+        if (attempts >= properties.getMaxAttempts()) {
+            return false;
+        }
+        event.setAttempts(attempts);
+        event.setLastError(truncate(error));
+        event.setNextAttemptAt(LocalDateTime.now().plus(backoff(attempts)));
+        return true;
+    }
+
+    public List<StockItemDTO> readItems(OutboxEvent event) {
+        try {
+            return objectMapper.readValue(event.getPayload(), ITEMS_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable outbox payload for event " + event.getId(), e);
+        }
+    }
+
+    private String writeItems(List<StockItemDTO> items) {
+        try {
+            return objectMapper.writeValueAsString(items);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize outbox payload", e);
+        }
+    }
+
+    private Duration backoff(int attempts) {
+        Duration delay = properties.getInitialBackoff().multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(properties.getMaxBackoff()) > 0 ? properties.getMaxBackoff() : delay;
+    }
+
+    private String truncate(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() > 1000 ? error.substring(0, 1000) : error;
+    }
+}
@@ -0,0 +1,64 @@
+-- Baseline of the schema previously created by ddl-auto, plus indexes for the order queries.
+-- IF NOT EXISTS lets this run against databases that ddl-auto already populated.
+
+create table if not exists orders (
+    id           varchar(255)   not null,
+    user_id      varchar(255)   not null,
+    username     varchar(255)   not null,
+    status       varchar(255)   not null,
+    total_amount numeric(12, 2) not null,
+    order_date   timestamp(6),
+    updated_at   timestamp(6),
+    primary key (id)
+);
+
+create table if not exists order_items (
+    id           bigint generated by default as identity,
+    order_id     varchar(255)   not null,
+    product_id   varchar(255)   not null,
+    product_name varchar(255),
+    quantity     integer        not null,
+    unit_price   numeric(10, 2) not null,
+    subtotal     numeric(12, 2) not null,
+    primary key (id),
+    constraint fk_order_items_order foreign key (order_id) references orders (id)
+);
+
+create table if not exists order_outbox (
+    id              bigint generated by default as identity,
+    order_id        varchar(255)  not null,
+    type            varchar(255)  not null,
+    idempotency_key varchar(100)  not null unique,
+    payload         text          not null,
+    status          varchar(255)  not null,
+    attempts        integer       not null,
+    next_attempt_at timestamp(6)  not null,
+    last_error      varchar(1000),
+    created_at      timestamp(6),
+    processed_at    timestamp(6),
+    primary key (id)
+);
+
+create table if not exists order_idempotency_keys (
+    id              bigint generated by default as identity,
+    user_id         varchar(255) not null,
+    idempotency_key varchar(255) not null,
+    request_hash    varchar(64)  not null,
+    order_id        varchar(255) not null,
+    created_at      timestamp(6),
+    primary key (id),
+    constraint uk_order_idempotency_keys_user_key unique (user_id, idempotency_key)
+);
+
+-- Order listings page newest first, with the id breaking ties (see OrderRepository)
+create index if not exists idx_orders_user_date on orders (user_id, order_date desc, id desc);
+create index if not exists idx_orders_status_date on orders (status, order_date desc, id desc);
+create index if not exists idx_orders_date on orders (order_date desc, id desc);
+
+create index if not exists idx_order_items_order on order_items (order_id);
+
+-- Dispatcher poll: due pending events in id order
+create index if not exists idx_order_outbox_due on order_outbox (status, next_attempt_at);
+
+-- Purge of expired keys
+create index if not exists idx_order_idempotency_keys_created on order_idempotency_keys (created_at);
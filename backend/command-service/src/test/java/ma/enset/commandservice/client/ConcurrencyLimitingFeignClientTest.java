@@ -0,0 +1,97 @@
+package ma.enset.commandservice.client;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.enset.commandservice.config.ConcurrencyLimitProperties;
+import ma.enset.commandservice.exception.ProductServiceOverloadedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConcurrencyLimitingFeignClientTest {
+
+    private static final Request REQUEST = Request.create(Request.HttpMethod.GET,
+            "http://product-service/api/products/1", Map.of(), null, StandardCharsets.UTF_8, null);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final CountDownLatch started = new CountDownLatch(2);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void callsOverTheLimitFailAtOnce() throws Exception {
+        properties.setInitialLimit(2);
+        properties.setMinLimit(1);
+        Client client = new ConcurrencyLimitingFeignClient(blocking(200), properties, meterRegistry);
+
+        Future<Response> first = executor.submit(() -> client.execute(REQUEST, new Request.Options()));
+        Future<Response> second = executor.submit(() -> client.execute(REQUEST, new Request.Options()));
+        assertThat(started.await(2, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> client.execute(REQUEST, new Request.Options()))
+                .isInstanceOf(ProductServiceOverloadedException.class);
+        assertThat(gauge("in-flight")).isEqualTo(2);
+        assertThat(meterRegistry.get(ConcurrencyLimitingFeignClient.METRIC + ".rejected").counter().count())
+                .isEqualTo(1);
+
+        release.countDown();
+        assertThat(first.get(2, TimeUnit.SECONDS).status()).isEqualTo(200);
+        assertThat(second.get(2, TimeUnit.SECONDS).status()).isEqualTo(200);
+        assertThat(gauge("in-flight")).isZero();
+    }
+
+    @Test
+    void sheddingByProductServiceLowersTheLimit() throws Exception {
+        properties.setInitialLimit(2);
+        properties.setMinLimit(1);
+        release.countDown();
+        Client client = new ConcurrencyLimitingFeignClient(blocking(503), properties, meterRegistry);
+
+        client.execute(REQUEST, new Request.Options());
+        client.execute(REQUEST, new Request.Options());
+
+        assertThat(gauge("limit")).isEqualTo(1);
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(ConcurrencyLimitingFeignClient.METRIC + "." + name).gauge().value();
+    }
+
+    /**
+     * Answers with {@code status} once {@link #release} is counted down.
+     */
+    private Client blocking(int status) {
+        return (request, options) -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Response.builder()
+                    .request(request)
+                    .status(status)
+                    .headers(Map.of())
+                    .build();
+        };
+    }
+}
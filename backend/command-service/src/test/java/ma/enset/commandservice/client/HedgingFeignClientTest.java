@@ -0,0 +1,184 @@
+package ma.enset.commandservice.client;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.enset.commandservice.config.HedgingProperties;
+import ma.enset.common.loadbalancer.LatencyAwareLoadBalancer;
+import ma.enset.common.loadbalancer.LoadBalancerStats;
+import ma.enset.common.loadbalancer.LoadBalancingProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+class HedgingFeignClientTest {
+
+    private static final ServiceInstance SLOW = instance("10.0.0.1");
+    private static final ServiceInstance FAST = instance("10.0.0.2");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LoadBalancerStats stats = new LoadBalancerStats(new LoadBalancingProperties());
+    private final HedgingProperties properties = new HedgingProperties();
+    private final LoadBalancerClient loadBalancerClient = mock(LoadBalancerClient.class);
+    private final Client loadBalanced = mock(Client.class);
+    private final AtomicInteger calls = new AtomicInteger();
+    private final CountDownLatch slowInterrupted = new CountDownLatch(1);
+    private final CountDownLatch errorResponseClosed = new CountDownLatch(1);
+    private volatile int fastStatus = 200;
+    private HedgingFeignClient client;
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+    }
+
+    @Test
+    void slowReadIsHedgedToAnotherInstanceAndTheSlowCallInterrupted() throws Exception {
+        properties.setBudgetRatio(1);
+        client = client();
+
+        Response response = client.execute(get("/api/products/1"), new Request.Options());
+
+        assertThat(body(response)).isEqualTo("10.0.0.2");
+        assertThat(calls).hasValue(2);
+        assertThat(slowInterrupted.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(count("sent")).isEqualTo(1);
+        assertThat(count("won")).isEqualTo(1);
+    }
+
+    @Test
+    void serverErrorOfTheHedgeWaitsForTheSlowCall() throws Exception {
+        properties.setBudgetRatio(1);
+        fastStatus = 503;
+        client = client();
+
+        Response response = client.execute(get("/api/products/1"), new Request.Options());
+
+        assertThat(response.status()).isEqualTo(200);
+        assertThat(body(response)).isEqualTo("10.0.0.1");
+        assertThat(slowInterrupted.getCount()).isEqualTo(1);
+        assertThat(errorResponseClosed.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(count("sent")).isEqualTo(1);
+        assertThat(meterRegistry.find(HedgingFeignClient.METRIC).tag("outcome", "won").counter()).isNull();
+    }
+
+    @Test
+    void hedgesStopWhenTheBudgetIsSpent() throws Exception {
+        client = client();
+
+        Response response = client.execute(get("/api/products/1"), new Request.Options());
+
+        assertThat(body(response)).isEqualTo("10.0.0.1");
+        assertThat(calls).hasValue(1);
+        assertThat(count("budget-exhausted")).isEqualTo(1);
+    }
+
+    @Test
+    void otherCallsGoThroughTheLoadBalancedClient() throws Exception {
+        client = client();
+        Request request = Request.create(Request.HttpMethod.POST, "http://PRODUCT-SERVICE/api/products/1/reserve",
+                Map.of(), new byte[0], StandardCharsets.UTF_8, null);
+        given(loadBalanced.execute(eq(request), any())).willReturn(response(request, "lb"));
+
+        assertThat(body(client.execute(request, new Request.Options()))).isEqualTo("lb");
+        assertThat(calls).hasValue(0);
+        assertThat(meterRegistry.find(HedgingFeignClient.METRIC).counters()).isEmpty();
+    }
+
+    private HedgingFeignClient client() {
+        properties.setMaxDelay(Duration.ofMillis(50));
+        properties.setPaths(List.of("/api/products/{id}"));
+        given(loadBalancerClient.choose(eq("PRODUCT-SERVICE"), any())).willAnswer(invocation -> {
+            org.springframework.cloud.client.loadbalancer.Request<RequestDataContext> request = invocation.getArgument(1);
+            Object excluded = request.getContext().getClientRequest().getAttributes()
+                    .get(LatencyAwareLoadBalancer.EXCLUDED_INSTANCES_ATTR);
+            return excluded instanceof Set<?> set && set.contains("10.0.0.1:8081") ? FAST : SLOW;
+        });
+        given(loadBalancerClient.reconstructURI(any(), any())).willAnswer(invocation -> {
+            ServiceInstance instance = invocation.getArgument(0);
+            URI original = invocation.getArgument(1);
+            return URI.create("http://" + instance.getHost() + ":" + instance.getPort() + original.getRawPath());
+        });
+        return new HedgingFeignClient(loadBalanced, this::instanceCall, loadBalancerClient, stats, properties,
+                meterRegistry);
+    }
+
+    /**
+     * Stands in for the instances: the slow one answers after 300 ms, the fast one immediately with
+     * {@link #fastStatus}.
+     */
+    private Response instanceCall(Request request, Request.Options options) throws IOException {
+        calls.incrementAndGet();
+        String host = URI.create(request.url()).getHost();
+        if (host.equals(SLOW.getHost())) {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                slowInterrupted.countDown();
+                throw new IOException("interrupted", e);
+            }
+        } else if (fastStatus >= 500) {
+            return Response.builder()
+                    .request(request)
+                    .status(fastStatus)
+                    .headers(Map.of())
+                    .body(new ByteArrayInputStream(new byte[0]) {
+                        @Override
+                        public void close() {
+                            errorResponseClosed.countDown();
+                        }
+                    }, 0)
+                    .build();
+        }
+        return response(request, host);
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.get(HedgingFeignClient.METRIC)
+                .tags("endpoint", "/api/products/{id}", "outcome", outcome).counter().count();
+    }
+
+    private static Request get(String path) {
+        return Request.create(Request.HttpMethod.GET, "http://PRODUCT-SERVICE" + path, Map.of(), null,
+                StandardCharsets.UTF_8, null);
+    }
+
+    private static Response response(Request request, String body) {
+        return Response.builder()
+                .request(request)
+                .status(200)
+                .headers(Map.of())
+                .body(body, StandardCharsets.UTF_8)
+                .build();
+    }
+
+    private static String body(Response response) throws IOException {
+        return new String(response.body().asInputStream().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static ServiceInstance instance(String host) {
+        return new DefaultServiceInstance(host + ":8081", "PRODUCT-SERVICE", host, 8081, false);
+    }
+}
@@ -0,0 +1,115 @@
+package ma.enset.commandservice.client;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductCallExecutorTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final ProductCallExecutor executor = new ProductCallExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void resultsKeepTheOrderOfTheTasks() {
+        List<Callable<String>> tasks = List.of(
+                delayed("first", 50),
+                delayed("second", 0),
+                delayed("third", 20));
+
+        assertThat(executor.invokeAll(tasks, 3, TIMEOUT)).containsExactly("first", "second", "third");
+    }
+
+    @Test
+    void firstFailureIsThrownOnceEveryTaskHasFinished() {
+        AtomicInteger finished = new AtomicInteger();
+        IllegalArgumentException failure = new IllegalArgumentException("p-1 failed");
+        List<Callable<String>> tasks = List.of(
+                () -> {
+                    throw failure;
+                },
+                () -> {
+                    Thread.sleep(100);
+                    finished.incrementAndGet();
+                    return "slow";
+                },
+                () -> {
+                    throw new IllegalStateException("p-3 failed");
+                });
+
+        assertThatThrownBy(() -> executor.invokeAll(tasks, 3, TIMEOUT)).isSameAs(failure);
+        assertThat(finished).hasValue(1);
+    }
+
+    @Test
+    void checkedFailuresAreWrapped() {
+        List<Callable<String>> tasks = List.of(() -> {
+            throw new IOException("connection reset");
+        });
+
+        assertThatThrownBy(() -> executor.invokeAll(tasks, 1, TIMEOUT))
+                .isInstanceOf(IllegalStateException.class)
+                .hasCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    void timeoutCancelsTheCallsStillRunning() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        List<Callable<String>> tasks = List.of(
+                delayed("fast", 0),
+                () -> {
+                    try {
+                        Thread.sleep(10_000);
+                        return "stuck";
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                        throw e;
+                    }
+                });
+
+        assertThatThrownBy(() -> executor.invokeAll(tasks, 2, Duration.ofMillis(100)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("did not complete within");
+        assertThat(interrupted.await(2, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void noMoreThanMaxConcurrencyCallsRunAtOnce() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<Callable<Integer>> tasks = IntStream.range(0, 12)
+                .mapToObj(i -> (Callable<Integer>) () -> {
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(20);
+                    running.decrementAndGet();
+                    return i;
+                })
+                .toList();
+
+        assertThat(executor.invokeAll(tasks, 3, TIMEOUT)).hasSize(12);
+        assertThat(peak.get()).isBetween(1, 3);
+    }
+
+    private static Callable<String> delayed(String value, long millis) {
+        return () -> {
+            Thread.sleep(millis);
+            return value;
+        };
+    }
+}
@@ -0,0 +1,76 @@
+package ma.enset.commandservice.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.enset.commandservice.config.ProductCacheProperties;
+import ma.enset.commandservice.dto.CatalogChangesDTO;
+import ma.enset.commandservice.dto.ProductDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ProductCatalogCacheTest {
+
+    private final ProductServiceClient client = mock(ProductServiceClient.class);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ProductCatalogCache cache;
+
+    @BeforeEach
+    void setUp() {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("meterRegistry", meterRegistry);
+        cache = new ProductCatalogCache(client, new ProductCacheProperties(), beans.getBeanProvider(MeterRegistry.class));
+
+        given(client.getCatalogChanges(isNull())).willReturn(new CatalogChangesDTO(40, List.of()));
+        cache.pollCatalogChanges();
+    }
+
+    @Test
+    void changedProductsAreInvalidatedIndividually() {
+        given(client.getProductById("p-1")).willReturn(product("p-1", "10.00"));
+        given(client.getProductById("p-2")).willReturn(product("p-2", "20.00"));
+        cache.getProduct("p-1");
+        cache.getProduct("p-2");
+
+        given(client.getCatalogChanges(any())).willReturn(new CatalogChangesDTO(41, List.of("p-1")));
+        cache.pollCatalogChanges();
+        given(client.getProductById("p-1")).willReturn(product("p-1", "12.00"));
+
+        assertThat(cache.getProduct("p-1").price()).isEqualByComparingTo("12.00");
+        assertThat(cache.getProduct("p-2").price()).isEqualByComparingTo("20.00");
+        verify(client, times(2)).getProductById("p-1");
+        verify(client, times(1)).getProductById("p-2");
+        // Each poll continues from the cursor returned by the previous one
+        verify(client).getCatalogChanges(40L);
+        cache.pollCatalogChanges();
+        verify(client).getCatalogChanges(41L);
+    }
+
+    @Test
+    void stockIsNeverCachedAndStatisticsArePublished() {
+        given(client.getProductById("p-1")).willReturn(product("p-1", "10.00"));
+
+        assertThat(cache.getProduct("p-1").stockQuantity()).isNull();
+        cache.getProduct("p-1");
+
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "product-catalog").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "product-catalog").tag("result", "miss")
+                .functionCounter().count()).isEqualTo(1.0);
+    }
+
+    private ProductDTO product(String id, String price) {
+        return new ProductDTO(id, "Product " + id, null, new BigDecimal(price), 42);
+    }
+}
@@ -0,0 +1,177 @@
+package ma.enset.commandservice.datasource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.enset.commandservice.entity.Order;
+import ma.enset.commandservice.repository.OrderRepository;
+import ma.enset.common.datasource.ReadReplicaAutoConfiguration;
+import ma.enset.common.datasource.ReadReplicaProperties;
+import ma.enset.common.datasource.ReadYourWrites;
+import ma.enset.common.datasource.ReplicaRoutingDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The replica target points at the primary's H2 database, standing in for a replica of it; the counters show
+ * which target served each read.
+ */
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:orders-routing;DB_CLOSE_DELAY=-1",
+        "datasource.replicas.enabled=true",
+        "datasource.replicas.targets[0].name=replica",
+        "datasource.replicas.targets[0].url=jdbc:h2:mem:orders-routing;DB_CLOSE_DELAY=-1",
+        "datasource.replicas.targets[0].username=sa",
+        "datasource.replicas.targets[1].name=unreachable",
+        "datasource.replicas.targets[1].url=jdbc:h2:mem:no-such-replica;IFEXISTS=TRUE",
+        "datasource.replicas.targets[1].connection-timeout=250ms"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ImportAutoConfiguration(ReadReplicaAutoConfiguration.class)
+@Import(ReadReplicaRoutingTest.Metrics.class)
+class ReadReplicaRoutingTest {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Autowired
+    private ReadReplicaProperties properties;
+
+    @Autowired
+    private DataSource primaryDataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void endRequest() {
+        readYourWrites.end();
+    }
+
+    @Test
+    void readOnlyTransactionsUseTheReplicaThatIsUp() {
+        assertThat(meterRegistry.get("datasource.replica.healthy").tag("replica", "replica").gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get("datasource.replica.healthy").tag("replica", "unreachable").gauge().value()).isZero();
+
+        double before = routed("replica");
+        readOnly();
+        readOnly();
+        assertThat(routed("replica")).isEqualTo(before + 2);
+        assertThat(routed("unreachable")).isZero();
+    }
+
+    @Test
+    void readsAfterAWriteUseThePrimaryForThatUser() {
+        readYourWrites.begin("alice", false);
+        readWrite();
+        double primary = routed(ReplicaRoutingDataSource.PRIMARY);
+        readOnly();
+        assertThat(routed(ReplicaRoutingDataSource.PRIMARY)).isEqualTo(primary + 1);
+        readYourWrites.end();
+
+        readYourWrites.begin("alice", false);
+        readOnly();
+        assertThat(routed(ReplicaRoutingDataSource.PRIMARY)).isEqualTo(primary + 2);
+        readYourWrites.end();
+
+        double replica = routed("replica");
+        readYourWrites.begin("bob", false);
+        readOnly();
+        assertThat(routed("replica")).isEqualTo(replica + 1);
+        readYourWrites.end();
+
+        readYourWrites.begin("bob", true);
+        readOnly();
+        assertThat(routed(ReplicaRoutingDataSource.PRIMARY)).isEqualTo(primary + 3);
+    }
+
+    @Test
+    void failingReplicaFallsBackToThePrimaryUntilItRecovers() throws SQLException {
+        FlakyDataSource flaky = new FlakyDataSource(primaryDataSource);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primaryDataSource, Map.of("flaky", flaky),
+                readYourWrites, properties, registry);
+
+        flaky.down = true;
+        routing.getConnection().close();
+        routing.getConnection().close();
+        assertThat(registry.get("datasource.routing.connections").tag("target", "primary").counter().count()).isEqualTo(2);
+        assertThat(registry.get("datasource.replica.healthy").gauge().value()).isZero();
+
+        flaky.down = false;
+        routing.checkReplicas();
+        routing.getConnection().close();
+        assertThat(registry.get("datasource.routing.connections").tag("target", "flaky").counter().count()).isEqualTo(1);
+    }
+
+    private void readOnly() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        transaction.executeWithoutResult(status -> orderRepository.count());
+    }
+
+    private void readWrite() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> orderRepository.save(Order.builder()
+                .userId("alice")
+                .username("alice")
+                .totalAmount(new BigDecimal("10.00"))
+                .build()));
+    }
+
+    private double routed(String target) {
+        return meterRegistry.get("datasource.routing.connections").tag("target", target).counter().count();
+    }
+
+    @TestConfiguration
+    static class Metrics {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    private static class FlakyDataSource extends DelegatingDataSource {
+
+        private volatile boolean down;
+
+        FlakyDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (down) {
+                throw new SQLException("replica unreachable");
+            }
+            return super.getConnection();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ma.enset.commandservice.loadbalancer;
+
+import ma.enset.common.loadbalancer.LatencyAwareLoadBalancer;
+import ma.enset.common.loadbalancer.LoadBalancerStats;
+import ma.enset.common.loadbalancer.LoadBalancingProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.LinkedMultiValueMap;
+
+import java.net.URI;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoadBalancerStatsLifecycleTest {
+
+    private final ServiceInstance healthy = instance("10.0.0.1");
+    private final ServiceInstance failing = instance("10.0.0.2");
+    private final LoadBalancerStats stats = new LoadBalancerStats(new LoadBalancingProperties());
+    private final LoadBalancerStatsLifecycle lifecycle = new LoadBalancerStatsLifecycle(stats);
+    private final LatencyAwareLoadBalancer loadBalancer = new LatencyAwareLoadBalancer(
+            ServiceInstanceListSuppliers.toProvider("product-service", healthy, failing), "product-service", stats);
+
+    @Test
+    void callsAreRecordedPerInstance() {
+        call(healthy, HttpStatus.OK);
+        call(healthy, HttpStatus.NOT_FOUND);
+
+        LoadBalancerStats.Snapshot snapshot = stats.snapshot().get("product-service").get("10.0.0.1:8081");
+        assertThat(snapshot.requests()).isEqualTo(2);
+        assertThat(snapshot.failures()).isZero();
+        assertThat(snapshot.outstanding()).isZero();
+        assertThat(snapshot.latencyMillis()).isNotNull();
+    }
+
+    @Test
+    void instanceAnsweringWithServerErrorsIsAvoidedEvenWhenFast() {
+        call(healthy, HttpStatus.OK);
+        call(failing, HttpStatus.SERVICE_UNAVAILABLE);
+
+        assertThat(stats.snapshot().get("product-service").get("10.0.0.2:8081").failures()).isEqualTo(1);
+        for (int i = 0; i < 100; i++) {
+            assertThat(loadBalancer.choose(new DefaultRequest<>()).block().getServer()).isEqualTo(healthy);
+        }
+    }
+
+    private void call(ServiceInstance instance, HttpStatus status) {
+        RequestData requestData = new RequestData(HttpMethod.GET, URI.create("http://product-service/api/products/1"),
+                new HttpHeaders(), new LinkedMultiValueMap<>(), Map.of());
+        Request<Object> request = new DefaultRequest<>(new RequestDataContext(requestData));
+        Response<ServiceInstance> lbResponse = new DefaultResponse(instance);
+        lifecycle.onStart(request);
+        lifecycle.onStartRequest(request, lbResponse);
+        ResponseData responseData = new ResponseData(status, new HttpHeaders(), new LinkedMultiValueMap<>(),
+                requestData);
+        lifecycle.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS, request, lbResponse,
+                responseData));
+    }
+
+    private static ServiceInstance instance(String host) {
+        return new DefaultServiceInstance(host + ":8081", "PRODUCT-SERVICE", host, 8081, false);
+    }
+}
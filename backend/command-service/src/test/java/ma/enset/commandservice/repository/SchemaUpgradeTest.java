@@ -0,0 +1,63 @@
+package ma.enset.commandservice.repository;
+
+import ma.enset.commandservice.entity.Order;
+import ma.enset.commandservice.entity.OrderItem;
+import ma.enset.commandservice.enums.OrderStatus;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A database that ddl-auto built before the migrations existed is baselined, migrated in place and then
+ * accepted by Hibernate's validation.
+ */
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:orders-upgrade;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:db/ddl-auto-baseline.sql'",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.flyway.baseline-on-migrate=true",
+        "spring.flyway.baseline-version=0"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class SchemaUpgradeTest {
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Test
+    void ddlAutoSchemaIsMigratedInPlace() {
+        assertThat(Arrays.stream(flyway.info().applied()).map(MigrationInfo::getVersion).map(String::valueOf))
+                .containsExactly("0", "1", "2");
+        assertThat(flyway.info().pending()).isEmpty();
+
+        assertThat(orderRepository.findById("legacy-order")).hasValueSatisfying(order ->
+                assertThat(order.getItems()).extracting(OrderItem::getId).containsExactly(1L));
+
+        Order order = Order.builder()
+                .userId("user-1")
+                .username("alice")
+                .status(OrderStatus.PENDING)
+                .totalAmount(new BigDecimal("10.00"))
+                .build();
+        order.addItem(OrderItem.builder()
+                .productId("p-2")
+                .quantity(1)
+                .unitPrice(new BigDecimal("10.00"))
+                .build());
+        orderRepository.saveAndFlush(order);
+
+        // New item ids continue past the ones ddl-auto's identity column handed out
+        assertThat(order.getItems().get(0).getId()).isGreaterThan(1L);
+    }
+}
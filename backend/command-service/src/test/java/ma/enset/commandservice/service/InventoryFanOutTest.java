@@ -0,0 +1,101 @@
+package ma.enset.commandservice.service;
+
+import ma.enset.commandservice.client.ProductCallExecutor;
+import ma.enset.commandservice.client.ProductCatalogCache;
+import ma.enset.commandservice.client.ProductServiceClient;
+import ma.enset.commandservice.config.ProductCallProperties;
+import ma.enset.commandservice.dto.ProductAvailabilityDTO;
+import ma.enset.commandservice.dto.ProductDTO;
+import ma.enset.commandservice.dto.StockItemDTO;
+import ma.enset.commandservice.enums.ProductCallMode;
+import ma.enset.commandservice.exception.ProductNotAvailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Availability checks in CONCURRENT mode: one Product Service call per product, fanned out on virtual threads.
+ */
+class InventoryFanOutTest {
+
+    private final ProductServiceClient client = mock(ProductServiceClient.class);
+    private final ProductCatalogCache catalogCache = mock(ProductCatalogCache.class);
+    private final ProductCallExecutor executor = new ProductCallExecutor();
+    private final ProductCallProperties properties = new ProductCallProperties();
+    private InventoryService inventoryService;
+
+    @BeforeEach
+    void setUp() {
+        properties.setMode(ProductCallMode.CONCURRENT);
+        properties.setTimeout(Duration.ofSeconds(2));
+        inventoryService = new InventoryServiceImpl(client, executor, properties, catalogCache);
+
+        given(catalogCache.getProduct("p-1")).willReturn(product("p-1"));
+        given(catalogCache.getProduct("p-2")).willReturn(product("p-2"));
+        given(catalogCache.getProduct("missing")).willThrow(new ProductNotAvailableException("missing"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void eachProductIsReportedOnItsOwn() {
+        given(client.checkStock("p-1", 3)).willReturn(true);
+        given(client.checkStock("p-2", 1)).willReturn(false);
+
+        Map<String, ProductAvailabilityDTO> availability = inventoryService.checkAvailability(List.of(
+                new StockItemDTO("p-1", 1),
+                new StockItemDTO("p-2", 1),
+                new StockItemDTO("missing", 1),
+                new StockItemDTO("p-1", 2)));
+
+        assertThat(availability).containsOnlyKeys("p-1", "p-2", "missing");
+        assertThat(availability.get("p-1").available()).isTrue();
+        assertThat(availability.get("p-2").available()).isFalse();
+        assertThat(availability.get("missing").found()).isFalse();
+    }
+
+    @Test
+    void aFailedCallFailsTheWholeCheck() {
+        given(client.checkStock("p-1", 1)).willReturn(true);
+        given(client.checkStock("p-2", 1)).willThrow(new IllegalStateException("connection refused"));
+
+        assertThatThrownBy(() -> inventoryService.checkAvailability(List.of(
+                new StockItemDTO("p-1", 1),
+                new StockItemDTO("p-2", 1))))
+                .isInstanceOf(ProductNotAvailableException.class)
+                .hasRootCauseMessage("connection refused");
+    }
+
+    @Test
+    void aCallOutlastingTheTimeoutFailsTheWholeCheck() {
+        properties.setTimeout(Duration.ofMillis(100));
+        given(client.checkStock("p-1", 1)).willReturn(true);
+        given(client.checkStock("p-2", 1)).willAnswer(invocation -> {
+            Thread.sleep(5_000);
+            return true;
+        });
+
+        assertThatThrownBy(() -> inventoryService.checkAvailability(List.of(
+                new StockItemDTO("p-1", 1),
+                new StockItemDTO("p-2", 1))))
+                .isInstanceOf(ProductNotAvailableException.class)
+                .hasRootCauseMessage("Product Service calls did not complete within PT0.1S");
+    }
+
+    private static ProductDTO product(String id) {
+        return new ProductDTO(id, "Product " + id, null, new BigDecimal("10.00"), null);
+    }
+}
@@ -0,0 +1,118 @@
+package ma.enset.commandservice.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ma.enset.commandservice.entity.Order;
+import ma.enset.commandservice.entity.OrderItem;
+import ma.enset.commandservice.enums.ExportFormat;
+import ma.enset.commandservice.enums.OrderStatus;
+import ma.enset.commandservice.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:orders-export;DB_CLOSE_DELAY=-1"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(OrderExportService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class OrderExportTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 3, 1, 10, 0);
+
+    @Autowired
+    private OrderExportService orderExportService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final List<String> orderIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        orderRepository.deleteAll();
+        orderIds.clear();
+        orderIds.add(saveOrder(OrderStatus.CONFIRMED, BASE, "Keyboard", "Mouse"));
+        orderIds.add(saveOrder(OrderStatus.CANCELLED, BASE.plusDays(1), "Monitor"));
+        orderIds.add(saveOrder(OrderStatus.CONFIRMED, BASE.plusDays(2), "=SUM(A1:A9)", "Cable, \"braided\""));
+    }
+
+    @Test
+    void ndjsonWritesOneOrderPerLineWithItsItems() throws IOException {
+        List<String> lines = export(ExportFormat.NDJSON, null, null, null);
+
+        assertThat(lines).hasSize(3);
+        List<JsonNode> orders = new ArrayList<>();
+        for (String line : lines) {
+            orders.add(objectMapper.readTree(line));
+        }
+        assertThat(orders).extracting(order -> order.get("id").asText()).containsExactlyElementsOf(orderIds);
+        assertThat(orders).extracting(order -> order.get("items").size()).containsExactly(2, 1, 2);
+        assertThat(orders.get(0).get("items").get(1).get("productName").asText()).isEqualTo("Mouse");
+    }
+
+    @Test
+    void csvAppliesStatusAndDateFiltersAndEscapesFields() throws IOException {
+        List<String> lines = export(ExportFormat.CSV, OrderStatus.CONFIRMED, BASE.plusHours(1), BASE.plusDays(3));
+
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(0)).isEqualTo(OrderExportService.CSV_HEADER);
+        assertThat(lines.subList(1, 3)).allMatch(line -> line.startsWith(orderIds.get(2) + ","));
+        assertThat(lines.get(1)).contains(",'=SUM(A1:A9),");
+        assertThat(lines.get(2)).contains(",\"Cable, \"\"braided\"\"\",");
+    }
+
+    private List<String> export(ExportFormat format, OrderStatus status, LocalDateTime from, LocalDateTime to)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        orderExportService.export(format, status, from, to, out);
+        return out.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+
+    private String saveOrder(OrderStatus status, LocalDateTime orderDate, String... productNames) {
+        Order order = Order.builder()
+                .userId("exported")
+                .username("exported")
+                .status(status)
+                .totalAmount(new BigDecimal("10.00").multiply(BigDecimal.valueOf(productNames.length)))
+                .build();
+        for (String productName : productNames) {
+            order.addItem(OrderItem.builder()
+                    .productId("p-" + productName.length())
+                    .productName(productName)
+                    .quantity(1)
+                    .unitPrice(new BigDecimal("10.00"))
+                    .build());
+        }
+        String id = orderRepository.save(order).getId();
+        jdbcTemplate.update("update orders set order_date = ? where id = ?", orderDate, id);
+        return id;
+    }
+}
@@ -0,0 +1,137 @@
+package ma.enset.commandservice.service;
+
+import ma.enset.commandservice.client.ProductCallExecutor;
+import ma.enset.commandservice.client.ProductCatalogCache;
+import ma.enset.commandservice.client.ProductServiceClient;
+import ma.enset.commandservice.config.IdempotencyProperties;
+import ma.enset.commandservice.config.OrderPageProperties;
+import ma.enset.commandservice.config.OutboxProperties;
+import ma.enset.commandservice.config.ProductCacheProperties;
+import ma.enset.commandservice.config.ProductCallProperties;
+import ma.enset.commandservice.dto.OrderItemRequestDTO;
+import ma.enset.commandservice.dto.OrderRequestDTO;
+import ma.enset.commandservice.dto.OrderResponseDTO;
+import ma.enset.commandservice.dto.ProductAvailabilityDTO;
+import ma.enset.commandservice.dto.StockBatchRequestDTO;
+import ma.enset.commandservice.exception.IdempotencyKeyMismatchException;
+import ma.enset.commandservice.mapper.OrderMapper;
+import ma.enset.commandservice.mapper.OrderMapperImpl;
+import ma.enset.commandservice.repository.IdempotencyRecordRepository;
+import ma.enset.commandservice.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:orders-idempotency;DB_CLOSE_DELAY=-1",
+        "order.product-cache.enabled=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({OrderServiceImpl.class, OrderPersistenceService.class, OutboxService.class, IdempotencyService.class,
+        InventoryServiceImpl.class, ProductCallExecutor.class, ProductCatalogCache.class, OrderMapperImpl.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@EnableConfigurationProperties({ProductCallProperties.class, OutboxProperties.class, IdempotencyProperties.class,
+        ProductCacheProperties.class, OrderPageProperties.class})
+class OrderIdempotencyTest {
+
+    private static final OrderRequestDTO CART = new OrderRequestDTO(List.of(new OrderItemRequestDTO("p-1", 2)));
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private IdempotencyProperties idempotencyProperties;
+
+    @MockitoBean
+    private ProductServiceClient productServiceClient;
+
+    @Test
+    void concurrentDuplicatesWaitForTheFirstRequest() throws Exception {
+        CountDownLatch firstCallStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstCall = new CountDownLatch(1);
+        given(productServiceClient.checkAvailability(any(StockBatchRequestDTO.class))).willAnswer(invocation -> {
+            firstCallStarted.countDown();
+            releaseFirstCall.await(10, TimeUnit.SECONDS);
+            return List.of(new ProductAvailabilityDTO("p-1", true, "Keyboard", new BigDecimal("25.00"), 100, 2, true));
+        });
+
+        ExecutorService clients = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<OrderResponseDTO>> responses = new ArrayList<>();
+            responses.add(clients.submit(() -> orderService.createOrder(CART, "user-1", "alice", "checkout-1")));
+            assertThat(firstCallStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            for (int i = 0; i < 3; i++) {
+                responses.add(clients.submit(() -> orderService.createOrder(CART, "user-1", "alice", "checkout-1")));
+            }
+            releaseFirstCall.countDown();
+
+            String orderId = responses.getFirst().get(10, TimeUnit.SECONDS).id();
+            for (Future<OrderResponseDTO> response : responses) {
+                assertThat(response.get(10, TimeUnit.SECONDS).id()).isEqualTo(orderId);
+            }
+        } finally {
+            releaseFirstCall.countDown();
+            clients.shutdownNow();
+        }
+
+        assertThat(orderRepository.findByUserIdOrderByOrderDateDesc("user-1")).hasSize(1);
+        verify(productServiceClient, times(1)).checkAvailability(any(StockBatchRequestDTO.class));
+    }
+
+    @Test
+    void storedKeyIsReplayedAfterRestartWithoutCallingProductService() {
+        given(productServiceClient.checkAvailability(any(StockBatchRequestDTO.class))).willReturn(
+                List.of(new ProductAvailabilityDTO("p-1", true, "Keyboard", new BigDecimal("25.00"), 100, 2, true)));
+        OrderResponseDTO first = orderService.createOrder(CART, "user-2", "bob", "checkout-2");
+
+        // A fresh service has an empty in-memory cache, as after a restart
+        IdempotencyService restarted = new IdempotencyService(
+                idempotencyRecordRepository, orderRepository, orderMapper, idempotencyProperties);
+        OrderResponseDTO replayed = restarted.execute("user-2", "checkout-2", IdempotencyService.requestHash(CART),
+                () -> {
+                    throw new AssertionError("order must not be created twice");
+                });
+
+        assertThat(replayed.id()).isEqualTo(first.id());
+        verify(productServiceClient, times(1)).checkAvailability(any(StockBatchRequestDTO.class));
+
+        OrderRequestDTO otherCart = new OrderRequestDTO(List.of(new OrderItemRequestDTO("p-1", 3)));
+        assertThatThrownBy(() -> orderService.createOrder(otherCart, "user-2", "bob", "checkout-2"))
+                .isInstanceOf(IdempotencyKeyMismatchException.class);
+    }
+}
@@ -0,0 +1,95 @@
+package ma.enset.commandservice.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.commandservice.entity.Order;
+import ma.enset.commandservice.entity.OrderItem;
+import ma.enset.commandservice.repository.OrderRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Statements and latency of saving an order with 50 items, each order in its own transaction as in
+ * {@code createOrder}. Run with {@code mvn test -Dtest=OrderInsertBenchmarkTest -Dbenchmarks=true}.
+ * H2 runs in process, so the latency leaves out the network round trip every statement costs in production.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:orders-insert;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=20",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderInsertBenchmarkTest {
+
+    private static final int ITEMS_PER_ORDER = 50;
+    private static final int WARMUP_ORDERS = 200;
+    private static final int ORDERS = 1_000;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void measureOrderInserts() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < WARMUP_ORDERS; i++) {
+            transaction.executeWithoutResult(status -> orderRepository.save(order()));
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        long start = System.nanoTime();
+        for (int i = 0; i < ORDERS; i++) {
+            transaction.executeWithoutResult(status -> orderRepository.save(order()));
+        }
+        double millisPerOrder = (System.nanoTime() - start) / 1_000_000.0 / ORDERS;
+        double statementsPerOrder = (double) statistics.getPrepareStatementCount() / ORDERS;
+
+        log.warn("Saving an order with {} items: {} statements, {} ms per order", ITEMS_PER_ORDER,
+                String.format("%.2f", statementsPerOrder), String.format("%.3f", millisPerOrder));
+        assertThat(statementsPerOrder).isLessThan(ITEMS_PER_ORDER / 5.0);
+    }
+
+    private static Order order() {
+        Order order = Order.builder()
+                .userId("bench")
+                .username("bench")
+                .totalAmount(new BigDecimal("500.00"))
+                .build();
+        for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+            order.addItem(OrderItem.builder()
+                    .productId("p-" + i)
+                    .productName("Product " + i)
+                    .quantity(1)
+                    .unitPrice(new BigDecimal("10.00"))
+                    .build());
+        }
+        return order;
+    }
+}
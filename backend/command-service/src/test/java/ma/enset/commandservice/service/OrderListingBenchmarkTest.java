@@ -0,0 +1,157 @@
+package ma.enset.commandservice.service;
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.commandservice.client.ProductCallExecutor;
+import ma.enset.commandservice.client.ProductCatalogCache;
+import ma.enset.commandservice.client.ProductServiceClient;
+import ma.enset.commandservice.config.IdempotencyProperties;
+import ma.enset.commandservice.config.OrderPageProperties;
+import ma.enset.commandservice.config.OutboxProperties;
+import ma.enset.commandservice.config.ProductCacheProperties;
+import ma.enset.commandservice.config.ProductCallProperties;
+import ma.enset.commandservice.dto.OrderResponseDTO;
+import ma.enset.commandservice.entity.Order;
+import ma.enset.commandservice.entity.OrderItem;
+import ma.enset.commandservice.mapper.OrderMapper;
+import ma.enset.commandservice.mapper.OrderMapperImpl;
+import ma.enset.commandservice.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Heap allocated and time taken by one 1000-order page, read as managed entities mapped by {@link OrderMapper}
+ * (the former listing path) and read as projections by the service. Run with
+ * {@code mvn test -Dtest=OrderListingBenchmarkTest -Dbenchmarks=true}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:orders-listing;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.ma.enset.commandservice=WARN",
+        "order.product-cache.enabled=false",
+        "order.pagination.max-limit=1000"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({OrderServiceImpl.class, OrderPersistenceService.class, OutboxService.class, IdempotencyService.class,
+        InventoryServiceImpl.class, ProductCallExecutor.class, ProductCatalogCache.class, OrderMapperImpl.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@EnableConfigurationProperties({ProductCallProperties.class, OutboxProperties.class, IdempotencyProperties.class,
+        ProductCacheProperties.class, OrderPageProperties.class})
+class OrderListingBenchmarkTest {
+
+    private static final int PAGE_SIZE = 1_000;
+    private static final int ITEMS_PER_ORDER = 3;
+    private static final int WARMUP_RUNS = 30;
+    private static final int RUNS = 50;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private ProductServiceClient productServiceClient;
+
+    @Test
+    void compareListingAllocation() {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE + 1; i++) {
+            orders.add(order(i));
+        }
+        orderRepository.saveAll(orders);
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        Supplier<List<OrderResponseDTO>> entities = () -> readOnly.execute(status -> orderMapper.toResponseDTOList(
+                entityManager.createQuery("select o from Order o order by o.orderDate desc, o.id desc", Order.class)
+                        .setMaxResults(PAGE_SIZE + 1)
+                        .getResultList()
+                        .subList(0, PAGE_SIZE)));
+        Supplier<List<OrderResponseDTO>> projections = () -> orderService.getAllOrdersPage(null, PAGE_SIZE).orders();
+        assertThat(projections.get()).isEqualTo(entities.get());
+
+        Measurement entity = measure(entities);
+        Measurement projection = measure(projections);
+        log.warn("1000-order page as entities: {} KB allocated, {} ms", entity.kilobytes(), entity.millis());
+        log.warn("1000-order page as projections: {} KB allocated, {} ms", projection.kilobytes(), projection.millis());
+        assertThat(projection.bytes()).isLessThan(entity.bytes());
+    }
+
+    private static Measurement measure(Supplier<List<OrderResponseDTO>> listing) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            listing.get();
+        }
+        long thread = Thread.currentThread().threadId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            listing.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        return new Measurement((threads.getThreadAllocatedBytes(thread) - allocatedBefore) / RUNS, elapsed / RUNS);
+    }
+
+    private static Order order(int index) {
+        Order order = Order.builder()
+                .userId("user-" + index % 50)
+                .username("user-" + index % 50)
+                .totalAmount(new BigDecimal("30.00"))
+                .build();
+        for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+            order.addItem(OrderItem.builder()
+                    .productId("p-" + i)
+                    .productName("Product " + i)
+                    .quantity(1)
+                    .unitPrice(new BigDecimal("10.00"))
+                    .build());
+        }
+        return order;
+    }
+
+    private record Measurement(long bytes, long nanos) {
+
+        String kilobytes() {
+            return String.valueOf(bytes / 1024);
+        }
+
+        String millis() {
+            return String.format("%.2f", nanos / 1_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package ma.enset.commandservice.service;
+
+import ma.enset.commandservice.client.ProductCallExecutor;
+import ma.enset.commandservice.client.ProductCatalogCache;
+import ma.enset.commandservice.client.ProductServiceClient;
+import ma.enset.commandservice.config.IdempotencyProperties;
+import ma.enset.commandservice.config.OrderPageProperties;
+import ma.enset.commandservice.config.OutboxProperties;
+import ma.enset.commandservice.config.ProductCacheProperties;
+import ma.enset.commandservice.config.ProductCallProperties;
+import ma.enset.commandservice.dto.OrderPageDTO;
+import ma.enset.commandservice.dto.OrderResponseDTO;
+import ma.enset.commandservice.entity.Order;
+import ma.enset.commandservice.entity.OrderItem;
+import ma.enset.commandservice.exception.InvalidCursorException;
+import ma.enset.commandservice.mapper.OrderMapperImpl;
+import ma.enset.commandservice.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:orders-pagination;DB_CLOSE_DELAY=-1",
+        "order.product-cache.enabled=false",
+        "order.pagination.max-limit=3"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({OrderServiceImpl.class, OrderPersistenceService.class, OutboxService.class, IdempotencyService.class,
+        InventoryServiceImpl.class, ProductCallExecutor.class, ProductCatalogCache.class, OrderMapperImpl.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@EnableConfigurationProperties({ProductCallProperties.class, OutboxProperties.class, IdempotencyProperties.class,
+        ProductCacheProperties.class, OrderPageProperties.class})
+class OrderPaginationTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private ProductServiceClient productServiceClient;
+
+    @Test
+    void pagesWalkOrdersNewestFirstAcrossTiedTimestamps() {
+        LocalDateTime base = LocalDateTime.of(2026, 3, 1, 10, 0);
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            Order order = saveOrder("pager");
+            // Pairs of orders share a timestamp, so only the id tells them apart
+            jdbcTemplate.update("update orders set order_date = ? where id = ?", base.plusMinutes(i / 2), order.getId());
+        }
+        jdbcTemplate.query("select id from orders where user_id = 'pager' order by order_date desc, id desc",
+                row -> {
+                    expected.add(row.getString("id"));
+                });
+
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            OrderPageDTO page = orderService.getMyOrdersPage("pager", cursor, 100);
+            assertThat(page.orders()).hasSizeLessThanOrEqualTo(3);
+            page.orders().forEach(order -> assertThat(order.items()).hasSize(1));
+            page.orders().stream().map(OrderResponseDTO::id).forEach(seen::add);
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        assertThat(seen).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThatThrownBy(() -> orderService.getAllOrdersPage("not-a-cursor", null))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    private Order saveOrder(String userId) {
+        Order order = Order.builder()
+                .userId(userId)
+                .username(userId)
+                .totalAmount(new BigDecimal("10.00"))
+                .build();
+        order.addItem(OrderItem.builder()
+                .productId("p-1")
+                .productName("Keyboard")
+                .quantity(1)
+                .unitPrice(new BigDecimal("10.00"))
+                .build());
+        return orderRepository.save(order);
+    }
+}
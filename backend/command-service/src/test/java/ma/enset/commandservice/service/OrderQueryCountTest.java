@@ -0,0 +1,134 @@
+package ma.enset.commandservice.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import ma.enset.commandservice.client.ProductCallExecutor;
+import ma.enset.commandservice.client.ProductCatalogCache;
+import ma.enset.commandservice.client.ProductServiceClient;
+import ma.enset.commandservice.config.IdempotencyProperties;
+import ma.enset.commandservice.config.OrderPageProperties;
+import ma.enset.commandservice.config.OutboxProperties;
+import ma.enset.commandservice.config.ProductCacheProperties;
+import ma.enset.commandservice.config.ProductCallProperties;
+import ma.enset.commandservice.entity.Order;
+import ma.enset.commandservice.entity.OrderItem;
+import ma.enset.commandservice.enums.OrderStatus;
+import ma.enset.commandservice.mapper.OrderMapperImpl;
+import ma.enset.commandservice.repository.OrderRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Counts the SQL statements issued by each order read endpoint. Listing must cost the same number of
+ * statements whatever the number of orders, so a regression to per-order item loading fails here.
+ */
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:orders-query-count;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "order.product-cache.enabled=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({OrderServiceImpl.class, OrderPersistenceService.class, OutboxService.class, IdempotencyService.class,
+        InventoryServiceImpl.class, ProductCallExecutor.class, ProductCatalogCache.class, OrderMapperImpl.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@EnableConfigurationProperties({ProductCallProperties.class, OutboxProperties.class, IdempotencyProperties.class,
+        ProductCacheProperties.class, OrderPageProperties.class})
+class OrderQueryCountTest {
+
+    private static final String USER_ID = "counted";
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private ProductServiceClient productServiceClient;
+
+    private String anyOrderId;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository.deleteAll();
+        for (int i = 0; i < 30; i++) {
+            anyOrderId = saveOrder().getId();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void listingOrdersUsesAConstantNumberOfStatements() {
+        assertThat(statementsFor(() -> orderService.getMyOrdersPage(USER_ID, null, 5))).isEqualTo(2);
+        assertThat(statementsFor(() -> orderService.getMyOrdersPage(USER_ID, null, 25))).isEqualTo(2);
+        assertThat(statementsFor(() -> orderService.getAllOrdersPage(null, 25))).isEqualTo(2);
+        assertThat(statementsFor(() -> orderService.getOrdersByStatusPage(OrderStatus.CONFIRMED, null, 25))).isEqualTo(2);
+
+        assertThat(statementsFor(() -> orderService.getMyOrders(USER_ID))).isEqualTo(2);
+        assertThat(statementsFor(() -> orderService.getAllOrders())).isEqualTo(2);
+        assertThat(statementsFor(() -> orderService.getOrdersByStatus(OrderStatus.CONFIRMED))).isEqualTo(2);
+    }
+
+    @Test
+    void listingOrdersReadsNoEntities() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        orderService.getMyOrdersPage(USER_ID, null, 25);
+        orderService.getAllOrdersPage(null, 25);
+
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+    }
+
+    @Test
+    void singleOrderReadsJoinTheirItems() {
+        assertThat(statementsFor(() -> orderService.getOrderById(anyOrderId, USER_ID, false))).isEqualTo(1);
+        assertThat(statementsFor(() -> orderService.getOrderItems(anyOrderId, USER_ID, false))).isEqualTo(1);
+    }
+
+    private long statementsFor(Supplier<?> call) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        call.get();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Order saveOrder() {
+        Order order = Order.builder()
+                .userId(USER_ID)
+                .username(USER_ID)
+                .status(OrderStatus.CONFIRMED)
+                .totalAmount(new BigDecimal("30.00"))
+                .build();
+        for (int i = 0; i < 2; i++) {
+            order.addItem(OrderItem.builder()
+                    .productId("p-" + i)
+                    .productName("Product " + i)
+                    .quantity(1)
+                    .unitPrice(new BigDecimal("15.00"))
+                    .build());
+        }
+        return orderRepository.save(order);
+    }
+}
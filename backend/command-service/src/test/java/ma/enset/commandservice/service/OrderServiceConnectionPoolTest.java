@@ -0,0 +1,116 @@
+package ma.enset.commandservice.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import ma.enset.commandservice.client.ProductCallExecutor;
+import ma.enset.commandservice.client.ProductCatalogCache;
+import ma.enset.commandservice.client.ProductServiceClient;
+import ma.enset.commandservice.config.IdempotencyProperties;
+import ma.enset.commandservice.config.OrderPageProperties;
+import ma.enset.commandservice.config.OutboxProperties;
+import ma.enset.commandservice.config.ProductCacheProperties;
+import ma.enset.commandservice.config.ProductCallProperties;
+import ma.enset.commandservice.dto.OrderItemRequestDTO;
+import ma.enset.commandservice.dto.OrderRequestDTO;
+import ma.enset.commandservice.dto.OrderResponseDTO;
+import ma.enset.commandservice.dto.ProductAvailabilityDTO;
+import ma.enset.commandservice.dto.StockBatchRequestDTO;
+import ma.enset.commandservice.enums.OrderStatus;
+import ma.enset.commandservice.mapper.OrderMapperImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+
+/**
+ * Orders are created against a deliberately slow Product Service stand-in with a two-connection pool.
+ * Remote calls must not hold pooled connections, so reads keep working while many orders are in flight.
+ */
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:orders-pool;DB_CLOSE_DELAY=-1",
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "spring.datasource.hikari.connection-timeout=250",
+        "order.product-cache.enabled=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({OrderServiceImpl.class, OrderPersistenceService.class, OutboxService.class, IdempotencyService.class,
+        InventoryServiceImpl.class, ProductCallExecutor.class, ProductCatalogCache.class, OrderMapperImpl.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@EnableConfigurationProperties({ProductCallProperties.class, OutboxProperties.class, IdempotencyProperties.class,
+        ProductCacheProperties.class, OrderPageProperties.class})
+class OrderServiceConnectionPoolTest {
+
+    private static final int CONCURRENT_ORDERS = 6;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @MockitoBean
+    private ProductServiceClient productServiceClient;
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void slowProductServiceDoesNotExhaustConnectionPool() throws Exception {
+        CountDownLatch remoteCallsInFlight = new CountDownLatch(CONCURRENT_ORDERS);
+        CountDownLatch releaseRemoteCalls = new CountDownLatch(1);
+
+        given(productServiceClient.checkAvailability(any(StockBatchRequestDTO.class))).willAnswer(invocation -> {
+            remoteCallsInFlight.countDown();
+            releaseRemoteCalls.await(10, TimeUnit.SECONDS);
+            return List.of(new ProductAvailabilityDTO("p-1", true, "Keyboard", new BigDecimal("25.00"), 100, 1, true));
+        });
+
+        ExecutorService clients = Executors.newFixedThreadPool(CONCURRENT_ORDERS);
+        try {
+            List<Future<OrderResponseDTO>> orders = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_ORDERS; i++) {
+                String userId = "user-" + i;
+                orders.add(clients.submit(() -> orderService.createOrder(
+                        new OrderRequestDTO(List.of(new OrderItemRequestDTO("p-1", 1))), userId, userId, null)));
+            }
+
+            // Three times more orders than connections are now blocked on Product Service
+            assertThat(remoteCallsInFlight.await(5, TimeUnit.SECONDS)).isTrue();
+            HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+            assertThat(hikari.getHikariPoolMXBean().getActiveConnections()).isZero();
+
+            // Reads still get a connection well within the 250ms connection timeout
+            assertThat(orderService.getAllOrders()).isEmpty();
+
+            releaseRemoteCalls.countDown();
+            for (Future<OrderResponseDTO> order : orders) {
+                // Stock is reserved asynchronously through the outbox
+                assertThat(order.get(10, TimeUnit.SECONDS).status()).isEqualTo(OrderStatus.PENDING);
+            }
+            assertThat(orderService.getAllOrders()).hasSize(CONCURRENT_ORDERS);
+        } finally {
+            releaseRemoteCalls.countDown();
+            clients.shutdownNow();
+        }
+    }
+}
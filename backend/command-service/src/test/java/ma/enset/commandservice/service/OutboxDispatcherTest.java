@@ -0,0 +1,193 @@
+package ma.enset.commandservice.service;
+
+import ma.enset.commandservice.client.ProductCallExecutor;
+import ma.enset.commandservice.client.ProductCatalogCache;
+import ma.enset.commandservice.client.ProductServiceClient;
+import ma.enset.commandservice.config.IdempotencyProperties;
+import ma.enset.commandservice.config.OrderPageProperties;
+import ma.enset.commandservice.config.OutboxProperties;
+import ma.enset.commandservice.config.ProductCacheProperties;
+import ma.enset.commandservice.config.ProductCallProperties;
+import ma.enset.commandservice.dto.OrderItemRequestDTO;
+import ma.enset.commandservice.dto.OrderRequestDTO;
+import ma.enset.commandservice.dto.ProductAvailabilityDTO;
+import ma.enset.commandservice.dto.StockBatchRequestDTO;
+import ma.enset.commandservice.entity.OutboxEvent;
+import ma.enset.commandservice.enums.OrderStatus;
+import ma.enset.commandservice.enums.OutboxEventType;
+import ma.enset.commandservice.enums.OutboxStatus;
+import ma.enset.commandservice.exception.InsufficientStockException;
+import ma.enset.commandservice.mapper.OrderMapperImpl;
+import ma.enset.commandservice.repository.OrderRepository;
+import ma.enset.commandservice.repository.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Order and outbox state after each delivery outcome. Backoff is zero so a retried event is due again at once.
+ * The scheduled poll is pushed out so only the test dispatches.
+ */
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:orders-outbox;DB_CLOSE_DELAY=-1",
+        "order.product-cache.enabled=false",
+        "order.outbox.max-attempts=3",
+        "order.outbox.initial-backoff=0s",
+        "order.outbox.lease=0s",
+        "order.outbox.poll-interval-ms=3600000"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({OrderServiceImpl.class, OrderPersistenceService.class, OutboxService.class, OutboxDispatcher.class,
+        IdempotencyService.class, InventoryServiceImpl.class, ProductCallExecutor.class, ProductCatalogCache.class,
+        OrderMapperImpl.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@EnableConfigurationProperties({ProductCallProperties.class, OutboxProperties.class, IdempotencyProperties.class,
+        ProductCacheProperties.class, OrderPageProperties.class})
+class OutboxDispatcherTest {
+
+    private static final OrderRequestDTO CART = new OrderRequestDTO(List.of(new OrderItemRequestDTO("p-1", 2)));
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @MockitoBean
+    private ProductServiceClient productServiceClient;
+
+    private String orderId;
+
+    @BeforeEach
+    void setUp() {
+        outboxEventRepository.deleteAll();
+        orderRepository.deleteAll();
+        given(productServiceClient.checkAvailability(any(StockBatchRequestDTO.class))).willReturn(
+                List.of(new ProductAvailabilityDTO("p-1", true, "Keyboard", new BigDecimal("25.00"), 100, 2, true)));
+        orderId = orderService.createOrder(CART, "user-1", "alice", null).id();
+    }
+
+    @Test
+    void deliveredReservationConfirmsTheOrder() {
+        outboxDispatcher.dispatchDueEvents();
+
+        verify(productServiceClient).reserveStock(eq(reservationKey()), any(StockBatchRequestDTO.class));
+        assertThat(status()).isEqualTo(OrderStatus.CONFIRMED);
+        assertThat(event(OutboxEventType.RESERVE_STOCK).getStatus()).isEqualTo(OutboxStatus.SENT);
+    }
+
+    @Test
+    void transientFailureIsRetriedUntilDelivered() {
+        willThrow(new IllegalStateException("connection refused"))
+                .willDoNothing()
+                .given(productServiceClient).reserveStock(anyString(), any(StockBatchRequestDTO.class));
+
+        outboxDispatcher.dispatchDueEvents();
+
+        OutboxEvent retried = event(OutboxEventType.RESERVE_STOCK);
+        assertThat(retried.getStatus()).isEqualTo(OutboxStatus.PENDING);
+        assertThat(retried.getAttempts()).isEqualTo(1);
+        assertThat(retried.getLastError()).isEqualTo("connection refused");
+        assertThat(status()).isEqualTo(OrderStatus.PENDING);
+
+        outboxDispatcher.dispatchDueEvents();
+
+        assertThat(event(OutboxEventType.RESERVE_STOCK).getStatus()).isEqualTo(OutboxStatus.SENT);
+        assertThat(status()).isEqualTo(OrderStatus.CONFIRMED);
+    }
+
+    @Test
+    void refusedReservationCancelsTheOrderWithoutRelease() {
+        willThrow(new InsufficientStockException("p-1", 2))
+                .given(productServiceClient).reserveStock(anyString(), any(StockBatchRequestDTO.class));
+
+        outboxDispatcher.dispatchDueEvents();
+
+        assertThat(status()).isEqualTo(OrderStatus.CANCELLED);
+        assertThat(event(OutboxEventType.RESERVE_STOCK).getStatus()).isEqualTo(OutboxStatus.FAILED);
+        assertThat(outboxEventRepository.findAll()).hasSize(1);
+    }
+
+    @Test
+    void abandonedReservationCancelsTheOrderAndVoidsIt() {
+        willThrow(new IllegalStateException("read timed out"))
+                .given(productServiceClient).reserveStock(anyString(), any(StockBatchRequestDTO.class));
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            outboxDispatcher.dispatchDueEvents();
+        }
+
+        assertThat(status()).isEqualTo(OrderStatus.CANCELLED);
+        OutboxEvent reservation = event(OutboxEventType.RESERVE_STOCK);
+        assertThat(reservation.getStatus()).isEqualTo(OutboxStatus.FAILED);
+        assertThat(reservation.getAttempts()).isEqualTo(3);
+        assertThat(event(OutboxEventType.RELEASE_STOCK).getStatus()).isEqualTo(OutboxStatus.PENDING);
+
+        // The outcome of the reservation is unknown, so the release names it: Product Service voids it if unseen
+        outboxDispatcher.dispatchDueEvents();
+
+        verify(productServiceClient).releaseStock(eq(OutboxService.idempotencyKey(orderId, OutboxEventType.RELEASE_STOCK)),
+                eq(reservationKey()), any(StockBatchRequestDTO.class));
+        assertThat(event(OutboxEventType.RELEASE_STOCK).getStatus()).isEqualTo(OutboxStatus.SENT);
+    }
+
+    @Test
+    void failingReleaseIsGivenUpAfterMaxAttempts() {
+        outboxDispatcher.dispatchDueEvents();
+        orderService.cancelOrder(orderId, "user-1", false);
+        willThrow(new IllegalStateException("connection refused"))
+                .given(productServiceClient).releaseStock(anyString(), anyString(), any(StockBatchRequestDTO.class));
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            outboxDispatcher.dispatchDueEvents();
+        }
+
+        OutboxEvent release = event(OutboxEventType.RELEASE_STOCK);
+        assertThat(release.getStatus()).isEqualTo(OutboxStatus.FAILED);
+        assertThat(release.getAttempts()).isEqualTo(3);
+        assertThat(status()).isEqualTo(OrderStatus.CANCELLED);
+    }
+
+    private String reservationKey() {
+        return OutboxService.idempotencyKey(orderId, OutboxEventType.RESERVE_STOCK);
+    }
+
+    private OrderStatus status() {
+        return orderRepository.findById(orderId).orElseThrow().getStatus();
+    }
+
+    private OutboxEvent event(OutboxEventType type) {
+        return outboxEventRepository.findAll().stream()
+                .filter(event -> event.getType() == type)
+                .findFirst()
+                .orElseThrow();
+    }
+}
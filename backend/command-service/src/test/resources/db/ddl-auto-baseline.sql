@@ -0,0 +1,28 @@
+-- The order tables as ddl-auto created them before the schema moved to Flyway, with one existing order
+create table if not exists orders (
+    id           varchar(255)   not null,
+    user_id      varchar(255)   not null,
+    username     varchar(255)   not null,
+    status       varchar(255)   not null,
+    total_amount numeric(12, 2) not null,
+    order_date   timestamp(6),
+    updated_at   timestamp(6),
+    primary key (id)
+);
+
+create table if not exists order_items (
+    id           bigint generated by default as identity,
+    order_id     varchar(255)   not null,
+    product_id   varchar(255)   not null,
+    product_name varchar(255),
+    quantity     integer        not null,
+    unit_price   numeric(10, 2) not null,
+    subtotal     numeric(12, 2) not null,
+    primary key (id),
+    constraint fk_baseline_order_items_order foreign key (order_id) references orders (id)
+);
+
+merge into orders (id, user_id, username, status, total_amount) key (id)
+    values ('legacy-order', 'user-1', 'alice', 'CONFIRMED', 25.00);
+merge into order_items (id, order_id, product_id, quantity, unit_price, subtotal) key (id)
+    values (1, 'legacy-order', 'p-1', 1, 25.00, 25.00);
@@ -0,0 +1,131 @@
+package ma.enset.common.concurrency;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limit on calls in flight that follows the latency of the service, after the gradient algorithm of Netflix's
+ * concurrency-limits. Each completed call updates a short (last ~10 calls) and a long (last ~600 calls) average
+ * latency; when the short one rises above {@code tolerance} times the long one, calls are queueing in the
+ * service and the limit shrinks in proportion, otherwise it grows by about its square root. Calls dropped by
+ * the service (timeouts, 503) cut the limit by 10% at once. Calls made while less than half the limit was in
+ * use say nothing about the limit and leave it unchanged.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final double SHORT_WINDOW = 10;
+    private static final double LONG_WINDOW = 600;
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private long samples;
+    private double shortLatency;
+    private double longLatency;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+    }
+
+    /**
+     * @return a permit to release once the call is over, or {@code null} if the limit is reached
+     */
+    public Permit tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= getLimit()) {
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return new Permit(current + 1);
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    synchronized void onSample(long latencyNanos, int inFlightAtStart) {
+        samples++;
+        if (samples == 1) {
+            shortLatency = latencyNanos;
+            longLatency = latencyNanos;
+        } else {
+            shortLatency += (latencyNanos - shortLatency) * 2 / (SHORT_WINDOW + 1);
+            longLatency += (latencyNanos - longLatency) / Math.min(samples, (LONG_WINDOW + 1) / 2);
+        }
+        // After an overload the long average is still inflated; let it catch up with normal latency
+        if (longLatency > 2 * shortLatency) {
+            longLatency *= 0.95;
+        }
+        if (inFlightAtStart < limit / 2) {
+            return;
+        }
+        double gradient = Math.clamp(tolerance * longLatency / shortLatency, 0.5, 1.0);
+        double next = limit * gradient + Math.sqrt(limit);
+        limit = Math.clamp(limit * (1 - SMOOTHING) + next * SMOOTHING, minLimit, maxLimit);
+    }
+
+    synchronized void onDropped() {
+        limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+    }
+
+    /**
+     * One call in flight. Exactly one of the release methods counts; later calls are ignored.
+     */
+    public final class Permit {
+
+        private final int inFlightAtStart;
+        private final long start = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * The service answered; its latency is used to adjust the limit.
+         */
+        public void success() {
+            if (release()) {
+                onSample(System.nanoTime() - start, inFlightAtStart);
+            }
+        }
+
+        /**
+         * The service timed out or shed the call.
+         */
+        public void dropped() {
+            if (release()) {
+                onDropped();
+            }
+        }
+
+        /**
+         * The call ended without telling anything about the service, e.g. it was cancelled.
+         */
+        public void ignore() {
+            release();
+        }
+
+        private boolean release() {
+            if (!released.compareAndSet(false, true)) {
+                return false;
+            }
+            inFlight.decrementAndGet();
+            return true;
+        }
+    }
+}
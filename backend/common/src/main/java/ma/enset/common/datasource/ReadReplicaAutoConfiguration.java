@@ -0,0 +1,101 @@
+package ma.enset.common.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sends read-only transactions to the replicas in {@code datasource.replicas} and everything else to
+ * {@code spring.datasource}.
+ * <p>
+ * The proxy only picks a connection when the first statement runs, by which time the transaction manager has
+ * marked the connection read-only or not.
+ * <p>
+ * Runs before {@link DataSourceAutoConfiguration} so the routing data source replaces the default one.
+ * {@link ReadReplicaProperties} is registered even with replicas disabled, as services read its settings.
+ */
+@AutoConfiguration(before = DataSourceAutoConfiguration.class)
+@ConditionalOnClass(HikariDataSource.class)
+@EnableConfigurationProperties({ReadReplicaProperties.class, DataSourceProperties.class})
+public class ReadReplicaAutoConfiguration {
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(prefix = "datasource.replicas", name = "enabled", havingValue = "true")
+    static class RoutingConfiguration {
+
+        @Bean
+        @ConfigurationProperties("spring.datasource.hikari")
+        public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+            return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        }
+
+        @Bean
+        public ReadYourWrites readYourWrites(ReadReplicaProperties properties) {
+            return new ReadYourWrites(properties.getReadYourWritesWindow(), properties.getReadYourWritesMaximumSize());
+        }
+
+        @Bean
+        public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                                 ReadYourWrites readYourWrites,
+                                                                 ReadReplicaProperties properties,
+                                                                 MeterRegistry meterRegistry) {
+            Map<String, DataSource> replicas = new LinkedHashMap<>();
+            for (ReadReplicaProperties.Target target : properties.getTargets()) {
+                replicas.put(target.getName(), replicaPool(target, primaryDataSource.getPoolName(), meterRegistry));
+            }
+            return new ReplicaRoutingDataSource(primaryDataSource, replicas, readYourWrites, properties, meterRegistry);
+        }
+
+        @Bean
+        @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+        public ReadYourWritesFilter readYourWritesFilter(ReadYourWrites readYourWrites) {
+            return new ReadYourWritesFilter(readYourWrites);
+        }
+
+        @Bean
+        @Primary
+        public DataSource dataSource(HikariDataSource primaryDataSource,
+                                     ReplicaRoutingDataSource replicaRoutingDataSource,
+                                     ReadYourWrites readYourWrites) {
+            LazyConnectionDataSourceProxy dataSource =
+                    new LazyConnectionDataSourceProxy(new WriteTrackingDataSource(primaryDataSource, readYourWrites));
+            dataSource.setReadOnlyDataSource(replicaRoutingDataSource);
+            return dataSource;
+        }
+
+        /**
+         * Starts even while the replica is down; the routing keeps it out of rotation until it answers.
+         */
+        private static HikariDataSource replicaPool(ReadReplicaProperties.Target target, String primaryPoolName,
+                                                    MeterRegistry meterRegistry) {
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName(primaryPoolName + "-" + target.getName());
+            pool.setJdbcUrl(target.getUrl());
+            pool.setUsername(target.getUsername());
+            pool.setPassword(target.getPassword());
+            pool.setMaximumPoolSize(target.getMaximumPoolSize());
+            pool.setMinimumIdle(target.getMinimumIdle());
+            pool.setConnectionTimeout(target.getConnectionTimeout().toMillis());
+            pool.setReadOnly(true);
+            pool.setInitializationFailTimeout(-1);
+            pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            return pool;
+        }
+    }
+}
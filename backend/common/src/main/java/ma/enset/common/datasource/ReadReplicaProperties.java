@@ -0,0 +1,59 @@
+package ma.enset.common.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas serving read-only transactions. Writes, and reads that must see a user's latest writes,
+ * always use {@code spring.datasource}.
+ */
+@Data
+@ConfigurationProperties(prefix = "datasource.replicas")
+public class ReadReplicaProperties {
+
+    private boolean enabled = false;
+
+    private List<Target> targets = new ArrayList<>();
+
+    /**
+     * Replicas further behind the primary than this are taken out of rotation until they catch up.
+     */
+    private Duration maxLag = Duration.ofSeconds(5);
+
+    /**
+     * Query returning how far a replica is behind, in seconds. Left empty, only connectivity is checked.
+     */
+    private String lagQuery;
+
+    /**
+     * After a user writes, that user's reads go to the primary for this long. Should exceed the usual lag.
+     */
+    private Duration readYourWritesWindow = Duration.ofSeconds(5);
+
+    private long readYourWritesMaximumSize = 100_000;
+
+    @Data
+    public static class Target {
+
+        private String name;
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        private int maximumPoolSize = 10;
+
+        private int minimumIdle = 2;
+
+        /**
+         * Kept short so a replica that stops answering falls back to the primary quickly.
+         */
+        private Duration connectionTimeout = Duration.ofSeconds(2);
+    }
+}
@@ -0,0 +1,71 @@
+package ma.enset.common.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+
+/**
+ * Decides when a read-only transaction must use the primary because a replica might not have the caller's
+ * latest writes yet: for the rest of a request that wrote, for the same user's requests within the window
+ * after a write, and for requests that ask for it with {@value #HEADER}.
+ * <p>
+ * Work outside a request, such as scheduled jobs, is free to read from replicas.
+ */
+public class ReadYourWrites {
+
+    public static final String HEADER = "X-Read-Your-Writes";
+
+    private final ThreadLocal<Scope> current = new ThreadLocal<>();
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadYourWrites(Duration window, long maximumSize) {
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * @param user      the authenticated user, or null
+     * @param requested whether the client asked for its own writes to be visible
+     */
+    public void begin(String user, boolean requested) {
+        boolean wroteRecently = user != null && recentWriters.getIfPresent(user) != null;
+        current.set(new Scope(user, requested || wroteRecently));
+    }
+
+    public void end() {
+        current.remove();
+    }
+
+    public boolean isPrimaryRequired() {
+        Scope scope = current.get();
+        return scope != null && scope.primaryRequired;
+    }
+
+    /**
+     * Called when a read-write transaction takes a primary connection.
+     */
+    void recordWrite() {
+        Scope scope = current.get();
+        if (scope == null) {
+            return;
+        }
+        scope.primaryRequired = true;
+        if (scope.user != null) {
+            recentWriters.put(scope.user, Boolean.TRUE);
+        }
+    }
+
+    private static final class Scope {
+
+        private final String user;
+        private boolean primaryRequired;
+
+        private Scope(String user, boolean primaryRequired) {
+            this.user = user;
+            this.primaryRequired = primaryRequired;
+        }
+    }
+}
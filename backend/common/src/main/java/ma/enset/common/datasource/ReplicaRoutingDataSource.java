@@ -0,0 +1,169 @@
+package ma.enset.common.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connections for read-only transactions. Replicas in rotation take turns; the primary serves the read when
+ * {@link ReadYourWrites} requires it, when no replica is in rotation, or when a replica fails to hand out a
+ * connection, which also takes that replica out of rotation until its next successful health check.
+ * <p>
+ * Publishes {@code datasource.routing.connections} per target and {@code datasource.replica.healthy} per replica,
+ * next to the Hikari metrics of each pool.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas;
+    private final List<String> names;
+    private final ReadYourWrites readYourWrites;
+    private final ReadReplicaProperties properties;
+    private final Set<String> healthy = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger next = new AtomicInteger();
+    private final Map<String, Counter> routed = new HashMap<>();
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, ReadYourWrites readYourWrites,
+                                    ReadReplicaProperties properties, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = Map.copyOf(replicas);
+        this.names = List.copyOf(replicas.keySet());
+        this.readYourWrites = readYourWrites;
+        this.properties = properties;
+        routed.put(PRIMARY, routedCounter(meterRegistry, PRIMARY));
+        for (String name : names) {
+            routed.put(name, routedCounter(meterRegistry, name));
+            Gauge.builder("datasource.replica.healthy", healthy, set -> set.contains(name) ? 1 : 0)
+                    .description("Whether the replica is in rotation for read-only transactions")
+                    .tag("replica", name)
+                    .register(meterRegistry);
+        }
+        checkReplicas();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    /**
+     * The target of the next read-only connection.
+     */
+    public String currentTarget() {
+        if (readYourWrites.isPrimaryRequired()) {
+            return PRIMARY;
+        }
+        int start = next.getAndIncrement();
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(Math.floorMod(start + i, names.size()));
+            if (healthy.contains(name)) {
+                return name;
+            }
+        }
+        return PRIMARY;
+    }
+
+    /**
+     * Puts replicas that answer and keep up back in rotation, and takes the others out.
+     */
+    @Scheduled(fixedDelayString = "${datasource.replicas.health-check-interval-ms:5000}")
+    public void checkReplicas() {
+        replicas.forEach((name, dataSource) -> {
+            String problem = probe(dataSource);
+            if (problem == null) {
+                if (healthy.add(name)) {
+                    log.info("Replica {} is in rotation", name);
+                }
+            } else if (healthy.remove(name)) {
+                log.warn("Replica {} taken out of rotation: {}", name, problem);
+            } else {
+                log.debug("Replica {} still out of rotation: {}", name, problem);
+            }
+        });
+    }
+
+    /**
+     * Closes the replica pools. The primary belongs to the caller.
+     */
+    public void close() throws Exception {
+        for (DataSource replica : replicas.values()) {
+            if (replica instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private Connection route(ConnectionSource source) throws SQLException {
+        String target = currentTarget();
+        if (!PRIMARY.equals(target)) {
+            try {
+                Connection connection = source.open(replicas.get(target));
+                routed.get(target).increment();
+                return connection;
+            } catch (SQLException e) {
+                if (healthy.remove(target)) {
+                    log.warn("Replica {} taken out of rotation, reading from the primary: {}", target, e.getMessage());
+                }
+            }
+        }
+        Connection connection = source.open(primary);
+        routed.get(PRIMARY).increment();
+        return connection;
+    }
+
+    private String probe(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!StringUtils.hasText(properties.getLagQuery())) {
+                return null;
+            }
+            try (Statement statement = connection.createStatement();
+                 ResultSet result = statement.executeQuery(properties.getLagQuery())) {
+                result.next();
+                double lagSeconds = result.getDouble(1);
+                if (lagSeconds * 1000 > properties.getMaxLag().toMillis()) {
+                    return "%.1fs behind the primary".formatted(lagSeconds);
+                }
+                return null;
+            }
+        } catch (SQLException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static Counter routedCounter(MeterRegistry meterRegistry, String target) {
+        return Counter.builder("datasource.routing.connections")
+                .description("Connections handed out for read-only transactions")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+
+        Connection open(DataSource dataSource) throws SQLException;
+    }
+}
@@ -0,0 +1,30 @@
+package ma.enset.common.hedging;
+
+/**
+ * Caps hedged requests at a fraction of all requests: every request adds {@code ratio} of a token, every hedge
+ * takes a whole one, and at most {@code burst} tokens are kept. With a ratio of 0.05 hedging adds at most 5%
+ * to the load on the service, plus the burst, however slow the service gets.
+ */
+public class HedgeBudget {
+
+    private final double ratio;
+    private final double burst;
+    private double balance;
+
+    public HedgeBudget(double ratio, double burst) {
+        this.ratio = ratio;
+        this.burst = burst;
+    }
+
+    public synchronized void deposit() {
+        balance = Math.min(burst, balance + ratio);
+    }
+
+    public synchronized boolean tryWithdraw() {
+        if (balance < 1) {
+            return false;
+        }
+        balance -= 1;
+        return true;
+    }
+}
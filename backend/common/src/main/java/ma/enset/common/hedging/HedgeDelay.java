@@ -0,0 +1,49 @@
+package ma.enset.common.hedging;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * How long to wait for a response before hedging: a percentile of the latest latencies, between a minimum and
+ * a maximum. The percentile is recomputed every {@value #RECOMPUTE_EVERY} samples over the last
+ * {@value #WINDOW}; until {@value #MIN_SAMPLES} samples are in, the maximum is used.
+ */
+public class HedgeDelay {
+
+    static final int WINDOW = 512;
+    static final int MIN_SAMPLES = 50;
+    static final int RECOMPUTE_EVERY = 32;
+
+    private final double percentile;
+    private final long minNanos;
+    private final long maxNanos;
+    private final long[] samples = new long[WINDOW];
+    private int count;
+    private int next;
+    private int sinceRecompute;
+    private long delayNanos;
+
+    public HedgeDelay(double percentile, Duration min, Duration max) {
+        this.percentile = percentile;
+        this.minNanos = min.toNanos();
+        this.maxNanos = max.toNanos();
+        this.delayNanos = maxNanos;
+    }
+
+    public synchronized void record(long latencyNanos) {
+        samples[next] = latencyNanos;
+        next = (next + 1) % WINDOW;
+        count = Math.min(WINDOW, count + 1);
+        if (++sinceRecompute >= RECOMPUTE_EVERY && count >= MIN_SAMPLES) {
+            sinceRecompute = 0;
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            long value = sorted[(int) Math.min(count - 1, Math.ceil(percentile * count) - 1)];
+            delayNanos = Math.max(minNanos, Math.min(maxNanos, value));
+        }
+    }
+
+    public synchronized Duration current() {
+        return Duration.ofNanos(delayNanos);
+    }
+}
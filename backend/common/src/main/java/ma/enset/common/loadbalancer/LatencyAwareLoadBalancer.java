@@ -0,0 +1,115 @@
+package ma.enset.common.loadbalancer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.SelectedInstanceCallback;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Power of two choices: picks two instances at random and sends the request to the one with the lower cost,
+ * its moving average latency times one plus its requests in flight. Unlike round robin, a replica that turns
+ * slow or piles up requests stops getting its share within a few requests, while comparing only two random
+ * instances keeps every instance from choosing the same best one at once. An instance without latency samples
+ * yet is costed with the latency of the other one, so new instances are judged on requests in flight alone.
+ * <p>
+ * Instances named in the {@link #EXCLUDED_INSTANCES_ATTR} attribute of the request are skipped, so a hedged
+ * request goes to another instance than the one it hedges.
+ */
+public class LatencyAwareLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(LatencyAwareLoadBalancer.class);
+
+    /**
+     * Request attribute holding the {@link LoadBalancerStats#key keys} of instances the request must not go to.
+     */
+    public static final String EXCLUDED_INSTANCES_ATTR = LatencyAwareLoadBalancer.class.getName() + ".excludedInstances";
+
+    private final ObjectProvider<ServiceInstanceListSupplier> supplierProvider;
+    private final String serviceId;
+    private final LoadBalancerStats stats;
+
+    public LatencyAwareLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> supplierProvider, String serviceId,
+                                    LoadBalancerStats stats) {
+        this.supplierProvider = supplierProvider;
+        this.serviceId = serviceId;
+        this.stats = stats;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = supplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        Set<?> excluded = excludedInstances(request);
+        return supplier.get(request).next().map(instances -> {
+            Response<ServiceInstance> response = choose(instances, excluded, System.nanoTime());
+            if (supplier instanceof SelectedInstanceCallback callback && response.hasServer()) {
+                callback.selectedServiceInstance(response.getServer());
+            }
+            return response;
+        });
+    }
+
+    Response<ServiceInstance> choose(List<ServiceInstance> instances, long now) {
+        return choose(instances, Set.of(), now);
+    }
+
+    Response<ServiceInstance> choose(List<ServiceInstance> available, Set<?> excluded, long now) {
+        if (available.isEmpty()) {
+            log.warn("No servers available for service: {}", serviceId);
+            return new EmptyResponse();
+        }
+        stats.retain(serviceId, available);
+        List<ServiceInstance> instances = excluded.isEmpty() ? available : available.stream()
+                .filter(instance -> !excluded.contains(LoadBalancerStats.key(instance)))
+                .toList();
+        if (instances.isEmpty()) {
+            return new EmptyResponse();
+        }
+        if (instances.size() == 1) {
+            return new DefaultResponse(instances.get(0));
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(instances.size());
+        int second = random.nextInt(instances.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+        LoadBalancerStats.InstanceStats statsA = stats.get(a);
+        LoadBalancerStats.InstanceStats statsB = stats.get(b);
+        double latencyA = statsA.latency(now);
+        double latencyB = statsB.latency(now);
+        if (Double.isNaN(latencyA)) {
+            latencyA = Double.isNaN(latencyB) ? 1 : latencyB;
+        }
+        if (Double.isNaN(latencyB)) {
+            latencyB = latencyA;
+        }
+        double costA = latencyA * (statsA.outstanding() + 1);
+        double costB = latencyB * (statsB.outstanding() + 1);
+        return new DefaultResponse(costB < costA ? b : a);
+    }
+
+    private static Set<?> excludedInstances(Request request) {
+        if (request.getContext() instanceof RequestDataContext context && context.getClientRequest() != null
+                && context.getClientRequest().getAttributes() != null
+                && context.getClientRequest().getAttributes().get(EXCLUDED_INSTANCES_ATTR) instanceof Set<?> excluded) {
+            return excluded;
+        }
+        return Set.of();
+    }
+}
@@ -0,0 +1,39 @@
+package ma.enset.common.loadbalancer;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Makes {@link LatencyAwareLoadBalancer} the load balancer of every client and shows its
+ * {@link LoadBalancerStats} at {@code /actuator/loadbalancer}.
+ * <p>
+ * Each application feeds the stats from its own request path: the gateway from a global filter, the services
+ * from a {@code LoadBalancerLifecycle} of their Feign calls.
+ */
+@AutoConfiguration
+@ConditionalOnClass(ReactorLoadBalancer.class)
+@EnableConfigurationProperties(LoadBalancingProperties.class)
+@LoadBalancerClients(defaultConfiguration = LatencyAwareLoadBalancerConfiguration.class)
+public class LatencyAwareLoadBalancerAutoConfiguration {
+
+    @Bean
+    public LoadBalancerStats loadBalancerStats(LoadBalancingProperties properties) {
+        return new LoadBalancerStats(properties);
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(Endpoint.class)
+    static class EndpointConfiguration {
+
+        @Bean
+        public LoadBalancerStatsEndpoint loadBalancerStatsEndpoint(LoadBalancerStats stats) {
+            return new LoadBalancerStatsEndpoint(stats);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package ma.enset.common.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Requests in flight and latency of every instance the application sends requests to, by service. Latency is a
+ * peak-sensitive moving average: a slower sample is taken as is, so a replica entering a GC pause is avoided
+ * from its first slow response, and faster samples pull it down with a weight that decays over
+ * {@code load-balancing.decay-time}. The average also decays while an instance gets no samples, so an instance
+ * that was avoided gets tried again.
+ */
+public class LoadBalancerStats {
+
+    private final Map<String, Map<String, InstanceStats>> services = new ConcurrentHashMap<>();
+    private final double decayNanos;
+    private final long failurePenaltyNanos;
+
+    public LoadBalancerStats(LoadBalancingProperties properties) {
+        this.decayNanos = properties.getDecayTime().toNanos();
+        this.failurePenaltyNanos = properties.getFailurePenalty().toNanos();
+    }
+
+    public InstanceStats get(ServiceInstance instance) {
+        return services.computeIfAbsent(instance.getServiceId().toLowerCase(Locale.ROOT), id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(key(instance), key -> new InstanceStats());
+    }
+
+    /**
+     * Forgets the instances of a service that are no longer registered.
+     */
+    void retain(String serviceId, List<ServiceInstance> instances) {
+        Map<String, InstanceStats> stats = services.get(serviceId.toLowerCase(Locale.ROOT));
+        if (stats != null && stats.size() > instances.size()) {
+            Set<String> keys = instances.stream().map(LoadBalancerStats::key).collect(Collectors.toSet());
+            stats.keySet().retainAll(keys);
+        }
+    }
+
+    /**
+     * @return the stats of every instance by service and {@code host:port}, latencies in milliseconds
+     */
+    public Map<String, Map<String, Snapshot>> snapshot() {
+        long now = System.nanoTime();
+        Map<String, Map<String, Snapshot>> snapshot = new TreeMap<>();
+        services.forEach((serviceId, instances) -> {
+            Map<String, Snapshot> byInstance = new TreeMap<>();
+            instances.forEach((key, stats) -> byInstance.put(key, stats.snapshot(now)));
+            snapshot.put(serviceId, byInstance);
+        });
+        return snapshot;
+    }
+
+    /**
+     * @return {@code host:port} of the instance, naming it in stats and in
+     *         {@link LatencyAwareLoadBalancer#EXCLUDED_INSTANCES_ATTR}
+     */
+    public static String key(ServiceInstance instance) {
+        return instance.getHost() + ':' + instance.getPort();
+    }
+
+    public record Snapshot(int outstanding, Double latencyMillis, long requests, long failures) {
+    }
+
+    public final class InstanceStats {
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private boolean measured;
+        private double latency;
+        private long updatedAt;
+
+        public void started() {
+            outstanding.incrementAndGet();
+            requests.increment();
+        }
+
+        public void completed(long latencyNanos, long now) {
+            outstanding.decrementAndGet();
+            sample(latencyNanos, now);
+        }
+
+        public void failed(long latencyNanos, long now) {
+            outstanding.decrementAndGet();
+            failures.increment();
+            sample(Math.max(latencyNanos, failurePenaltyNanos), now);
+        }
+
+        /**
+         * Ends a request that gave no sample, e.g. one the client gave up on.
+         */
+        public void cancelled() {
+            outstanding.decrementAndGet();
+        }
+
+        public int outstanding() {
+            return outstanding.get();
+        }
+
+        /**
+         * @return the moving average latency in nanoseconds, {@code NaN} before the first sample
+         */
+        public synchronized double latency(long now) {
+            return measured ? latency * decay(now) : Double.NaN;
+        }
+
+        private synchronized void sample(long latencyNanos, long now) {
+            if (!measured || latencyNanos > latency) {
+                latency = latencyNanos;
+                measured = true;
+            } else {
+                double weight = decay(now);
+                latency = latency * weight + latencyNanos * (1 - weight);
+            }
+            updatedAt = now;
+        }
+
+        private double decay(long now) {
+            return Math.exp(-Math.max(0, now - updatedAt) / decayNanos);
+        }
+
+        private Snapshot snapshot(long now) {
+            double nanos = latency(now);
+            return new Snapshot(outstanding(),
+                    Double.isNaN(nanos) ? null : nanos / TimeUnit.MILLISECONDS.toNanos(1),
+                    requests.sum(), failures.sum());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ma.enset.common.loadbalancer;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.Map;
+
+/**
+ * {@code /actuator/loadbalancer}: requests in flight, moving average latency, requests and failures of every
+ * instance, by service.
+ */
+@Endpoint(id = "loadbalancer")
+public class LoadBalancerStatsEndpoint {
+
+    private final LoadBalancerStats stats;
+
+    public LoadBalancerStatsEndpoint(LoadBalancerStats stats) {
+        this.stats = stats;
+    }
+
+    @ReadOperation
+    public Map<String, Map<String, LoadBalancerStats.Snapshot>> instances() {
+        return stats.snapshot();
+    }
+}
@@ -0,0 +1,55 @@
+package ma.enset.common.loadbalancer;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Choice of the instance each load-balanced request goes to, from the gateway ({@code lb://} routes) or from a
+ * service (Feign clients). Shared through the common configuration.
+ */
+@ConfigurationProperties(prefix = "load-balancing")
+public class LoadBalancingProperties {
+
+    /**
+     * Picks the better of two random instances by latency and requests in flight; when off, instances are
+     * used in turn.
+     */
+    private boolean latencyAware = true;
+
+    /**
+     * How fast the latency of an instance follows new samples, and how fast a slow instance that gets no
+     * traffic is forgiven.
+     */
+    private Duration decayTime = Duration.ofSeconds(10);
+
+    /**
+     * Latency recorded for a request that failed or got a 5xx, so an instance failing fast does not attract
+     * traffic.
+     */
+    private Duration failurePenalty = Duration.ofSeconds(1);
+
+    public boolean isLatencyAware() {
+        return latencyAware;
+    }
+
+    public void setLatencyAware(boolean latencyAware) {
+        this.latencyAware = latencyAware;
+    }
+
+    public Duration getDecayTime() {
+        return decayTime;
+    }
+
+    public void setDecayTime(Duration decayTime) {
+        this.decayTime = decayTime;
+    }
+
+    public Duration getFailurePenalty() {
+        return failurePenalty;
+    }
+
+    public void setFailurePenalty(Duration failurePenalty) {
+        this.failurePenalty = failurePenalty;
+    }
+}
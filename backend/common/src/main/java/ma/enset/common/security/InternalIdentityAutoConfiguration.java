@@ -0,0 +1,13 @@
+package ma.enset.common.security;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+
+/**
+ * Registers {@link InternalIdentityProperties} in the gateway, which signs the assertions, and in the services,
+ * which decode them with {@link InternalIdentityJwtDecoder}.
+ */
+@AutoConfiguration
+@EnableConfigurationProperties(InternalIdentityProperties.class)
+public class InternalIdentityAutoConfiguration {
+}
@@ -0,0 +1,73 @@
+package ma.enset.common.security;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.util.Base64URL;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.server.resource.web.BearerTokenResolver;
+import org.springframework.security.oauth2.server.resource.web.DefaultBearerTokenResolver;
+
+import java.text.ParseException;
+
+/**
+ * Accepts the identity assertions the gateway signs with the shared key, checking only their HMAC, issuer and
+ * expiry, and passes every other token to the Keycloak decoder for full validation. The assertion carries the
+ * same {@code sub}, {@code preferred_username} and {@code realm_access} claims as the Keycloak token, so the
+ * resulting {@link Jwt} is used the same way.
+ */
+public class InternalIdentityJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder keycloakDecoder;
+    private final NimbusJwtDecoder internalDecoder;
+
+    public InternalIdentityJwtDecoder(JwtDecoder keycloakDecoder, InternalIdentityProperties properties) {
+        this.keycloakDecoder = keycloakDecoder;
+        this.internalDecoder = NimbusJwtDecoder.withSecretKey(properties.secretKey())
+                .macAlgorithm(MacAlgorithm.HS256)
+                .build();
+        this.internalDecoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(InternalIdentityProperties.ISSUER));
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        return isHmacSigned(token) ? internalDecoder.decode(token) : keycloakDecoder.decode(token);
+    }
+
+    /**
+     * Reads the assertion from {@link InternalIdentityProperties#HEADER} when there is one, the bearer token
+     * otherwise.
+     */
+    public static BearerTokenResolver bearerTokenResolver() {
+        DefaultBearerTokenResolver bearerTokenResolver = new DefaultBearerTokenResolver();
+        return request -> {
+            String assertion = request.getHeader(InternalIdentityProperties.HEADER);
+            return assertion != null ? assertion : bearerTokenResolver.resolve(request);
+        };
+    }
+
+    public static boolean isInternal(Jwt jwt) {
+        return InternalIdentityProperties.ISSUER.equals(jwt.getClaimAsString("iss"));
+    }
+
+    /**
+     * Keycloak signs with RSA, so an HMAC algorithm in the header means the token claims to be an assertion.
+     */
+    private static boolean isHmacSigned(String token) {
+        int dot = token.indexOf('.');
+        if (dot <= 0) {
+            return false;
+        }
+        try {
+            JWSHeader header = JWSHeader.parse(Base64URL.from(token.substring(0, dot)));
+            return JWSAlgorithm.Family.HMAC_SHA.contains(header.getAlgorithm());
+        } catch (ParseException e) {
+            throw new BadJwtException("Malformed token header", e);
+        }
+    }
+}
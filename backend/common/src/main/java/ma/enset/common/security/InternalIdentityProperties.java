@@ -0,0 +1,62 @@
+package ma.enset.common.security;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Identity assertion attached to routed requests once the user's JWT is verified, so services check an HMAC
+ * instead of verifying the JWT again. Must be set the same way in the gateway and every service.
+ */
+@ConfigurationProperties(prefix = "internal-identity")
+public class InternalIdentityProperties {
+
+    public static final String HEADER = "X-Internal-Identity";
+    public static final String ISSUER = "urn:ecommerce:gateway";
+
+    private boolean enabled = false;
+
+    /**
+     * HMAC-SHA256 key shared by the gateway and the services, at least 32 bytes.
+     */
+    private String secret;
+
+    /**
+     * Lifetime of an assertion, shortened to the JWT's own expiry. Only read by the gateway.
+     */
+    private Duration ttl = Duration.ofMinutes(5);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getSecret() {
+        return secret;
+    }
+
+    public void setSecret(String secret) {
+        this.secret = secret;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public SecretKey secretKey() {
+        if (secret == null || secret.getBytes(StandardCharsets.UTF_8).length < 32) {
+            throw new IllegalStateException("internal-identity.secret must be at least 32 bytes");
+        }
+        return new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+    }
+}
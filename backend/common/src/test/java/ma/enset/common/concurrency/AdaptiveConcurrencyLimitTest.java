@@ -0,0 +1,87 @@
+package ma.enset.common.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final long QUEUED = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 5, 200, 1.5);
+
+    @Test
+    void limitGrowsWhileBusyAndLatencyStaysFlat() {
+        for (int i = 0; i < 100; i++) {
+            limit.onSample(FAST, limit.getLimit());
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(200);
+    }
+
+    @Test
+    void limitShrinksWhenLatencyRisesAndStaysWhenIdle() {
+        for (int i = 0; i < 100; i++) {
+            limit.onSample(FAST, 1);
+        }
+        assertThat(limit.getLimit()).isEqualTo(20);
+
+        for (int i = 0; i < 30; i++) {
+            limit.onSample(QUEUED, limit.getLimit());
+        }
+
+        assertThat(limit.getLimit()).isLessThan(20);
+    }
+
+    @Test
+    void samplesFromAMostlyIdleServiceLeaveTheLimitAlone() {
+        for (int i = 0; i < 30; i++) {
+            limit.onSample(QUEUED, 9);
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(20);
+    }
+
+    @Test
+    void eachDropCutsTheLimitDownToTheMinimum() {
+        limit.onDropped();
+        assertThat(limit.getLimit()).isEqualTo(18);
+
+        for (int i = 0; i < 50; i++) {
+            limit.onDropped();
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    void permitsAreRefusedAtTheLimitAndDropsCutIt() {
+        AdaptiveConcurrencyLimit.Permit[] permits = new AdaptiveConcurrencyLimit.Permit[20];
+        for (int i = 0; i < permits.length; i++) {
+            permits[i] = limit.tryAcquire();
+            assertThat(permits[i]).isNotNull();
+        }
+        assertThat(limit.tryAcquire()).isNull();
+
+        permits[0].dropped();
+        permits[0].success();
+
+        assertThat(limit.getLimit()).isEqualTo(18);
+        assertThat(limit.getInFlight()).isEqualTo(19);
+    }
+
+    @Test
+    void permitCountsOnlyItsFirstRelease() {
+        AdaptiveConcurrencyLimit.Permit permit = limit.tryAcquire();
+
+        permit.ignore();
+        permit.dropped();
+        permit.dropped();
+
+        assertThat(limit.getLimit()).isEqualTo(20);
+        assertThat(limit.getInFlight()).isZero();
+    }
+}
@@ -0,0 +1,35 @@
+package ma.enset.common.hedging;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HedgeBudgetTest {
+
+    @Test
+    void hedgeIsRefusedUntilEnoughRequestsPaidForIt() {
+        HedgeBudget budget = new HedgeBudget(0.25, 2);
+
+        for (int i = 0; i < 3; i++) {
+            budget.deposit();
+            assertThat(budget.tryWithdraw()).isFalse();
+        }
+        budget.deposit();
+
+        assertThat(budget.tryWithdraw()).isTrue();
+        assertThat(budget.tryWithdraw()).isFalse();
+    }
+
+    @Test
+    void savedTokensNeverExceedTheBurst() {
+        HedgeBudget budget = new HedgeBudget(0.5, 2);
+
+        for (int i = 0; i < 100; i++) {
+            budget.deposit();
+        }
+
+        assertThat(budget.tryWithdraw()).isTrue();
+        assertThat(budget.tryWithdraw()).isTrue();
+        assertThat(budget.tryWithdraw()).isFalse();
+    }
+}
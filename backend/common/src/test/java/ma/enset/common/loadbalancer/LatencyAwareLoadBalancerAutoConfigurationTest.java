@@ -0,0 +1,33 @@
+package ma.enset.common.loadbalancer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cloud.loadbalancer.config.LoadBalancerAutoConfiguration;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyAwareLoadBalancerAutoConfigurationTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(LoadBalancerAutoConfiguration.class,
+                    LatencyAwareLoadBalancerAutoConfiguration.class));
+
+    @Test
+    void everyClientGetsTheLatencyAwareLoadBalancer() {
+        contextRunner.run(context -> {
+            assertThat(context).hasSingleBean(LoadBalancerStats.class).hasSingleBean(LoadBalancerStatsEndpoint.class);
+            assertThat(context.getBean(LoadBalancerClientFactory.class).getInstance("product-service"))
+                    .isInstanceOf(LatencyAwareLoadBalancer.class);
+        });
+    }
+
+    @Test
+    void roundRobinWhenLatencyAwarenessIsOff() {
+        contextRunner.withPropertyValues("load-balancing.latency-aware=false").run(context ->
+                assertThat(context.getBean(LoadBalancerClientFactory.class).getInstance("product-service"))
+                        .isInstanceOf(RoundRobinLoadBalancer.class));
+    }
+}
@@ -0,0 +1,88 @@
+package ma.enset.common.loadbalancer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyAwareLoadBalancerTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ServiceInstance slow = instance("10.0.0.1");
+    private final ServiceInstance fast = instance("10.0.0.2");
+    private final ServiceInstance idle = instance("10.0.0.3");
+    private final LoadBalancerStats stats = new LoadBalancerStats(new LoadBalancingProperties());
+    private final LatencyAwareLoadBalancer loadBalancer = new LatencyAwareLoadBalancer(null, "product-service", stats);
+
+    @Test
+    void slowInstanceGetsNoRequestsWhileOthersAreFaster() {
+        record(slow, 200 * MS, 0);
+        record(fast, 10 * MS, 0);
+        record(idle, 12 * MS, 0);
+
+        Map<ServiceInstance, Integer> picks = choose(List.of(slow, fast, idle), 1000, 0);
+
+        assertThat(picks).doesNotContainKey(slow).containsKeys(fast, idle);
+    }
+
+    @Test
+    void requestsInFlightOutweighSmallLatencyDifferences() {
+        record(fast, 10 * MS, 0);
+        record(idle, 12 * MS, 0);
+        for (int i = 0; i < 3; i++) {
+            stats.get(fast).started();
+        }
+
+        assertThat(choose(List.of(fast, idle), 100, 0)).containsOnlyKeys(idle);
+    }
+
+    @Test
+    void avoidedInstanceIsTriedAgainOnceItsLatencyDecays() {
+        record(slow, 200 * MS, 0);
+        record(fast, 10 * MS, 0);
+        assertThat(choose(List.of(slow, fast), 100, 0)).containsOnlyKeys(fast);
+
+        long later = TimeUnit.SECONDS.toNanos(60);
+        record(fast, 10 * MS, later);
+
+        assertThat(choose(List.of(slow, fast), 100, later)).containsOnlyKeys(slow);
+    }
+
+    @Test
+    void excludedInstancesAreSkipped() {
+        record(fast, 10 * MS, 0);
+        record(slow, 200 * MS, 0);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(loadBalancer.choose(List.of(slow, fast), Set.of("10.0.0.2:8081"), 0).getServer())
+                    .isEqualTo(slow);
+        }
+        assertThat(loadBalancer.choose(List.of(fast), Set.of("10.0.0.2:8081"), 0).hasServer()).isFalse();
+    }
+
+    private void record(ServiceInstance instance, long latency, long now) {
+        LoadBalancerStats.InstanceStats instanceStats = stats.get(instance);
+        instanceStats.started();
+        instanceStats.completed(latency, now);
+    }
+
+    private Map<ServiceInstance, Integer> choose(List<ServiceInstance> instances, int times, long now) {
+        Map<ServiceInstance, Integer> picks = new HashMap<>();
+        for (int i = 0; i < times; i++) {
+            picks.merge(loadBalancer.choose(instances, now).getServer(), 1, Integer::sum);
+        }
+        return picks;
+    }
+
+    private static ServiceInstance instance(String host) {
+        return new DefaultServiceInstance(host + ":8081", "PRODUCT-SERVICE", host, 8081, false);
+    }
+}
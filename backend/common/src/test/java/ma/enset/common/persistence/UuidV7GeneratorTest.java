@@ -0,0 +1,27 @@
+package ma.enset.common.persistence;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UuidV7GeneratorTest {
+
+    @Test
+    void idsSortAsStringsInCreationOrder() {
+        long before = System.currentTimeMillis();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(UuidV7Generator.next().toString());
+        }
+
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+        UUID first = UUID.fromString(ids.get(0));
+        assertThat(first.version()).isEqualTo(7);
+        assertThat(first.variant()).isEqualTo(2);
+        assertThat(first.getMostSignificantBits() >>> 16).isGreaterThanOrEqualTo(before);
+    }
+}
@@ -0,0 +1,103 @@
+package ma.enset.gatewayservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import ma.enset.gatewayservice.config.ResponseCacheProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded in-memory store of downstream GET responses, shared by all routes. Entries expire after the time to
+ * live of their route and the least recently used ones are evicted once the bodies exceed the size cap.
+ */
+@Component
+public class ResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ResponseCache.class);
+
+    static final String METRIC = "gateway.response.cache";
+
+    private final Cache<Key, CachedResponse> cache;
+    private final ResponseCacheProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public ResponseCache(ResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaximumSize().toBytes())
+                .weigher((Key key, CachedResponse response) -> response.body().length)
+                .expireAfter(Expiry.creating((Key key, CachedResponse response) -> response.ttl()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, METRIC);
+    }
+
+    public CachedResponse get(Key key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * @return false when the body is over the entry size limit and was not stored
+     */
+    public boolean put(Key key, CachedResponse response) {
+        if (response.body().length > properties.getMaximumEntrySize().toBytes()) {
+            return false;
+        }
+        cache.put(key, response);
+        return true;
+    }
+
+    public void invalidateRoute(String routeId) {
+        cache.asMap().keySet().removeIf(key -> key.routeId().equals(routeId));
+        log.debug("Invalidated cached responses of route {}", routeId);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        log.debug("Invalidated all cached responses");
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Counts lookups per route, so the hit ratio of each route can be read from
+     * {@code /actuator/metrics/gateway.response.cache.requests}.
+     */
+    public void record(String routeId, Result result) {
+        counters.computeIfAbsent(routeId + ':' + result, name -> Counter.builder(METRIC + ".requests")
+                        .tag("route", routeId)
+                        .tag("result", result.name().toLowerCase())
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    public enum Result {
+        HIT, MISS, BYPASS
+    }
+
+    /**
+     * @param query       the raw query string, or null
+     * @param accept      the Accept header, as downstream services may negotiate the representation on it
+     * @param authorities the caller's sorted authorities, as role-gated paths answer other roles differently
+     */
+    public record Key(String routeId, String path, String query, String accept, String authorities) {
+    }
+
+    public record CachedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body, Duration ttl) {
+    }
+}
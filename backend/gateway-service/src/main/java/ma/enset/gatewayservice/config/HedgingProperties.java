@@ -0,0 +1,51 @@
+package ma.enset.gatewayservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Limits shared by the routes using the {@code Hedge} filter. The delay before hedging is set per route in
+ * the filter arguments.
+ */
+@ConfigurationProperties(prefix = "gateway.hedging")
+public class HedgingProperties {
+
+    /**
+     * Hedged requests allowed per request of the route, e.g. 0.05 for at most 5% more requests.
+     */
+    private double budgetRatio = 0.05;
+
+    /**
+     * Hedged requests that can be saved up while the service is fast.
+     */
+    private int budgetBurst = 10;
+
+    /**
+     * Responses of hedged routes are buffered before one of them is written; larger responses fail.
+     */
+    private DataSize maximumBodySize = DataSize.ofMegabytes(1);
+
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+
+    public void setBudgetRatio(double budgetRatio) {
+        this.budgetRatio = budgetRatio;
+    }
+
+    public int getBudgetBurst() {
+        return budgetBurst;
+    }
+
+    public void setBudgetBurst(int budgetBurst) {
+        this.budgetBurst = budgetBurst;
+    }
+
+    public DataSize getMaximumBodySize() {
+        return maximumBodySize;
+    }
+
+    public void setMaximumBodySize(DataSize maximumBodySize) {
+        this.maximumBodySize = maximumBodySize;
+    }
+}
@@ -0,0 +1,75 @@
+package ma.enset.gatewayservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settings of the in-memory rate limiter. Limits of a route are set in its {@code RequestRateLimiter} filter
+ * arguments; the ones here apply to routes that do not set any.
+ */
+@ConfigurationProperties(prefix = "gateway.rate-limiter")
+public class RateLimiterProperties {
+
+    /**
+     * Roles that can have their own limits, highest priority first. A user with several of them is limited as
+     * the first one.
+     */
+    private List<String> roles = new ArrayList<>(List.of("ADMIN", "CLIENT"));
+
+    private int replenishRate = 10;
+
+    private int burstCapacity = 20;
+
+    /**
+     * Number of locks the buckets are spread over.
+     */
+    private int stripes = 64;
+
+    /**
+     * Buckets unused for this long, and full again, are removed.
+     */
+    private Duration idleTimeout = Duration.ofMinutes(10);
+
+    public List<String> getRoles() {
+        return roles;
+    }
+
+    public void setRoles(List<String> roles) {
+        this.roles = roles;
+    }
+
+    public int getReplenishRate() {
+        return replenishRate;
+    }
+
+    public void setReplenishRate(int replenishRate) {
+        this.replenishRate = replenishRate;
+    }
+
+    public int getBurstCapacity() {
+        return burstCapacity;
+    }
+
+    public void setBurstCapacity(int burstCapacity) {
+        this.burstCapacity = burstCapacity;
+    }
+
+    public int getStripes() {
+        return stripes;
+    }
+
+    public void setStripes(int stripes) {
+        this.stripes = stripes;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+}
@@ -0,0 +1,24 @@
+package ma.enset.gatewayservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Limits of the {@code RequestCoalescing} filter. The collapse key is set per route in the filter arguments.
+ */
+@ConfigurationProperties(prefix = "gateway.request-coalescing")
+public class RequestCoalescingProperties {
+
+    /**
+     * Larger responses are not shared; requests waiting on them call the downstream service themselves.
+     */
+    private DataSize maximumBodySize = DataSize.ofMegabytes(1);
+
+    public DataSize getMaximumBodySize() {
+        return maximumBodySize;
+    }
+
+    public void setMaximumBodySize(DataSize maximumBodySize) {
+        this.maximumBodySize = maximumBodySize;
+    }
+}
@@ -0,0 +1,53 @@
+package ma.enset.gatewayservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Limits of the response cache shared by every route that uses the {@code ResponseCache} filter.
+ * The time to live is set per route in the filter arguments.
+ */
+@ConfigurationProperties(prefix = "gateway.response-cache")
+public class ResponseCacheProperties {
+
+    /**
+     * Total size of the cached bodies across all routes.
+     */
+    private DataSize maximumSize = DataSize.ofMegabytes(64);
+
+    /**
+     * Larger responses are passed through without being cached.
+     */
+    private DataSize maximumEntrySize = DataSize.ofMegabytes(1);
+
+    /**
+     * Time to live of routes that do not set their own.
+     */
+    private Duration defaultTtl = Duration.ofSeconds(30);
+
+    public DataSize getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(DataSize maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public DataSize getMaximumEntrySize() {
+        return maximumEntrySize;
+    }
+
+    public void setMaximumEntrySize(DataSize maximumEntrySize) {
+        this.maximumEntrySize = maximumEntrySize;
+    }
+
+    public Duration getDefaultTtl() {
+        return defaultTtl;
+    }
+
+    public void setDefaultTtl(Duration defaultTtl) {
+        this.defaultTtl = defaultTtl;
+    }
+}
@@ -1,5 +1,7 @@
 package ma.enset.gatewayservice.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import ma.enset.gatewayservice.security.CachingJwtAuthenticationManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.convert.converter.Converter;
@@ -8,6 +10,8 @@ import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtReactiveAuthenticationManager;
 import org.springframework.security.oauth2.server.resource.authentication.ReactiveJwtAuthenticationConverter;
 import org.springframework.security.web.server.SecurityWebFilterChain;
 import org.springframework.web.cors.CorsConfiguration;
@@ -24,7 +28,8 @@ import java.util.Map;
 public class SecurityConfig {
 
     @Bean
-    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http,
+                                                         CachingJwtAuthenticationManager jwtAuthenticationManager) {
         return http
                 .csrf(ServerHttpSecurity.CsrfSpec::disable)
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
@@ -47,12 +52,15 @@ public class SecurityConfig {
                         .pathMatchers("GET", "/command-service/api/orders/status/**").hasRole("ADMIN")
                         .pathMatchers("PUT", "/command-service/api/orders/*/status").hasRole("ADMIN")
                         .pathMatchers("/command-service/api/orders/**").authenticated()
+
+                        // Gateway administration
+                        .pathMatchers("/admin/**").hasRole("ADMIN")
                         
                         // Default - require authentication
                         .anyExchange().authenticated()
                 )
                 .oauth2ResourceServer(oauth2 -> oauth2
-                        .jwt(jwt -> jwt.jwtAuthenticationConverter(jwtAuthenticationConverter()))
+                        .jwt(jwt -> jwt.authenticationManager(jwtAuthenticationManager))
                 )
                 .build();
     }
@@ -77,6 +85,15 @@ public class SecurityConfig {
         return source;
     }
 
+    @Bean
+    public CachingJwtAuthenticationManager jwtAuthenticationManager(ReactiveJwtDecoder jwtDecoder,
+                                                                    JwtCacheProperties properties,
+                                                                    MeterRegistry meterRegistry) {
+        JwtReactiveAuthenticationManager authenticationManager = new JwtReactiveAuthenticationManager(jwtDecoder);
+        authenticationManager.setJwtAuthenticationConverter(jwtAuthenticationConverter());
+        return new CachingJwtAuthenticationManager(authenticationManager, properties, meterRegistry);
+    }
+
     @Bean
     public ReactiveJwtAuthenticationConverter jwtAuthenticationConverter() {
         ReactiveJwtAuthenticationConverter converter = new ReactiveJwtAuthenticationConverter();
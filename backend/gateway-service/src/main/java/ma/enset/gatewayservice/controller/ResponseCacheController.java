@@ -0,0 +1,32 @@
+package ma.enset.gatewayservice.controller;
+
+import ma.enset.gatewayservice.cache.ResponseCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/admin/response-cache")
+public class ResponseCacheController {
+
+    private final ResponseCache responseCache;
+
+    public ResponseCacheController(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    @DeleteMapping
+    public Mono<ResponseEntity<Void>> invalidateAll() {
+        responseCache.invalidateAll();
+        return Mono.just(ResponseEntity.noContent().build());
+    }
+
+    @DeleteMapping("/{routeId}")
+    public Mono<ResponseEntity<Void>> invalidateRoute(@PathVariable String routeId) {
+        responseCache.invalidateRoute(routeId);
+        return Mono.just(ResponseEntity.noContent().build());
+    }
+}
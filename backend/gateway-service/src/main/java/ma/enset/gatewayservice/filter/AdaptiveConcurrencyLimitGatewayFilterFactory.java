@@ -0,0 +1,171 @@
+package ma.enset.gatewayservice.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import ma.enset.common.concurrency.AdaptiveConcurrencyLimit;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Limits the requests a route has in flight to what the service handles without queueing, and answers the
+ * rest at once with 503 instead of letting them wait in the service. The limit is discovered from the
+ * route's latency by {@link AdaptiveConcurrencyLimit}, between {@code minLimit} and {@code maxLimit}.
+ * <pre>
+ * - name: AdaptiveConcurrencyLimit
+ *   args:
+ *     initialLimit: 20
+ *     maxLimit: 200
+ * </pre>
+ * Responses 502, 503 and 504 count as dropped and lower the limit. Publishes {@code gateway.concurrency.limit}
+ * and {@code gateway.concurrency.in-flight} per route, and {@code gateway.concurrency.rejected}.
+ */
+@Component
+public class AdaptiveConcurrencyLimitGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<AdaptiveConcurrencyLimitGatewayFilterFactory.Config> {
+
+    static final String METRIC = "gateway.concurrency";
+
+    private static final Set<HttpStatusCode> DROPPED = Set.of(
+            HttpStatus.BAD_GATEWAY, HttpStatus.SERVICE_UNAVAILABLE, HttpStatus.GATEWAY_TIMEOUT);
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AdaptiveConcurrencyLimit> limits = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rejected = new ConcurrentHashMap<>();
+
+    public AdaptiveConcurrencyLimitGatewayFilterFactory(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        String routeId = config.getRouteId() != null ? config.getRouteId() : "default";
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(config.getInitialLimit(), config.getMinLimit(),
+                config.getMaxLimit(), config.getTolerance());
+        // Routes are rebuilt on refresh; the gauges follow the latest limit of the route
+        if (limits.put(routeId, limit) == null) {
+            registerGauges(routeId);
+        }
+
+        return (exchange, chain) -> {
+            AdaptiveConcurrencyLimit.Permit permit = limit.tryAcquire();
+            if (permit == null) {
+                rejected(routeId).increment();
+                return reject(exchange.getResponse(), routeId);
+            }
+            return chain.filter(exchange)
+                    .doOnSuccess(done -> {
+                        HttpStatusCode status = exchange.getResponse().getStatusCode();
+                        if (status != null && DROPPED.contains(status)) {
+                            permit.dropped();
+                        } else {
+                            permit.success();
+                        }
+                    })
+                    .doOnError(error -> permit.dropped())
+                    .doFinally(signal -> permit.ignore());
+        };
+    }
+
+    private static Mono<Void> reject(ServerHttpResponse response, String routeId) {
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+        byte[] body = ("{\"status\":\"error\",\"message\":\"Too many requests in flight. Please try again later.\","
+                + "\"service\":\"" + routeId + "\"}").getBytes(StandardCharsets.UTF_8);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    private void registerGauges(String routeId) {
+        Gauge.builder(METRIC + ".limit", limits, map -> map.get(routeId).getLimit())
+                .description("Requests the route may have in flight, adjusted to the latency of the service")
+                .tag("route", routeId)
+                .register(meterRegistry);
+        Gauge.builder(METRIC + ".in-flight", limits, map -> map.get(routeId).getInFlight())
+                .description("Requests of the route currently in flight")
+                .tag("route", routeId)
+                .register(meterRegistry);
+    }
+
+    private Counter rejected(String routeId) {
+        return rejected.computeIfAbsent(routeId, id -> Counter.builder(METRIC + ".rejected")
+                .description("Requests answered with 503 because the route's concurrency limit was reached")
+                .tag("route", id)
+                .register(meterRegistry));
+    }
+
+    public static class Config implements HasRouteId {
+
+        private String routeId;
+
+        /**
+         * Limit used until latencies are known.
+         */
+        private int initialLimit = 20;
+
+        private int minLimit = 5;
+
+        private int maxLimit = 200;
+
+        /**
+         * How much slower than usual the service may get before the limit shrinks, e.g. 1.5 for 50% slower.
+         */
+        private double tolerance = 1.5;
+
+        @Override
+        public void setRouteId(String routeId) {
+            this.routeId = routeId;
+        }
+
+        @Override
+        public String getRouteId() {
+            return routeId;
+        }
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        public double getTolerance() {
+            return tolerance;
+        }
+
+        public void setTolerance(double tolerance) {
+            this.tolerance = tolerance;
+        }
+    }
+}
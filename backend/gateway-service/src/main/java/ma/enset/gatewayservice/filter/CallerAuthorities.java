@@ -0,0 +1,29 @@
+package ma.enset.gatewayservice.filter;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.stream.Collectors;
+
+/**
+ * The caller's granted authorities as one sorted string, so responses that differ by role are never given to
+ * a caller with other roles. Empty for anonymous requests.
+ */
+final class CallerAuthorities {
+
+    private CallerAuthorities() {
+    }
+
+    static Mono<String> of(ServerWebExchange exchange) {
+        return exchange.getPrincipal()
+                .filter(Authentication.class::isInstance)
+                .map(principal -> ((Authentication) principal).getAuthorities().stream()
+                        .map(GrantedAuthority::getAuthority)
+                        .sorted()
+                        .distinct()
+                        .collect(Collectors.joining(",")))
+                .defaultIfEmpty("");
+    }
+}
@@ -0,0 +1,115 @@
+package ma.enset.gatewayservice.filter;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Copies a downstream response while it is written to the client, so the client is not delayed until the whole
+ * body has arrived. The copy is handed to {@link #copied} once the body is complete, or dropped once it grows
+ * over {@code limit}.
+ */
+abstract class CopyingResponse extends ServerHttpResponseDecorator {
+
+    /**
+     * Headers that belong to a single exchange. CORS headers are left out as well, the gateway adds them for
+     * the origin of each request.
+     */
+    private static final Set<String> EXCHANGE_HEADERS = Set.of(
+            HttpHeaders.CONTENT_LENGTH.toLowerCase(Locale.ROOT),
+            HttpHeaders.TRANSFER_ENCODING.toLowerCase(Locale.ROOT),
+            HttpHeaders.CONNECTION.toLowerCase(Locale.ROOT),
+            HttpHeaders.DATE.toLowerCase(Locale.ROOT),
+            HttpHeaders.VARY.toLowerCase(Locale.ROOT),
+            ResponseCacheGatewayFilterFactory.CACHE_STATUS_HEADER.toLowerCase(Locale.ROOT));
+
+    private final long limit;
+
+    CopyingResponse(ServerHttpResponse delegate, long limit) {
+        super(delegate);
+        this.limit = limit;
+    }
+
+    /**
+     * Decides, once status and headers are known, whether the response is copied. Headers can still be changed.
+     */
+    protected abstract boolean shouldCopy();
+
+    protected abstract void copied(HttpStatusCode status, HttpHeaders headers, byte[] body);
+
+    /**
+     * Called instead of {@link #copied} when the response is not copied or is too large.
+     */
+    protected void notCopied() {
+    }
+
+    @Override
+    public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+        if (!shouldCopy()) {
+            notCopied();
+            return super.writeWith(body);
+        }
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        boolean[] overflow = {false};
+        Flux<? extends DataBuffer> copying = Flux.from(body)
+                .doOnNext(buffer -> {
+                    if (overflow[0] || copy.size() + buffer.readableByteCount() > limit) {
+                        overflow[0] = true;
+                        return;
+                    }
+                    int position = buffer.readPosition();
+                    byte[] bytes = new byte[buffer.readableByteCount()];
+                    buffer.read(bytes);
+                    buffer.readPosition(position);
+                    copy.writeBytes(bytes);
+                })
+                .doOnComplete(() -> {
+                    if (overflow[0]) {
+                        notCopied();
+                    } else {
+                        copied(getStatusCode(), reusableHeaders(getDelegate().getHeaders()), copy.toByteArray());
+                    }
+                });
+        return super.writeWith(copying);
+    }
+
+    /**
+     * Streamed responses are passed through without being copied.
+     */
+    @Override
+    public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+        notCopied();
+        return super.writeAndFlushWith(body);
+    }
+
+    /**
+     * Writes a copied response to another client.
+     */
+    static Mono<Void> write(ServerHttpResponse response, HttpStatusCode status, HttpHeaders headers, byte[] body) {
+        response.setStatusCode(status);
+        response.getHeaders().putAll(headers);
+        response.getHeaders().setContentLength(body.length);
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(body)));
+    }
+
+    private static HttpHeaders reusableHeaders(HttpHeaders headers) {
+        HttpHeaders reusable = new HttpHeaders();
+        headers.forEach((name, values) -> {
+            String lowerCase = name.toLowerCase(Locale.ROOT);
+            if (!EXCHANGE_HEADERS.contains(lowerCase) && !lowerCase.startsWith("access-control-")) {
+                reusable.put(name, new ArrayList<>(values));
+            }
+        });
+        return reusable;
+    }
+}
@@ -0,0 +1,340 @@
+package ma.enset.gatewayservice.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import ma.enset.common.hedging.HedgeBudget;
+import ma.enset.common.hedging.HedgeDelay;
+import ma.enset.common.loadbalancer.LatencyAwareLoadBalancer;
+import ma.enset.common.loadbalancer.LoadBalancerStats;
+import ma.enset.gatewayservice.config.HedgingProperties;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.AbstractServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Hedges slow reads: when a GET has had no response for longer than the route's usual latency, the same request
+ * is sent to another instance and the first successful response is used, the other request being cancelled. An
+ * error or a 5xx response is only used once the other request failed too.
+ * <pre>
+ * - name: Hedge
+ *   args:
+ *     percentile: 0.95
+ *     maxDelay: 500ms
+ *     paths: /api/products/{id}
+ * </pre>
+ * The delay is the {@code percentile} of the route's recent latencies, between {@code minDelay} and
+ * {@code maxDelay}. Hedges are capped by a budget of {@code gateway.hedging.budget-ratio} per request. Only
+ * idempotent methods of the listed paths, or of the whole route when none are listed, are hedged. Declare this
+ * filter last, so the other filters of the route run once: every attempt runs the load balancer and the call to
+ * the instance, and the response of each attempt is buffered until one of them is chosen.
+ */
+@Component
+public class HedgeGatewayFilterFactory extends AbstractGatewayFilterFactory<HedgeGatewayFilterFactory.Config> {
+
+    static final String METRIC = "gateway.hedging";
+
+    private static final Set<HttpMethod> IDEMPOTENT_METHODS = Set.of(HttpMethod.GET, HttpMethod.HEAD);
+
+    private final HedgingProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public HedgeGatewayFilterFactory(HedgingProperties properties, MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        HedgeDelay delay = new HedgeDelay(config.getPercentile(), config.getMinDelay(), config.getMaxDelay());
+        HedgeBudget budget = new HedgeBudget(properties.getBudgetRatio(), properties.getBudgetBurst());
+        List<PathPattern> paths = config.getPaths().stream()
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+
+        return (exchange, chain) -> {
+            PathContainer path = exchange.getRequest().getPath().pathWithinApplication();
+            if (!IDEMPOTENT_METHODS.contains(exchange.getRequest().getMethod())
+                    || !paths.isEmpty() && paths.stream().noneMatch(pattern -> pattern.matches(path))) {
+                return chain.filter(exchange);
+            }
+            Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+            String routeId = route != null ? route.getId() : "default";
+            budget.deposit();
+            return Mono.deferContextual(context -> hedge(exchange, chain, context, routeId, delay, budget));
+        };
+    }
+
+    private Mono<Void> hedge(ServerWebExchange exchange, GatewayFilterChain chain, ContextView context,
+                             String routeId, HedgeDelay delay, HedgeBudget budget) {
+        Sinks.One<Attempt> winner = Sinks.one();
+        Disposable.Composite running = Disposables.composite();
+        AtomicInteger pending = new AtomicInteger(1);
+        AtomicReference<Attempt> serverError = new AtomicReference<>();
+        Attempt primary = new Attempt(exchange, Set.of());
+        run(primary, chain, context, winner, running, pending, serverError);
+        running.add(Mono.delay(delay.current()).subscribe(tick -> {
+            if (!budget.tryWithdraw()) {
+                record(routeId, "budget-exhausted");
+                return;
+            }
+            record(routeId, "sent");
+            pending.incrementAndGet();
+            run(new Attempt(exchange, primary.instance()), chain, context, winner, running, pending, serverError);
+        }));
+
+        return winner.asMono()
+                .doFinally(signal -> {
+                    running.dispose();
+                    // A primary cancelled by the hedge took at least this long
+                    delay.record(primary.elapsed());
+                })
+                .flatMap(attempt -> {
+                    if (attempt != primary && !attempt.isServerError()) {
+                        record(routeId, "won");
+                    }
+                    exchange.getAttributes().putAll(attempt.getAttributes());
+                    exchange.getAttributes().remove(LatencyAwareLoadBalancer.EXCLUDED_INSTANCES_ATTR);
+                    return attempt.getResponse().writeTo(exchange.getResponse());
+                });
+    }
+
+    /**
+     * Starts an attempt; the first to complete with a response below 500 wins and cancels the others. A 5xx
+     * response, or else the last error, is only reported once every attempt failed.
+     */
+    private static void run(Attempt attempt, GatewayFilterChain chain, ContextView context,
+                            Sinks.One<Attempt> winner, Disposable.Composite running, AtomicInteger pending,
+                            AtomicReference<Attempt> serverError) {
+        running.add(chain.filter(attempt)
+                .contextWrite(context)
+                .doFinally(signal -> attempt.finished())
+                .subscribe(null,
+                        error -> {
+                            if (pending.decrementAndGet() == 0) {
+                                Attempt response = serverError.get();
+                                if (response != null) {
+                                    winner.tryEmitValue(response);
+                                } else {
+                                    winner.tryEmitError(error);
+                                }
+                            }
+                        },
+                        () -> {
+                            if (attempt.isServerError()) {
+                                // Keep the first 5xx in case the other attempts fail as well
+                                serverError.compareAndSet(null, attempt);
+                                if (pending.decrementAndGet() > 0) {
+                                    return;
+                                }
+                            }
+                            // Cancel the others before the response is written, not once the request is over
+                            running.dispose();
+                            winner.tryEmitValue(attempt.isServerError() ? serverError.get() : attempt);
+                        }));
+    }
+
+    private void record(String routeId, String outcome) {
+        counters.computeIfAbsent(routeId + ':' + outcome, name -> Counter.builder(METRIC)
+                        .description("Hedged requests by whether they were sent, used or denied by the budget")
+                        .tags("route", routeId, "outcome", outcome)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    /**
+     * One copy of the request, with its own attributes, so each attempt gets its own instance, and its own
+     * buffered response.
+     */
+    private final class Attempt extends ServerWebExchangeDecorator {
+
+        private final Map<String, Object> attributes;
+        private final BufferedResponse response;
+        private final long start = System.nanoTime();
+        private volatile long end;
+
+        Attempt(ServerWebExchange exchange, Set<String> excludedInstances) {
+            super(exchange);
+            this.attributes = new ConcurrentHashMap<>(exchange.getAttributes());
+            if (!excludedInstances.isEmpty()) {
+                attributes.put(LatencyAwareLoadBalancer.EXCLUDED_INSTANCES_ATTR, excludedInstances);
+            }
+            this.response = new BufferedResponse(exchange.getResponse().bufferFactory(),
+                    (int) Math.min(Integer.MAX_VALUE, properties.getMaximumBodySize().toBytes()));
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public BufferedResponse getResponse() {
+            return response;
+        }
+
+        /**
+         * @return the instance the attempt was sent to, empty until the load balancer chose it
+         */
+        Set<String> instance() {
+            Response<ServiceInstance> chosen = getAttribute(GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+            return chosen != null && chosen.hasServer() ? Set.of(LoadBalancerStats.key(chosen.getServer())) : Set.of();
+        }
+
+        void finished() {
+            end = System.nanoTime();
+        }
+
+        boolean isServerError() {
+            return response.getStatusCode() != null && response.getStatusCode().is5xxServerError();
+        }
+
+        long elapsed() {
+            long finishedAt = end;
+            return (finishedAt != 0 ? finishedAt : System.nanoTime()) - start;
+        }
+    }
+
+    /**
+     * Keeps status, headers and body of an attempt instead of sending them to the client.
+     */
+    private static final class BufferedResponse extends AbstractServerHttpResponse {
+
+        private final int limit;
+        private volatile byte[] body = new byte[0];
+
+        BufferedResponse(DataBufferFactory bufferFactory, int limit) {
+            super(bufferFactory);
+            this.limit = limit;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T getNativeResponse() {
+            return (T) this;
+        }
+
+        @Override
+        protected Mono<Void> writeWithInternal(Publisher<? extends DataBuffer> body) {
+            return DataBufferUtils.join(body, limit)
+                    .doOnNext(buffer -> {
+                        byte[] bytes = new byte[buffer.readableByteCount()];
+                        buffer.read(bytes);
+                        DataBufferUtils.release(buffer);
+                        this.body = bytes;
+                    })
+                    .then();
+        }
+
+        @Override
+        protected Mono<Void> writeAndFlushWithInternal(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return writeWithInternal(Flux.from(body).concatMap(Flux::from));
+        }
+
+        @Override
+        protected void applyStatusCode() {
+        }
+
+        @Override
+        protected void applyHeaders() {
+        }
+
+        @Override
+        protected void applyCookies() {
+        }
+
+        Mono<Void> writeTo(ServerHttpResponse target) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.putAll(getHeaders());
+            headers.remove(HttpHeaders.TRANSFER_ENCODING);
+            return CopyingResponse.write(target, getStatusCode() != null ? getStatusCode() : HttpStatus.OK,
+                    headers, body);
+        }
+    }
+
+    public static class Config {
+
+        /**
+         * Share of responses expected before hedging, e.g. 0.95 hedges requests slower than 95% of the others.
+         */
+        private double percentile = 0.95;
+
+        private Duration minDelay = Duration.ofMillis(10);
+
+        /**
+         * Delay used until enough latencies are known, and upper bound afterwards.
+         */
+        private Duration maxDelay = Duration.ofSeconds(1);
+
+        private List<String> paths = new ArrayList<>();
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public void setPercentile(double percentile) {
+            this.percentile = percentile;
+        }
+
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+
+        public void setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+        }
+
+        public Duration getMaxDelay() {
+            return maxDelay;
+        }
+
+        public void setMaxDelay(Duration maxDelay) {
+            this.maxDelay = maxDelay;
+        }
+
+        public List<String> getPaths() {
+            return paths;
+        }
+
+        public void setPaths(List<String> paths) {
+            this.paths = paths;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package ma.enset.gatewayservice.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nimbusds.jose.jwk.source.ImmutableSecret;
+import ma.enset.common.security.InternalIdentityProperties;
+import ma.enset.gatewayservice.config.JwtCacheProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.RouteToRequestUrlFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+/**
+ * Adds an identity assertion to requests whose JWT the gateway has verified: an HS256 token carrying the user's
+ * {@code sub}, {@code preferred_username} and {@code realm_access} roles, signed with the key shared with the
+ * services. An assertion is reused for the same JWT for half its lifetime. A header of that name sent by the
+ * client is always removed.
+ */
+@Component
+public class InternalIdentityGlobalFilter implements GlobalFilter, Ordered {
+
+    private final InternalIdentityProperties properties;
+    private final JwtEncoder encoder;
+    private final Cache<String, String> assertions;
+
+    public InternalIdentityGlobalFilter(InternalIdentityProperties properties, JwtCacheProperties jwtCacheProperties) {
+        this.properties = properties;
+        this.encoder = properties.isEnabled() ? new NimbusJwtEncoder(new ImmutableSecret<>(properties.secretKey()))
+                : null;
+        this.assertions = Caffeine.newBuilder()
+                .maximumSize(jwtCacheProperties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl().dividedBy(2))
+                .build();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest().mutate()
+                .headers(headers -> headers.remove(InternalIdentityProperties.HEADER))
+                .build();
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange.mutate().request(request).build());
+        }
+        return exchange.getPrincipal()
+                .filter(JwtAuthenticationToken.class::isInstance)
+                .map(principal -> request.mutate()
+                        .header(InternalIdentityProperties.HEADER, assertion(((JwtAuthenticationToken) principal).getToken()))
+                        .build())
+                .defaultIfEmpty(request)
+                .flatMap(mutated -> chain.filter(exchange.mutate().request(mutated).build()));
+    }
+
+    /**
+     * Runs just before the request is sent, so requests answered from the response cache or rejected by the
+     * rate limiter are not signed.
+     */
+    @Override
+    public int getOrder() {
+        return RouteToRequestUrlFilter.ROUTE_TO_URL_FILTER_ORDER - 1;
+    }
+
+    String assertion(Jwt jwt) {
+        return assertions.get(jwt.getTokenValue(), token -> {
+            Instant now = Instant.now();
+            Instant expiresAt = now.plus(properties.getTtl());
+            if (jwt.getExpiresAt() != null && jwt.getExpiresAt().isBefore(expiresAt)) {
+                expiresAt = jwt.getExpiresAt();
+            }
+            JwtClaimsSet.Builder claims = JwtClaimsSet.builder()
+                    .issuer(InternalIdentityProperties.ISSUER)
+                    .subject(jwt.getSubject())
+                    .issuedAt(now)
+                    .expiresAt(expiresAt);
+            if (jwt.hasClaim("preferred_username")) {
+                claims.claim("preferred_username", jwt.getClaimAsString("preferred_username"));
+            }
+            if (jwt.hasClaim("realm_access")) {
+                claims.claim("realm_access", jwt.getClaim("realm_access"));
+            }
+            return encoder.encode(JwtEncoderParameters.from(JwsHeader.with(MacAlgorithm.HS256).build(),
+                    claims.build())).getTokenValue();
+        });
+    }
+}
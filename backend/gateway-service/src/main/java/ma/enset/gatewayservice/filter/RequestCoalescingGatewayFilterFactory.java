@@ -0,0 +1,214 @@
+package ma.enset.gatewayservice.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import ma.enset.gatewayservice.config.RequestCoalescingProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Collapses identical GET requests that arrive while one of them is still in flight: the first request goes
+ * downstream and the others wait for its response, which is written to each of them. Requests are identical
+ * when they share route, path, query and the values of {@code keyHeaders}.
+ * <pre>
+ * - name: RequestCoalescing
+ *   args:
+ *     shared: true
+ *     keyHeaders: Accept, Accept-Language
+ *     excludedPaths: /api/products/{id}/check-stock
+ * </pre>
+ * The caller's authorities are always part of the key, so a response of a role-gated path is only given to
+ * callers with the same roles. Unless {@code shared} is set, the caller's principal is part of the key too, so a
+ * response is only given to requests of the same user; set it only on routes whose responses do not depend on
+ * the caller. Only 2xx responses are shared: responses carrying cookies, streamed responses and responses over
+ * {@code gateway.request-coalescing.maximum-body-size} are not, and when the first request fails, is cancelled
+ * or gets an error status the waiting ones go downstream themselves.
+ */
+@Component
+public class RequestCoalescingGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<RequestCoalescingGatewayFilterFactory.Config> {
+
+    static final String METRIC = "gateway.request.coalescing";
+
+    private final RequestCoalescingProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<Key, Sinks.One<Shared>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public RequestCoalescingGatewayFilterFactory(RequestCoalescingProperties properties, MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder(METRIC + ".in-flight", inFlight, Map::size)
+                .description("Requests currently shared with identical requests")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        List<String> keyHeaders = config.getKeyHeaders().stream()
+                .map(header -> header.toLowerCase(Locale.ROOT))
+                .toList();
+        List<PathPattern> excludedPaths = config.getExcludedPaths().stream()
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+
+        return (exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            PathContainer path = request.getPath().pathWithinApplication();
+            if (!HttpMethod.GET.equals(request.getMethod())
+                    || excludedPaths.stream().anyMatch(pattern -> pattern.matches(path))) {
+                return chain.filter(exchange);
+            }
+            Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+            String routeId = route != null ? route.getId() : "default";
+            List<List<String>> headerValues = keyHeaders.stream()
+                    .map(header -> request.getHeaders().getOrDefault(header, List.of()))
+                    .toList();
+            Mono<String> user = config.isShared()
+                    ? Mono.just("")
+                    : exchange.getPrincipal().map(Principal::getName).defaultIfEmpty("");
+            return Mono.zip(user, CallerAuthorities.of(exchange)).flatMap(caller -> coalesce(exchange, chain,
+                    new Key(routeId, path.value(), request.getURI().getRawQuery(), headerValues, caller.getT1(),
+                            caller.getT2())));
+        };
+    }
+
+    private Mono<Void> coalesce(ServerWebExchange exchange, GatewayFilterChain chain, Key key) {
+        Sinks.One<Shared> sink = Sinks.one();
+        Sinks.One<Shared> leader = inFlight.putIfAbsent(key, sink);
+        if (leader != null) {
+            return leader.asMono()
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .flatMap(shared -> {
+                        if (shared.isEmpty()) {
+                            record(key.routeId(), "fallback");
+                            return chain.filter(exchange);
+                        }
+                        record(key.routeId(), "collapsed");
+                        Shared response = shared.get();
+                        return CopyingResponse.write(exchange.getResponse(), response.status(), response.headers(),
+                                response.body());
+                    });
+        }
+        record(key.routeId(), "leader");
+        SharingResponse response = new SharingResponse(exchange.getResponse(), key, sink);
+        return chain.filter(exchange.mutate().response(response).build())
+                .doFinally(signal -> response.notCopied());
+    }
+
+    private void record(String routeId, String result) {
+        counters.computeIfAbsent(routeId + ':' + result, name -> Counter.builder(METRIC)
+                        .description("GET requests by whether they went downstream or shared another's response")
+                        .tags("route", routeId, "result", result)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    /**
+     * Hands the first request's response to the requests waiting on it. Requests arriving after the response
+     * is complete start a new round.
+     */
+    private final class SharingResponse extends CopyingResponse {
+
+        private final Key key;
+        private final Sinks.One<Shared> sink;
+
+        SharingResponse(ServerHttpResponse delegate, Key key, Sinks.One<Shared> sink) {
+            super(delegate, properties.getMaximumBodySize().toBytes());
+            this.key = key;
+            this.sink = sink;
+        }
+
+        @Override
+        protected boolean shouldCopy() {
+            return getStatusCode() != null && getStatusCode().is2xxSuccessful()
+                    && !getDelegate().getHeaders().containsKey(HttpHeaders.SET_COOKIE);
+        }
+
+        @Override
+        protected void copied(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+            inFlight.remove(key, sink);
+            sink.tryEmitValue(new Shared(status, headers, body));
+        }
+
+        @Override
+        protected void notCopied() {
+            inFlight.remove(key, sink);
+            sink.tryEmitEmpty();
+        }
+    }
+
+    private record Key(String routeId, String path, String query, List<List<String>> headers, String user,
+                       String authorities) {
+    }
+
+    private record Shared(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+    }
+
+    public static class Config {
+
+        /**
+         * Whether requests of different users share responses; leave unset on routes whose responses depend
+         * on the caller.
+         */
+        private boolean shared;
+
+        /**
+         * Request headers whose values are part of the key, besides route, path and query.
+         */
+        private List<String> keyHeaders = new ArrayList<>(List.of(HttpHeaders.ACCEPT));
+
+        private List<String> excludedPaths = new ArrayList<>();
+
+        public boolean isShared() {
+            return shared;
+        }
+
+        public void setShared(boolean shared) {
+            this.shared = shared;
+        }
+
+        public List<String> getKeyHeaders() {
+            return keyHeaders;
+        }
+
+        public void setKeyHeaders(List<String> keyHeaders) {
+            this.keyHeaders = keyHeaders;
+        }
+
+        public List<String> getExcludedPaths() {
+            return excludedPaths;
+        }
+
+        public void setExcludedPaths(List<String> excludedPaths) {
+            this.excludedPaths = excludedPaths;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package ma.enset.gatewayservice.filter;
+
+import ma.enset.gatewayservice.cache.ResponseCache;
+import ma.enset.gatewayservice.cache.ResponseCache.CachedResponse;
+import ma.enset.gatewayservice.cache.ResponseCache.Key;
+import ma.enset.gatewayservice.cache.ResponseCache.Result;
+import ma.enset.gatewayservice.config.ResponseCacheProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Serves GET requests of a route from the shared {@link ResponseCache}. Successful writes through the same
+ * route invalidate its entries, so admins see their own changes; changes made between services reach clients
+ * once the time to live has passed.
+ * <pre>
+ * - name: ResponseCache
+ *   args:
+ *     ttl: 15s
+ *     excludedPaths: /api/orders/my-orders/**
+ * </pre>
+ * Paths in {@code excludedPaths} are matched after the filters declared before this one, and are never cached;
+ * they are meant for responses that depend on the caller. Entries are keyed on the caller's authorities, so a
+ * response of a role-gated path is only served to callers with the same roles. Responses other than 200, and
+ * responses marked {@code private}, {@code no-store} or {@code no-cache} or carrying cookies, are never stored
+ * either.
+ */
+@Component
+public class ResponseCacheGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+
+    public static final String CACHE_STATUS_HEADER = "X-Cache";
+
+    private static final Set<HttpMethod> READ_METHODS = Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS);
+
+    private final ResponseCache responseCache;
+    private final ResponseCacheProperties properties;
+
+    public ResponseCacheGatewayFilterFactory(ResponseCache responseCache, ResponseCacheProperties properties) {
+        super(Config.class);
+        this.responseCache = responseCache;
+        this.properties = properties;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("ttl");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        Duration ttl = config.getTtl() != null ? config.getTtl() : properties.getDefaultTtl();
+        List<PathPattern> excludedPaths = config.getExcludedPaths().stream()
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+
+        return (exchange, chain) -> {
+            Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+            String routeId = route != null ? route.getId() : "default";
+            ServerHttpRequest request = exchange.getRequest();
+
+            if (!HttpMethod.GET.equals(request.getMethod())) {
+                if (READ_METHODS.contains(request.getMethod())) {
+                    return chain.filter(exchange);
+                }
+                return chain.filter(exchange).doOnSuccess(done -> {
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    if (status != null && status.is2xxSuccessful()) {
+                        responseCache.invalidateRoute(routeId);
+                    }
+                });
+            }
+
+            PathContainer path = request.getPath().pathWithinApplication();
+            if (excludedPaths.stream().anyMatch(pattern -> pattern.matches(path))) {
+                responseCache.record(routeId, Result.BYPASS);
+                return chain.filter(exchange);
+            }
+
+            if (forbidsStore(request.getHeaders().getCacheControl())) {
+                responseCache.record(routeId, Result.BYPASS);
+                return chain.filter(exchange);
+            }
+            return CallerAuthorities.of(exchange).flatMap(authorities -> {
+                Key key = new Key(routeId, path.value(), request.getURI().getRawQuery(),
+                        request.getHeaders().getFirst(HttpHeaders.ACCEPT), authorities);
+                CachedResponse cached = responseCache.get(key);
+                if (cached != null) {
+                    responseCache.record(routeId, Result.HIT);
+                    return writeCached(exchange.getResponse(), cached);
+                }
+                responseCache.record(routeId, Result.MISS);
+                return chain.filter(exchange.mutate()
+                        .response(new CachingResponse(exchange.getResponse(), key, ttl))
+                        .build());
+            });
+        };
+    }
+
+    private static Mono<Void> writeCached(ServerHttpResponse response, CachedResponse cached) {
+        response.getHeaders().set(CACHE_STATUS_HEADER, "HIT");
+        return CopyingResponse.write(response, cached.status(), cached.headers(), cached.body());
+    }
+
+    private static boolean forbidsStore(String cacheControl) {
+        if (cacheControl == null) {
+            return false;
+        }
+        String directives = cacheControl.toLowerCase(Locale.ROOT);
+        return directives.contains("no-store") || directives.contains("no-cache") || directives.contains("private");
+    }
+
+    /**
+     * Stores the response once its body has been written to the client. Bodies over the entry size limit are
+     * not stored.
+     */
+    private final class CachingResponse extends CopyingResponse {
+
+        private final Key key;
+        private final Duration ttl;
+
+        CachingResponse(ServerHttpResponse delegate, Key key, Duration ttl) {
+            super(delegate, properties.getMaximumEntrySize().toBytes());
+            this.key = key;
+            this.ttl = ttl;
+        }
+
+        @Override
+        protected boolean shouldCopy() {
+            HttpHeaders headers = getDelegate().getHeaders();
+            if (!HttpStatus.OK.equals(getStatusCode())
+                    || headers.containsKey(HttpHeaders.SET_COOKIE)
+                    || forbidsStore(headers.getCacheControl())) {
+                return false;
+            }
+            headers.set(CACHE_STATUS_HEADER, "MISS");
+            return true;
+        }
+
+        @Override
+        protected void copied(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+            responseCache.put(key, new CachedResponse(status, headers, body, ttl));
+        }
+    }
+
+    public static class Config {
+
+        /**
+         * Time to live of this route's entries, defaults to {@code gateway.response-cache.default-ttl}.
+         */
+        private Duration ttl;
+
+        private List<String> excludedPaths = new ArrayList<>();
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public List<String> getExcludedPaths() {
+            return excludedPaths;
+        }
+
+        public void setExcludedPaths(List<String> excludedPaths) {
+            this.excludedPaths = excludedPaths;
+        }
+    }
+}
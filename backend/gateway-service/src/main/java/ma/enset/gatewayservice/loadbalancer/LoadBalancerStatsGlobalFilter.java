@@ -0,0 +1,59 @@
+package ma.enset.gatewayservice.loadbalancer;
+
+import ma.enset.common.loadbalancer.LoadBalancerStats;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+
+/**
+ * Records the latency and outcome of each request sent to the instance the load balancer picked. A filter
+ * rather than a {@code LoadBalancerLifecycle}, whose completion callback is skipped when the client goes away.
+ */
+@Component
+public class LoadBalancerStatsGlobalFilter implements GlobalFilter, Ordered {
+
+    private final LoadBalancerStats stats;
+
+    public LoadBalancerStatsGlobalFilter(LoadBalancerStats stats) {
+        this.stats = stats;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Response<ServiceInstance> response = exchange.getAttribute(GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        if (response == null || !response.hasServer()) {
+            return chain.filter(exchange);
+        }
+        LoadBalancerStats.InstanceStats instance = stats.get(response.getServer());
+        return Mono.defer(() -> {
+            instance.started();
+            long start = System.nanoTime();
+            return chain.filter(exchange).doFinally(signal -> {
+                long now = System.nanoTime();
+                HttpStatusCode status = exchange.getResponse().getStatusCode();
+                if (signal == SignalType.CANCEL) {
+                    instance.cancelled();
+                } else if (signal == SignalType.ON_ERROR || status != null && status.is5xxServerError()) {
+                    instance.failed(now - start, now);
+                } else {
+                    instance.completed(now - start, now);
+                }
+            });
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 1;
+    }
+}
@@ -0,0 +1,149 @@
+package ma.enset.gatewayservice.ratelimit;
+
+import ma.enset.gatewayservice.config.RateLimiterProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code RequestRateLimiter} backend that keeps its token buckets in the gateway's memory instead of Redis.
+ * Each instance limits the requests it receives, so with several gateway replicas a user gets the limit once
+ * per replica. Keys come from {@link UserKeyResolver}, and each route has its own bucket per user.
+ * <pre>
+ * - name: RequestRateLimiter
+ *   args:
+ *     key-resolver: "#{@userKeyResolver}"
+ *     in-memory-rate-limiter.replenishRate: 10
+ *     in-memory-rate-limiter.burstCapacity: 20
+ *     in-memory-rate-limiter.roles.ADMIN.replenishRate: 50
+ *     in-memory-rate-limiter.roles.ADMIN.burstCapacity: 100
+ * </pre>
+ */
+@Component
+public class InMemoryRateLimiter extends AbstractRateLimiter<InMemoryRateLimiter.Config> {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryRateLimiter.class);
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "in-memory-rate-limiter";
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    public static final String REPLENISH_RATE_HEADER = "X-RateLimit-Replenish-Rate";
+    public static final String BURST_CAPACITY_HEADER = "X-RateLimit-Burst-Capacity";
+    public static final String REQUESTED_TOKENS_HEADER = "X-RateLimit-Requested-Tokens";
+
+    private final TokenBucketStore store;
+    private final Config defaultConfig;
+    private final long idleNanos;
+
+    public InMemoryRateLimiter(ConfigurationService configurationService, RateLimiterProperties properties) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.store = new TokenBucketStore(properties.getStripes());
+        this.defaultConfig = new Config();
+        this.defaultConfig.setReplenishRate(properties.getReplenishRate());
+        this.defaultConfig.setBurstCapacity(properties.getBurstCapacity());
+        this.idleNanos = properties.getIdleTimeout().toNanos();
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Limit limit = getConfig().getOrDefault(routeId, defaultConfig).limitFor(UserKeyResolver.roleOf(id));
+        int burstCapacity = limit.getBurstCapacity() > 0 ? limit.getBurstCapacity() : limit.getReplenishRate();
+        TokenBucketStore.Probe probe = store.tryConsume(routeId + '|' + id, limit.getRequestedTokens(),
+                limit.getReplenishRate(), burstCapacity, System.nanoTime());
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put(REMAINING_HEADER, Long.toString(probe.remaining()));
+        headers.put(REPLENISH_RATE_HEADER, Integer.toString(limit.getReplenishRate()));
+        headers.put(BURST_CAPACITY_HEADER, Integer.toString(burstCapacity));
+        headers.put(REQUESTED_TOKENS_HEADER, Integer.toString(limit.getRequestedTokens()));
+        if (!probe.allowed()) {
+            if (probe.waitNanos() != Long.MAX_VALUE) {
+                long seconds = TimeUnit.NANOSECONDS.toSeconds(probe.waitNanos() + TimeUnit.SECONDS.toNanos(1) - 1);
+                headers.put(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, seconds)));
+            }
+            log.debug("Rate limited {} on route {}", id, routeId);
+        }
+        return Mono.just(new Response(probe.allowed(), headers));
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.rate-limiter.eviction-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        int evicted = store.evictIdle(System.nanoTime(), idleNanos);
+        if (evicted > 0) {
+            log.debug("Evicted {} idle rate limit buckets, {} left", evicted, store.size());
+        }
+    }
+
+    public static class Limit {
+
+        private int replenishRate;
+
+        /**
+         * Defaults to the replenish rate, i.e. no bursts.
+         */
+        private int burstCapacity;
+
+        private int requestedTokens = 1;
+
+        public int getReplenishRate() {
+            return replenishRate;
+        }
+
+        public void setReplenishRate(int replenishRate) {
+            this.replenishRate = replenishRate;
+        }
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public void setBurstCapacity(int burstCapacity) {
+            this.burstCapacity = burstCapacity;
+        }
+
+        public int getRequestedTokens() {
+            return requestedTokens;
+        }
+
+        public void setRequestedTokens(int requestedTokens) {
+            this.requestedTokens = requestedTokens;
+        }
+    }
+
+    public static class Config extends Limit {
+
+        /**
+         * Limits of users by role, replacing the route's limit. Role names match case-insensitively.
+         */
+        private Map<String, Limit> roles = new HashMap<>();
+
+        public Map<String, Limit> getRoles() {
+            return roles;
+        }
+
+        public void setRoles(Map<String, Limit> roles) {
+            this.roles = roles;
+        }
+
+        Limit limitFor(String role) {
+            if (role.isEmpty()) {
+                return this;
+            }
+            for (Map.Entry<String, Limit> entry : roles.entrySet()) {
+                if (entry.getKey().equalsIgnoreCase(role)) {
+                    return entry.getValue();
+                }
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package ma.enset.gatewayservice.ratelimit;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token buckets kept in process, one per key. Keys are spread over a fixed number of stripes, each guarded by
+ * its own lock, so requests of different users rarely wait on each other and no lock is held across I/O.
+ * Buckets refill lazily when they are used; a bucket that has been idle long enough to be full again is the same
+ * as a missing one, and {@link #evictIdle} drops it.
+ */
+public class TokenBucketStore {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final Stripe[] stripes;
+
+    public TokenBucketStore(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Takes {@code requested} tokens from the bucket of {@code key} if it holds enough of them.
+     *
+     * @param replenishRate tokens added per second
+     * @param burstCapacity tokens a bucket holds at most, and holds when it is created
+     * @param now           the current {@link System#nanoTime()}
+     */
+    public Probe tryConsume(String key, int requested, int replenishRate, int burstCapacity, long now) {
+        Stripe stripe = stripeOf(key);
+        stripe.lock.lock();
+        try {
+            Bucket bucket = stripe.buckets.get(key);
+            if (bucket == null) {
+                bucket = new Bucket(burstCapacity, now);
+                stripe.buckets.put(key, bucket);
+            }
+            bucket.refill(replenishRate, burstCapacity, now);
+            if (bucket.tokens >= requested) {
+                bucket.tokens -= requested;
+                return new Probe(true, (long) bucket.tokens, 0);
+            }
+            double missing = requested - bucket.tokens;
+            long waitNanos = requested > burstCapacity || replenishRate <= 0
+                    ? Long.MAX_VALUE
+                    : (long) Math.ceil(missing * NANOS_PER_SECOND / replenishRate);
+            return new Probe(false, (long) bucket.tokens, waitNanos);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the buckets that were not used for {@code idleNanos} and have refilled since.
+     *
+     * @return the number of buckets removed
+     */
+    public int evictIdle(long now, long idleNanos) {
+        int evicted = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                Iterator<Bucket> buckets = stripe.buckets.values().iterator();
+                while (buckets.hasNext()) {
+                    Bucket bucket = buckets.next();
+                    if (now - bucket.updatedAt >= idleNanos && bucket.isFullAt(now)) {
+                        buckets.remove();
+                        evicted++;
+                    }
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return evicted;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.buckets.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    private Stripe stripeOf(String key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    /**
+     * @param waitNanos time until enough tokens are available, {@link Long#MAX_VALUE} if they never will be
+     */
+    public record Probe(boolean allowed, long remaining, long waitNanos) {
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, Bucket> buckets = new HashMap<>();
+    }
+
+    private static final class Bucket {
+
+        private double tokens;
+        private long updatedAt;
+        private int replenishRate;
+        private int burstCapacity;
+
+        Bucket(int burstCapacity, long now) {
+            this.tokens = burstCapacity;
+            this.updatedAt = now;
+        }
+
+        void refill(int replenishRate, int burstCapacity, long now) {
+            long elapsed = Math.max(0, now - updatedAt);
+            tokens = Math.min(burstCapacity, tokens + (double) elapsed * replenishRate / NANOS_PER_SECOND);
+            updatedAt = now;
+            this.replenishRate = replenishRate;
+            this.burstCapacity = burstCapacity;
+        }
+
+        boolean isFullAt(long now) {
+            return tokens + (double) (now - updatedAt) * replenishRate / NANOS_PER_SECOND >= burstCapacity;
+        }
+    }
+}
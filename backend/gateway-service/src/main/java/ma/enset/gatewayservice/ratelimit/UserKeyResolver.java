@@ -0,0 +1,56 @@
+package ma.enset.gatewayservice.ratelimit;
+
+import ma.enset.gatewayservice.config.RateLimiterProperties;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Keys requests by the {@code sub} claim of their JWT, prefixed with the caller's highest-priority role from
+ * {@code gateway.rate-limiter.roles} so the limiter can apply that role's limits. Requests without a JWT get
+ * no key, which the {@code RequestRateLimiter} filter rejects.
+ */
+@Component
+public class UserKeyResolver implements KeyResolver {
+
+    private static final char SEPARATOR = ':';
+
+    private final RateLimiterProperties properties;
+
+    public UserKeyResolver(RateLimiterProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public Mono<String> resolve(ServerWebExchange exchange) {
+        return exchange.getPrincipal()
+                .filter(JwtAuthenticationToken.class::isInstance)
+                .cast(JwtAuthenticationToken.class)
+                .filter(authentication -> authentication.getToken().getSubject() != null)
+                .map(authentication -> role(authentication) + SEPARATOR + authentication.getToken().getSubject());
+    }
+
+    private String role(JwtAuthenticationToken authentication) {
+        Set<String> authorities = authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toSet());
+        return properties.getRoles().stream()
+                .filter(role -> authorities.contains("ROLE_" + role))
+                .findFirst()
+                .orElse("");
+    }
+
+    /**
+     * @return the role a key was resolved with, empty if the user has none of the configured roles
+     */
+    static String roleOf(String key) {
+        int separator = key.indexOf(SEPARATOR);
+        return separator > 0 ? key.substring(0, separator) : "";
+    }
+}
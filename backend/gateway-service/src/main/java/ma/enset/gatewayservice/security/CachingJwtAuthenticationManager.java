@@ -0,0 +1,124 @@
+package ma.enset.gatewayservice.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import ma.enset.gatewayservice.config.JwtCacheProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Set;
+
+/**
+ * Remembers the authentication of each bearer token it verified, so a token sent again skips decoding,
+ * signature verification and role mapping. Tokens are keyed by their SHA-256 hash and kept until they expire,
+ * at most {@code gateway.jwt-cache.max-ttl}; failed authentications are not cached. Tokens signed with a key
+ * that has left the issuer's key set are dropped by {@link #retainSigningKeys}.
+ */
+public class CachingJwtAuthenticationManager implements ReactiveAuthenticationManager {
+
+    private static final Logger log = LoggerFactory.getLogger(CachingJwtAuthenticationManager.class);
+
+    static final String METRIC = "gateway.jwt.cache";
+
+    private final ReactiveAuthenticationManager delegate;
+    private final JwtCacheProperties properties;
+    private final Clock clock;
+    private final Cache<String, Entry> cache;
+
+    public CachingJwtAuthenticationManager(ReactiveAuthenticationManager delegate, JwtCacheProperties properties,
+                                           MeterRegistry meterRegistry) {
+        this(delegate, properties, meterRegistry, Clock.systemUTC());
+    }
+
+    CachingJwtAuthenticationManager(ReactiveAuthenticationManager delegate, JwtCacheProperties properties,
+                                    MeterRegistry meterRegistry, Clock clock) {
+        this.delegate = delegate;
+        this.properties = properties;
+        this.clock = clock;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfter(Expiry.creating((String key, Entry entry) -> entry.ttl()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, METRIC);
+    }
+
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        if (!properties.isEnabled() || !(authentication instanceof BearerTokenAuthenticationToken bearer)) {
+            return delegate.authenticate(authentication);
+        }
+        String key = hash(bearer.getToken());
+        Entry cached = cache.getIfPresent(key);
+        if (cached != null) {
+            if (clock.instant().isBefore(cached.expiresAt())) {
+                return Mono.just(cached.authentication());
+            }
+            cache.invalidate(key);
+        }
+        return delegate.authenticate(authentication).doOnNext(result -> store(key, result));
+    }
+
+    /**
+     * Drops the tokens signed with keys other than {@code keyIds}, the ids of the issuer's current signing keys.
+     */
+    public void retainSigningKeys(Set<String> keyIds) {
+        long before = cache.estimatedSize();
+        cache.asMap().values().removeIf(entry -> entry.keyId() != null && !keyIds.contains(entry.keyId()));
+        long removed = before - cache.estimatedSize();
+        if (removed > 0) {
+            log.info("Dropped {} cached tokens signed with keys no longer published", removed);
+        }
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    private void store(String key, Authentication result) {
+        if (!(result instanceof JwtAuthenticationToken token)) {
+            return;
+        }
+        Jwt jwt = token.getToken();
+        if (jwt.getExpiresAt() == null) {
+            return;
+        }
+        Instant now = clock.instant();
+        Duration ttl = Duration.between(now, jwt.getExpiresAt());
+        if (ttl.compareTo(properties.getMaxTtl()) > 0) {
+            ttl = properties.getMaxTtl();
+        }
+        if (!ttl.isNegative() && !ttl.isZero()) {
+            Object keyId = jwt.getHeaders().get("kid");
+            cache.put(key, new Entry(result, keyId != null ? keyId.toString() : null, now.plus(ttl), ttl));
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record Entry(Authentication authentication, String keyId, Instant expiresAt, Duration ttl) {
+    }
+}
@@ -0,0 +1,65 @@
+package ma.enset.gatewayservice.security;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the issuer's key set periodically and drops cached tokens whose signing key was removed from it, so a
+ * retired or compromised key stops being accepted without waiting for its tokens to expire.
+ */
+@Component
+@ConditionalOnProperty(prefix = "spring.security.oauth2.resourceserver.jwt", name = "jwk-set-uri")
+public class SigningKeyWatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(SigningKeyWatcher.class);
+
+    private final CachingJwtAuthenticationManager authenticationManager;
+    private final WebClient webClient;
+    private final String jwkSetUri;
+
+    public SigningKeyWatcher(CachingJwtAuthenticationManager authenticationManager, WebClient.Builder webClientBuilder,
+                             @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri) {
+        this.authenticationManager = authenticationManager;
+        this.webClient = webClientBuilder.build();
+        this.jwkSetUri = jwkSetUri;
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.jwt-cache.key-check-interval-ms:60000}")
+    public void checkSigningKeys() {
+        if (authenticationManager.size() == 0) {
+            return;
+        }
+        webClient.get()
+                .uri(jwkSetUri)
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(Duration.ofSeconds(5))
+                .map(SigningKeyWatcher::keyIds)
+                .subscribe(authenticationManager::retainSigningKeys,
+                        e -> log.warn("Could not read the signing keys from {}: {}", jwkSetUri, e.getMessage()));
+    }
+
+    static Set<String> keyIds(String jwkSet) {
+        try {
+            return JWKSet.parse(jwkSet).getKeys().stream()
+                    .map(JWK::getKeyID)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid JWK set", e);
+        }
+    }
+}
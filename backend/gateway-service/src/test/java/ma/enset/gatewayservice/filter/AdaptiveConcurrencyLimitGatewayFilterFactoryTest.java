@@ -0,0 +1,82 @@
+package ma.enset.gatewayservice.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimitGatewayFilterFactoryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Sinks.Empty<Void> release = Sinks.empty();
+
+    @Test
+    void requestsOverTheLimitAreRejectedAtOnce() {
+        GatewayFilter filter = filter();
+        MockServerWebExchange first = exchange();
+        MockServerWebExchange second = exchange();
+        MockServerWebExchange third = exchange();
+
+        Mono<Void> inFlight = Mono.when(filter.filter(first, downstream(HttpStatus.OK)).cache(),
+                filter.filter(second, downstream(HttpStatus.OK)).cache());
+        inFlight.subscribe();
+        filter.filter(third, downstream(HttpStatus.OK)).block(Duration.ofSeconds(2));
+
+        assertThat(third.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(third.getResponse().getBodyAsString().block()).contains("\"service\":\"command-service\"");
+        assertThat(gauge("in-flight")).isEqualTo(2);
+        assertThat(meterRegistry.get(AdaptiveConcurrencyLimitGatewayFilterFactory.METRIC + ".rejected")
+                .tag("route", "command-service").counter().count()).isEqualTo(1);
+
+        release.tryEmitEmpty();
+        inFlight.block(Duration.ofSeconds(2));
+        assertThat(first.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(gauge("in-flight")).isZero();
+    }
+
+    @Test
+    void sheddingByTheServiceLowersTheLimit() {
+        GatewayFilter filter = filter();
+        release.tryEmitEmpty();
+
+        filter.filter(exchange(), downstream(HttpStatus.SERVICE_UNAVAILABLE)).block(Duration.ofSeconds(2));
+        filter.filter(exchange(), downstream(HttpStatus.SERVICE_UNAVAILABLE)).block(Duration.ofSeconds(2));
+
+        assertThat(gauge("limit")).isEqualTo(1);
+    }
+
+    private GatewayFilter filter() {
+        AdaptiveConcurrencyLimitGatewayFilterFactory.Config config =
+                new AdaptiveConcurrencyLimitGatewayFilterFactory.Config();
+        config.setRouteId("command-service");
+        config.setInitialLimit(2);
+        config.setMinLimit(1);
+        return new AdaptiveConcurrencyLimitGatewayFilterFactory(meterRegistry).apply(config);
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(AdaptiveConcurrencyLimitGatewayFilterFactory.METRIC + "." + name)
+                .tag("route", "command-service").gauge().value();
+    }
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/orders/my-orders"));
+    }
+
+    /**
+     * Answers with {@code status} once {@link #release} completes.
+     */
+    private GatewayFilterChain downstream(HttpStatus status) {
+        return exchange -> release.asMono().then(Mono.fromRunnable(() ->
+                exchange.getResponse().setStatusCode(status)));
+    }
+}
@@ -0,0 +1,151 @@
+package ma.enset.gatewayservice.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.enset.common.loadbalancer.LatencyAwareLoadBalancer;
+import ma.enset.gatewayservice.config.HedgingProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+class HedgeGatewayFilterFactoryTest {
+
+    private static final Route ROUTE = Route.async()
+            .id("product-service")
+            .uri("lb://PRODUCT-SERVICE")
+            .predicate(exchange -> true)
+            .build();
+
+    private static final ServiceInstance SLOW = instance("10.0.0.1");
+    private static final ServiceInstance FAST = instance("10.0.0.2");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HedgingProperties properties = new HedgingProperties();
+    private final AtomicInteger downstreamCalls = new AtomicInteger();
+    private final AtomicBoolean slowCancelled = new AtomicBoolean();
+
+    @Test
+    void slowRequestIsHedgedToAnotherInstanceAndTheSlowOneCancelled() {
+        properties.setBudgetRatio(1);
+        MockServerWebExchange exchange = exchange("/api/products/1");
+
+        filter().filter(exchange, downstream(Duration.ofSeconds(5))).block(Duration.ofSeconds(2));
+
+        assertThat(downstreamCalls).hasValue(2);
+        assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("10.0.0.2");
+        assertThat(exchange.getResponse().getHeaders().getContentType()).hasToString("application/json");
+        assertThat(slowCancelled).isTrue();
+        assertThat(count("sent")).isEqualTo(1);
+        assertThat(count("won")).isEqualTo(1);
+    }
+
+    @Test
+    void serverErrorOfTheHedgeWaitsForTheSlowRequest() {
+        properties.setBudgetRatio(1);
+        MockServerWebExchange exchange = exchange("/api/products/1");
+
+        filter().filter(exchange, downstream(Duration.ofMillis(200), HttpStatus.SERVICE_UNAVAILABLE))
+                .block(Duration.ofSeconds(2));
+
+        assertThat(downstreamCalls).hasValue(2);
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("10.0.0.1");
+        assertThat(slowCancelled).isFalse();
+        assertThat(count("sent")).isEqualTo(1);
+        assertThat(meterRegistry.find(HedgeGatewayFilterFactory.METRIC).tag("outcome", "won").counter()).isNull();
+    }
+
+    @Test
+    void hedgesStopWhenTheBudgetIsSpent() {
+        MockServerWebExchange exchange = exchange("/api/products/1");
+
+        filter().filter(exchange, downstream(Duration.ofMillis(200))).block(Duration.ofSeconds(2));
+
+        assertThat(downstreamCalls).hasValue(1);
+        assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("10.0.0.1");
+        assertThat(count("budget-exhausted")).isEqualTo(1);
+    }
+
+    @Test
+    void fastResponsesAndUnlistedPathsAreNotHedged() {
+        properties.setBudgetRatio(1);
+        GatewayFilter filter = filter();
+        MockServerWebExchange fast = exchange("/api/products/1");
+        filter.filter(fast, downstream(Duration.ZERO)).block(Duration.ofSeconds(2));
+        filter.filter(exchange("/api/products"), downstream(Duration.ofMillis(200))).block(Duration.ofSeconds(2));
+
+        assertThat(downstreamCalls).hasValue(2);
+        assertThat(fast.getResponse().getBodyAsString().block()).isEqualTo("10.0.0.1");
+        assertThat(meterRegistry.find(HedgeGatewayFilterFactory.METRIC).counters()).isEmpty();
+    }
+
+    private GatewayFilter filter() {
+        HedgeGatewayFilterFactory.Config config = new HedgeGatewayFilterFactory.Config();
+        config.setMaxDelay(Duration.ofMillis(50));
+        config.setPaths(List.of("/api/products/{id}"));
+        return new HedgeGatewayFilterFactory(properties, meterRegistry).apply(config);
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.get(HedgeGatewayFilterFactory.METRIC)
+                .tags("route", "product-service", "outcome", outcome).counter().count();
+    }
+
+    private static MockServerWebExchange exchange(String path) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(path));
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, ROUTE);
+        return exchange;
+    }
+
+    private GatewayFilterChain downstream(Duration slowLatency) {
+        return downstream(slowLatency, HttpStatus.OK);
+    }
+
+    /**
+     * Stands in for the load balancer and the instances: the slow instance answers after {@code slowLatency},
+     * unless the request excludes it, and the fast one at once with {@code fastStatus}.
+     */
+    private GatewayFilterChain downstream(Duration slowLatency, HttpStatus fastStatus) {
+        return exchange -> {
+            downstreamCalls.incrementAndGet();
+            Set<?> excluded = exchange.getAttributeOrDefault(LatencyAwareLoadBalancer.EXCLUDED_INSTANCES_ATTR, Set.of());
+            ServiceInstance instance = excluded.contains("10.0.0.1:8081") ? FAST : SLOW;
+            exchange.getAttributes().put(GATEWAY_LOADBALANCER_RESPONSE_ATTR, new DefaultResponse(instance));
+            Mono<Void> write = Mono.defer(() -> {
+                ServerHttpResponse response = exchange.getResponse();
+                response.setStatusCode(instance == FAST ? fastStatus : HttpStatus.OK);
+                response.getHeaders().set(HttpHeaders.CONTENT_TYPE, "application/json");
+                byte[] bytes = instance.getHost().getBytes(StandardCharsets.UTF_8);
+                return response.writeWith(Mono.just(response.bufferFactory().wrap(bytes)));
+            });
+            if (instance == FAST) {
+                return write;
+            }
+            return Mono.delay(slowLatency).then(write).doOnCancel(() -> slowCancelled.set(true));
+        };
+    }
+
+    private static ServiceInstance instance(String host) {
+        return new DefaultServiceInstance(host + ":8081", "PRODUCT-SERVICE", host, 8081, false);
+    }
+}
@@ -0,0 +1,77 @@
+package ma.enset.gatewayservice.filter;
+
+import ma.enset.common.security.InternalIdentityProperties;
+import ma.enset.gatewayservice.config.JwtCacheProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import reactor.core.publisher.Mono;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InternalIdentityGlobalFilterTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    private final AtomicReference<String> forwarded = new AtomicReference<>();
+    private final GatewayFilterChain chain = exchange -> {
+        forwarded.set(exchange.getRequest().getHeaders().getFirst(InternalIdentityProperties.HEADER));
+        return Mono.empty();
+    };
+
+    @Test
+    void attachesASignedAssertionOfTheVerifiedUser() {
+        Jwt userToken = Jwt.withTokenValue("keycloak-token")
+                .header("alg", "RS256")
+                .subject("user-1")
+                .claim("preferred_username", "alice")
+                .claim("realm_access", Map.of("roles", List.of("CLIENT")))
+                .expiresAt(Instant.now().plusSeconds(60))
+                .build();
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/orders")
+                .header(InternalIdentityProperties.HEADER, "forged"));
+
+        filter(true).filter(exchange.mutate().principal(Mono.just(new JwtAuthenticationToken(userToken))).build(),
+                chain).block();
+
+        Jwt assertion = NimbusJwtDecoder
+                .withSecretKey(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"))
+                .macAlgorithm(MacAlgorithm.HS256)
+                .build()
+                .decode(forwarded.get());
+        assertThat(assertion.getSubject()).isEqualTo("user-1");
+        assertThat(assertion.getClaimAsString("iss")).isEqualTo(InternalIdentityProperties.ISSUER);
+        assertThat(assertion.getClaimAsString("preferred_username")).isEqualTo("alice");
+        assertThat(assertion.getClaimAsMap("realm_access")).containsEntry("roles", List.of("CLIENT"));
+        assertThat(assertion.getExpiresAt()).isBeforeOrEqualTo(userToken.getExpiresAt());
+    }
+
+    @Test
+    void removesTheHeaderSentByClients() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/orders")
+                .header(InternalIdentityProperties.HEADER, "forged"));
+
+        filter(false).filter(exchange, chain).block();
+
+        assertThat(forwarded.get()).isNull();
+    }
+
+    private static InternalIdentityGlobalFilter filter(boolean enabled) {
+        InternalIdentityProperties properties = new InternalIdentityProperties();
+        properties.setEnabled(enabled);
+        properties.setSecret(SECRET);
+        return new InternalIdentityGlobalFilter(properties, new JwtCacheProperties());
+    }
+}
@@ -0,0 +1,168 @@
+package ma.enset.gatewayservice.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.enset.gatewayservice.config.RequestCoalescingProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+class RequestCoalescingGatewayFilterFactoryTest {
+
+    private static final Route ROUTE = Route.async()
+            .id("product-service")
+            .uri("lb://PRODUCT-SERVICE")
+            .predicate(exchange -> true)
+            .build();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RequestCoalescingGatewayFilterFactory factory =
+            new RequestCoalescingGatewayFilterFactory(new RequestCoalescingProperties(), meterRegistry);
+    private final AtomicInteger downstreamCalls = new AtomicInteger();
+    private final Sinks.Empty<Void> release = Sinks.empty();
+
+    @Test
+    void concurrentIdenticalGetsShareOneDownstreamCall() {
+        GatewayFilter filter = factory.apply(config(true));
+        List<MockServerWebExchange> exchanges = List.of(
+                exchange("/api/products/1", null), exchange("/api/products/1", null),
+                exchange("/api/products/1", null), exchange("/api/products/2", null));
+
+        Mono<Void> all = Mono.when(exchanges.stream()
+                .map(exchange -> filter.filter(exchange, downstream()).cache())
+                .peek(Mono::subscribe)
+                .toList());
+        release.tryEmitEmpty();
+        all.block(Duration.ofSeconds(5));
+
+        assertThat(downstreamCalls).hasValue(2);
+        for (MockServerWebExchange exchange : exchanges.subList(0, 3)) {
+            assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(exchange.getResponse().getHeaders().getContentType()).hasToString("application/json");
+            assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("{\"call\":1}");
+        }
+        assertThat(count("leader")).isEqualTo(2);
+        assertThat(count("collapsed")).isEqualTo(2);
+    }
+
+    @Test
+    void unsharedRoutesOnlyCollapseRequestsOfTheSameUser() {
+        GatewayFilter filter = factory.apply(config(false));
+        List<MockServerWebExchange> exchanges = List.of(
+                exchange("/api/orders/my-orders", user("alice")), exchange("/api/orders/my-orders", user("alice")),
+                exchange("/api/orders/my-orders", user("bob")));
+
+        Mono<Void> all = Mono.when(exchanges.stream()
+                .map(exchange -> filter.filter(exchange, downstream()).cache())
+                .peek(Mono::subscribe)
+                .toList());
+        release.tryEmitEmpty();
+        all.block(Duration.ofSeconds(5));
+
+        assertThat(downstreamCalls).hasValue(2);
+        assertThat(exchanges.get(1).getResponse().getBodyAsString().block())
+                .isEqualTo(exchanges.get(0).getResponse().getBodyAsString().block());
+        assertThat(exchanges.get(2).getResponse().getBodyAsString().block())
+                .isNotEqualTo(exchanges.get(0).getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void sharedRoutesOnlyCollapseRequestsWithTheSameRoles() {
+        GatewayFilter filter = factory.apply(config(true));
+        List<MockServerWebExchange> exchanges = List.of(
+                exchange("/api/products/1", new TestingAuthenticationToken("alice", null, "ROLE_CLIENT")),
+                exchange("/api/products/1", new TestingAuthenticationToken("bob", null, "ROLE_CLIENT")),
+                exchange("/api/products/1", new TestingAuthenticationToken("carol", null, "ROLE_ADMIN")));
+
+        runTogether(filter, exchanges, HttpStatus.OK);
+
+        assertThat(downstreamCalls).hasValue(2);
+        assertThat(exchanges.get(1).getResponse().getBodyAsString().block())
+                .isEqualTo(exchanges.get(0).getResponse().getBodyAsString().block());
+        assertThat(exchanges.get(2).getResponse().getBodyAsString().block())
+                .isNotEqualTo(exchanges.get(0).getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void errorResponsesAreNotShared() {
+        GatewayFilter filter = factory.apply(config(true));
+        List<MockServerWebExchange> exchanges = List.of(
+                exchange("/api/products/1", null), exchange("/api/products/1", null));
+
+        runTogether(filter, exchanges, HttpStatus.SERVICE_UNAVAILABLE);
+
+        assertThat(downstreamCalls).hasValue(2);
+        assertThat(count("fallback")).isEqualTo(1);
+    }
+
+    private void runTogether(GatewayFilter filter, List<MockServerWebExchange> exchanges, HttpStatus status) {
+        Mono<Void> all = Mono.when(exchanges.stream()
+                .map(exchange -> filter.filter(exchange, downstream(status)).cache())
+                .peek(Mono::subscribe)
+                .toList());
+        release.tryEmitEmpty();
+        all.block(Duration.ofSeconds(5));
+    }
+
+    private double count(String result) {
+        return meterRegistry.get(RequestCoalescingGatewayFilterFactory.METRIC)
+                .tags("route", "product-service", "result", result).counter().count();
+    }
+
+    private static RequestCoalescingGatewayFilterFactory.Config config(boolean shared) {
+        RequestCoalescingGatewayFilterFactory.Config config = new RequestCoalescingGatewayFilterFactory.Config();
+        config.setShared(shared);
+        return config;
+    }
+
+    private static Principal user(String name) {
+        return () -> name;
+    }
+
+    private static MockServerWebExchange exchange(String path, Principal principal) {
+        MockServerWebExchange.Builder builder = MockServerWebExchange.builder(MockServerHttpRequest.get(path));
+        if (principal != null) {
+            builder.principal(principal);
+        }
+        MockServerWebExchange exchange = builder.build();
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, ROUTE);
+        return exchange;
+    }
+
+    /**
+     * Answers once {@link #release} completes, so all requests are in flight together.
+     */
+    private GatewayFilterChain downstream() {
+        return downstream(HttpStatus.OK);
+    }
+
+    private GatewayFilterChain downstream(HttpStatus status) {
+        return exchange -> {
+            int call = downstreamCalls.incrementAndGet();
+            return release.asMono().then(Mono.defer(() -> {
+                ServerHttpResponse response = exchange.getResponse();
+                response.setStatusCode(status);
+                response.getHeaders().set(HttpHeaders.CONTENT_TYPE, "application/json");
+                byte[] bytes = ("{\"call\":" + call + "}").getBytes(StandardCharsets.UTF_8);
+                return response.writeWith(Mono.just(response.bufferFactory().wrap(bytes)));
+            }));
+        };
+    }
+}
@@ -0,0 +1,134 @@
+package ma.enset.gatewayservice.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.enset.gatewayservice.cache.ResponseCache;
+import ma.enset.gatewayservice.config.ResponseCacheProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+class ResponseCacheGatewayFilterFactoryTest {
+
+    private static final Route ROUTE = Route.async()
+            .id("product-service")
+            .uri("lb://PRODUCT-SERVICE")
+            .predicate(exchange -> true)
+            .build();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger downstreamCalls = new AtomicInteger();
+    private GatewayFilter filter;
+    private ResponseCache responseCache;
+
+    @BeforeEach
+    void setUp() {
+        ResponseCacheProperties properties = new ResponseCacheProperties();
+        responseCache = new ResponseCache(properties, meterRegistry);
+        ResponseCacheGatewayFilterFactory factory = new ResponseCacheGatewayFilterFactory(responseCache, properties);
+        ResponseCacheGatewayFilterFactory.Config config = new ResponseCacheGatewayFilterFactory.Config();
+        config.setTtl(Duration.ofMinutes(1));
+        config.setExcludedPaths(List.of("/api/orders/my-orders/**"));
+        filter = factory.apply(config);
+    }
+
+    @Test
+    void secondGetIsServedFromTheCache() {
+        MockServerWebExchange first = exchange(MockServerHttpRequest.get("/api/products?page=1"));
+        filter.filter(first, downstream(HttpStatus.OK, "[1]", null)).block();
+        MockServerWebExchange second = exchange(MockServerHttpRequest.get("/api/products?page=1"));
+        filter.filter(second, downstream(HttpStatus.OK, "[2]", null)).block();
+
+        assertThat(downstreamCalls).hasValue(1);
+        assertThat(second.getResponse().getBodyAsString().block()).isEqualTo("[1]");
+        assertThat(second.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("HIT");
+        assertThat(second.getResponse().getHeaders().getContentType()).hasToString("application/json");
+        assertThat(meterRegistry.get("gateway.response.cache.requests")
+                .tags("route", "product-service", "result", "hit").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void excludedPathsAndPrivateOrFailedResponsesAreNotCached() {
+        for (int i = 0; i < 2; i++) {
+            filter.filter(exchange(MockServerHttpRequest.get("/api/orders/my-orders")),
+                    downstream(HttpStatus.OK, "[]", null)).block();
+            filter.filter(exchange(MockServerHttpRequest.get("/api/products/private")),
+                    downstream(HttpStatus.OK, "{}", "private, max-age=60")).block();
+            filter.filter(exchange(MockServerHttpRequest.get("/api/products/missing")),
+                    downstream(HttpStatus.NOT_FOUND, "{}", null)).block();
+        }
+
+        assertThat(downstreamCalls).hasValue(6);
+        assertThat(responseCache.size()).isZero();
+    }
+
+    @Test
+    void responseCachedForAnAdminIsNotServedToAClient() {
+        filter.filter(as("admin", "ROLE_ADMIN", MockServerHttpRequest.get("/api/products/low-stock")),
+                downstream(HttpStatus.OK, "[{\"stock\":2}]", null)).block();
+        ServerWebExchange client = as("alice", "ROLE_CLIENT", MockServerHttpRequest.get("/api/products/low-stock"));
+        filter.filter(client, downstream(HttpStatus.FORBIDDEN, "{}", null)).block();
+        ServerWebExchange otherAdmin = as("bob", "ROLE_ADMIN", MockServerHttpRequest.get("/api/products/low-stock"));
+        filter.filter(otherAdmin, downstream(HttpStatus.OK, "[]", null)).block();
+
+        assertThat(downstreamCalls).hasValue(2);
+        assertThat(client.getResponse().getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+        assertThat(otherAdmin.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("HIT");
+    }
+
+    @Test
+    void successfulWriteInvalidatesTheRoute() {
+        filter.filter(exchange(MockServerHttpRequest.get("/api/products/1")),
+                downstream(HttpStatus.OK, "{\"stock\":5}", null)).block();
+        filter.filter(exchange(MockServerHttpRequest.put("/api/products/1")),
+                downstream(HttpStatus.OK, "{\"stock\":4}", null)).block();
+        MockServerWebExchange read = exchange(MockServerHttpRequest.get("/api/products/1"));
+        filter.filter(read, downstream(HttpStatus.OK, "{\"stock\":4}", null)).block();
+
+        assertThat(downstreamCalls).hasValue(3);
+        assertThat(read.getResponse().getBodyAsString().block()).isEqualTo("{\"stock\":4}");
+    }
+
+    private static MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, ROUTE);
+        return exchange;
+    }
+
+    private static ServerWebExchange as(String user, String role, MockServerHttpRequest.BaseBuilder<?> request) {
+        return exchange(request).mutate()
+                .principal(Mono.just(new TestingAuthenticationToken(user, null, role)))
+                .build();
+    }
+
+    private GatewayFilterChain downstream(HttpStatus status, String body, String cacheControl) {
+        return exchange -> {
+            downstreamCalls.incrementAndGet();
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(status);
+            response.getHeaders().set(HttpHeaders.CONTENT_TYPE, "application/json");
+            if (cacheControl != null) {
+                response.getHeaders().setCacheControl(cacheControl);
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(bytes)));
+        };
+    }
+}
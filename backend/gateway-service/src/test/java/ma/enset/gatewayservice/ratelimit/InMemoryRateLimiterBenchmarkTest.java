@@ -0,0 +1,80 @@
+package ma.enset.gatewayservice.ratelimit;
+
+import ma.enset.gatewayservice.config.RateLimiterProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.format.support.DefaultFormattingConversionService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Time the limiter adds to a request, with 8 threads checking requests of 10,000 users. The time is per thread,
+ * so waiting on a stripe lock is included. Run with
+ * {@code mvn test -Dtest=InMemoryRateLimiterBenchmarkTest -Dbenchmarks=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class InMemoryRateLimiterBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryRateLimiterBenchmarkTest.class);
+
+    private static final int THREADS = 8;
+    private static final int USERS = 10_000;
+    private static final int REQUESTS_PER_THREAD = 500_000;
+
+    @Test
+    void measureOverheadPerRequest() throws Exception {
+        RateLimiterProperties properties = new RateLimiterProperties();
+        properties.setReplenishRate(1_000_000);
+        properties.setBurstCapacity(1_000_000);
+        InMemoryRateLimiter rateLimiter = new InMemoryRateLimiter(new ConfigurationService(
+                new DefaultListableBeanFactory(), DefaultFormattingConversionService::new, () -> null), properties);
+        String[] keys = new String[USERS];
+        for (int i = 0; i < USERS; i++) {
+            keys[i] = "CLIENT:user-" + i;
+        }
+
+        run(rateLimiter, keys, REQUESTS_PER_THREAD / 5);
+        long start = System.nanoTime();
+        run(rateLimiter, keys, REQUESTS_PER_THREAD);
+        double nanosPerRequest = (double) (System.nanoTime() - start) / REQUESTS_PER_THREAD;
+
+        log.warn("Rate limiter overhead with {} threads and {} users: {} ns per request", THREADS, USERS,
+                String.format("%.0f", nanosPerRequest));
+        assertThat(nanosPerRequest).isLessThan(50_000);
+    }
+
+    private static void run(InMemoryRateLimiter rateLimiter, String[] keys, int requests) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int offset = t * 7919;
+                results.add(executor.submit(() -> {
+                    long allowed = 0;
+                    for (int i = 0; i < requests; i++) {
+                        if (rateLimiter.isAllowed("command-service", keys[(offset + i) % keys.length])
+                                .block().isAllowed()) {
+                            allowed++;
+                        }
+                    }
+                    return allowed;
+                }));
+            }
+            for (Future<Long> result : results) {
+                assertThat(result.get()).isEqualTo(requests);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package ma.enset.gatewayservice.ratelimit;
+
+import ma.enset.gatewayservice.config.RateLimiterProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.gateway.event.FilterArgsEvent;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter.Response;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.format.support.DefaultFormattingConversionService;
+import org.springframework.http.HttpHeaders;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryRateLimiterTest {
+
+    private InMemoryRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        ConfigurationService configurationService = new ConfigurationService(new DefaultListableBeanFactory(),
+                DefaultFormattingConversionService::new, () -> null);
+        rateLimiter = new InMemoryRateLimiter(configurationService, new RateLimiterProperties());
+        rateLimiter.onApplicationEvent(new FilterArgsEvent(this, "command-service", Map.of(
+                "key-resolver", "#{@userKeyResolver}",
+                "in-memory-rate-limiter.replenishRate", "1",
+                "in-memory-rate-limiter.burstCapacity", "2",
+                "in-memory-rate-limiter.roles.ADMIN.replenishRate", "1",
+                "in-memory-rate-limiter.roles.ADMIN.burstCapacity", "5")));
+    }
+
+    @Test
+    void rejectsOnceTheBurstIsSpentAndSaysWhenToRetry() {
+        assertThat(allowed("command-service", "CLIENT:alice")).isTrue();
+        assertThat(allowed("command-service", "CLIENT:alice")).isTrue();
+        Response rejected = rateLimiter.isAllowed("command-service", "CLIENT:alice").block();
+
+        assertThat(rejected.isAllowed()).isFalse();
+        assertThat(rejected.getHeaders())
+                .containsEntry(HttpHeaders.RETRY_AFTER, "1")
+                .containsEntry(InMemoryRateLimiter.REMAINING_HEADER, "0")
+                .containsEntry(InMemoryRateLimiter.BURST_CAPACITY_HEADER, "2");
+        assertThat(allowed("command-service", "CLIENT:bob")).isTrue();
+    }
+
+    @Test
+    void appliesRoleLimitsAndKeepsABucketPerRoute() {
+        int admin = 0;
+        while (allowed("command-service", "ADMIN:carol")) {
+            admin++;
+        }
+        assertThat(admin).isEqualTo(5);
+
+        int otherRoute = 0;
+        while (allowed("product-service", "ADMIN:carol")) {
+            otherRoute++;
+        }
+        assertThat(otherRoute).isEqualTo(new RateLimiterProperties().getBurstCapacity());
+    }
+
+    @Test
+    void evictsOnlyIdleBucketsThatHaveRefilled() {
+        TokenBucketStore store = new TokenBucketStore(4);
+        long start = 0;
+        long second = TimeUnit.SECONDS.toNanos(1);
+        store.tryConsume("drained", 10, 1, 10, start);
+        store.tryConsume("untouched", 1, 10, 10, start);
+
+        assertThat(store.evictIdle(start + 5 * second, 5 * second)).isEqualTo(1);
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(store.evictIdle(start + 10 * second, 5 * second)).isEqualTo(1);
+        assertThat(store.size()).isZero();
+    }
+
+    private boolean allowed(String routeId, String key) {
+        return rateLimiter.isAllowed(routeId, key).block().isAllowed();
+    }
+}
@@ -0,0 +1,141 @@
+package ma.enset.gatewayservice.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.enset.gatewayservice.config.JwtCacheProperties;
+import ma.enset.gatewayservice.config.SecurityConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtReactiveAuthenticationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CachingJwtAuthenticationManagerTest {
+
+    private final AtomicInteger decodes = new AtomicInteger();
+    private final MutableClock clock = new MutableClock();
+    private RSAKey signingKey;
+    private CachingJwtAuthenticationManager authenticationManager;
+
+    @BeforeEach
+    void setUp() throws JOSEException {
+        signingKey = new RSAKeyGenerator(2048).keyID("key-1").generate();
+        ReactiveJwtDecoder verifier = NimbusReactiveJwtDecoder.withPublicKey(signingKey.toRSAPublicKey()).build();
+        JwtReactiveAuthenticationManager delegate = new JwtReactiveAuthenticationManager(token -> {
+            decodes.incrementAndGet();
+            return verifier.decode(token);
+        });
+        delegate.setJwtAuthenticationConverter(new SecurityConfig().jwtAuthenticationConverter());
+        authenticationManager = new CachingJwtAuthenticationManager(delegate, new JwtCacheProperties(),
+                new SimpleMeterRegistry(), clock);
+    }
+
+    @Test
+    void verifiesATokenOnceAndKeepsItsRoles() throws JOSEException {
+        String token = token(Duration.ofMinutes(2));
+
+        Authentication first = authenticate(token);
+        Authentication second = authenticate(token);
+
+        assertThat(decodes).hasValue(1);
+        assertThat(second).isSameAs(first);
+        assertThat(second.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_CLIENT");
+    }
+
+    @Test
+    void verifiesAgainOnceTheTokenHasExpired() throws JOSEException {
+        String token = token(Duration.ofMinutes(2));
+        authenticate(token);
+
+        clock.advance(Duration.ofMinutes(3));
+        authenticate(token);
+
+        assertThat(decodes).hasValue(2);
+    }
+
+    @Test
+    void dropsTokensOfRetiredKeysAndNeverCachesFailures() throws JOSEException {
+        String token = token(Duration.ofMinutes(2));
+        authenticate(token);
+        authenticationManager.retainSigningKeys(SigningKeyWatcher.keyIds(new JWKSet(signingKey).toString()));
+        authenticate(token);
+        assertThat(decodes).hasValue(1);
+
+        authenticationManager.retainSigningKeys(Set.of("key-2"));
+        authenticate(token);
+        assertThat(decodes).hasValue(2);
+
+        String forged = token.substring(0, token.lastIndexOf('.') + 1) + "c2lnbmF0dXJl";
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> authenticate(forged)).isInstanceOf(RuntimeException.class);
+        }
+        assertThat(decodes).hasValue(4);
+    }
+
+    private Authentication authenticate(String token) {
+        return authenticationManager.authenticate(new BearerTokenAuthenticationToken(token)).block();
+    }
+
+    private String token(Duration lifetime) throws JOSEException {
+        Instant now = Instant.now();
+        SignedJWT jwt = new SignedJWT(
+                new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(signingKey.getKeyID()).build(),
+                new JWTClaimsSet.Builder()
+                        .subject("alice")
+                        .issueTime(Date.from(now))
+                        .expirationTime(Date.from(now.plus(lifetime)))
+                        .claim("realm_access", Map.of("roles", List.of("CLIENT")))
+                        .build());
+        jwt.sign(new RSASSASigner(signingKey));
+        return jwt.serialize();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.now();
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
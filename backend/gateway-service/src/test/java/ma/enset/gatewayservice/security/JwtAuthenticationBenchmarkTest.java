@@ -0,0 +1,94 @@
+package ma.enset.gatewayservice.security;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.enset.gatewayservice.config.JwtCacheProperties;
+import ma.enset.gatewayservice.config.SecurityConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtReactiveAuthenticationManager;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * CPU time the gateway spends authenticating a request whose bearer token it has seen before, with the token
+ * cache disabled and enabled. Tokens are RS256 with a 2048-bit key, like the ones Keycloak issues. Run with
+ * {@code mvn test -Dtest=JwtAuthenticationBenchmarkTest -Dbenchmarks=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class JwtAuthenticationBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationBenchmarkTest.class);
+
+    private static final int USERS = 100;
+    private static final int WARMUP_REQUESTS = 20_000;
+    private static final int REQUESTS = 100_000;
+
+    @Test
+    void measureCpuPerRequest() throws Exception {
+        RSAKey signingKey = new RSAKeyGenerator(2048).keyID("key-1").generate();
+        String[] tokens = new String[USERS];
+        for (int i = 0; i < USERS; i++) {
+            tokens[i] = token(signingKey, "user-" + i);
+        }
+        JwtReactiveAuthenticationManager verifying = new JwtReactiveAuthenticationManager(
+                NimbusReactiveJwtDecoder.withPublicKey(signingKey.toRSAPublicKey()).build());
+        verifying.setJwtAuthenticationConverter(new SecurityConfig().jwtAuthenticationConverter());
+
+        JwtCacheProperties disabled = new JwtCacheProperties();
+        disabled.setEnabled(false);
+        double before = cpuMicrosPerRequest(
+                new CachingJwtAuthenticationManager(verifying, disabled, new SimpleMeterRegistry()), tokens);
+        double after = cpuMicrosPerRequest(
+                new CachingJwtAuthenticationManager(verifying, new JwtCacheProperties(), new SimpleMeterRegistry()),
+                tokens);
+
+        log.warn("CPU per authenticated request: {} us verifying every token, {} us with the token cache",
+                String.format("%.2f", before), String.format("%.2f", after));
+        assertThat(after).isLessThan(before / 5);
+    }
+
+    private static double cpuMicrosPerRequest(CachingJwtAuthenticationManager manager, String[] tokens) {
+        for (int i = 0; i < WARMUP_REQUESTS; i++) {
+            manager.authenticate(new BearerTokenAuthenticationToken(tokens[i % tokens.length])).block();
+        }
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long start = threads.getCurrentThreadCpuTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            manager.authenticate(new BearerTokenAuthenticationToken(tokens[i % tokens.length])).block();
+        }
+        return (threads.getCurrentThreadCpuTime() - start) / 1_000.0 / REQUESTS;
+    }
+
+    private static String token(RSAKey signingKey, String subject) throws Exception {
+        Instant now = Instant.now();
+        SignedJWT jwt = new SignedJWT(
+                new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(signingKey.getKeyID()).build(),
+                new JWTClaimsSet.Builder()
+                        .subject(subject)
+                        .issueTime(Date.from(now))
+                        .expirationTime(Date.from(now.plus(Duration.ofMinutes(30))))
+                        .claim("realm_access", Map.of("roles", List.of("CLIENT")))
+                        .build());
+        jwt.sign(new RSASSASigner(signingKey));
+        return jwt.serialize();
+    }
+}
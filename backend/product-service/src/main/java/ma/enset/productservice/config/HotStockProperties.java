@@ -0,0 +1,21 @@
+package ma.enset.productservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "product.hot-stock")
+public class HotStockProperties {
+
+    /**
+     * Number of independent counters the stock of a hot product is split across.
+     */
+    private int stripes = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Units an instance takes from the database on top of a reservation when its slice of a hot product runs dry.
+     * Larger slices touch the product row less often; units in a slice are not visible to other instances and
+     * are lost, not oversold, if the instance dies.
+     */
+    private int sliceSize = 100;
+}
@@ -0,0 +1,24 @@
+package ma.enset.productservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "product.search")
+public class ProductSearchProperties {
+
+    /**
+     * Results returned when the request does not specify a limit.
+     */
+    private int defaultLimit = 20;
+
+    /**
+     * Largest number of results a client may request.
+     */
+    private int maxLimit = 100;
+
+    /**
+     * Suggestions returned by autocomplete when the request does not specify a limit.
+     */
+    private int autocompleteLimit = 10;
+}
@@ -1,5 +1,7 @@
 package ma.enset.productservice.config;
 
+import ma.enset.common.security.InternalIdentityJwtDecoder;
+import ma.enset.common.security.InternalIdentityProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.convert.converter.Converter;
@@ -12,6 +14,7 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import org.springframework.security.web.SecurityFilterChain;
 
@@ -26,7 +29,8 @@ import java.util.Map;
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtDecoder jwtDecoder,
+                                                   InternalIdentityProperties internalIdentity) throws Exception {
         return http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
@@ -34,12 +38,17 @@ public class SecurityConfig {
                         .requestMatchers("/actuator/**").permitAll()
                         .requestMatchers("/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll()
                         
-                        // Product endpoints - Read access for both ADMIN and CLIENT
-                        .requestMatchers(HttpMethod.GET, "/api/products/**").hasAnyRole("ADMIN", "CLIENT")
+                        // Product endpoints - Read access for both ADMIN and CLIENT (and SERVICE accounts)
+                        .requestMatchers(HttpMethod.GET, "/api/products/**").hasAnyRole("ADMIN", "CLIENT", "SERVICE")
                         
-                        // Stock operations - allow both roles (for order processing)
-                        .requestMatchers(HttpMethod.PUT, "/api/products/*/reduce-stock").hasAnyRole("ADMIN", "CLIENT")
-                        .requestMatchers(HttpMethod.PUT, "/api/products/*/restore-stock").hasAnyRole("ADMIN", "CLIENT")
+                        // Stock operations - only the order outbox service account changes stock; a user able to
+                        // release with a reservation key could void an order's reservation or free stock twice
+                        .requestMatchers(HttpMethod.PUT, "/api/products/*/reduce-stock").hasRole("SERVICE")
+                        .requestMatchers(HttpMethod.PUT, "/api/products/*/restore-stock").hasRole("SERVICE")
+                        .requestMatchers(HttpMethod.PUT, "/api/products/reserve-stock").hasRole("SERVICE")
+                        .requestMatchers(HttpMethod.PUT, "/api/products/release-stock").hasRole("SERVICE")
+                        // Batch availability is a read, called with the user's token while an order is validated
+                        .requestMatchers(HttpMethod.POST, "/api/products/availability").hasAnyRole("ADMIN", "CLIENT", "SERVICE")
                         
                         // Product endpoints - Write access only for ADMIN
                         .requestMatchers(HttpMethod.POST, "/api/products/**").hasRole("ADMIN")
@@ -49,9 +58,17 @@ public class SecurityConfig {
                         // Any other request requires authentication
                         .anyRequest().authenticated()
                 )
-                .oauth2ResourceServer(oauth2 -> oauth2
-                        .jwt(jwt -> jwt.jwtAuthenticationConverter(jwtAuthenticationConverter()))
-                )
+                .oauth2ResourceServer(oauth2 -> {
+                    // Requests from the gateway carry its HMAC-signed identity assertion, other callers a Keycloak JWT
+                    if (internalIdentity.isEnabled()) {
+                        oauth2.bearerTokenResolver(InternalIdentityJwtDecoder.bearerTokenResolver());
+                    }
+                    oauth2.jwt(jwt -> jwt
+                            .decoder(internalIdentity.isEnabled()
+                                    ? new InternalIdentityJwtDecoder(jwtDecoder, internalIdentity)
+                                    : jwtDecoder)
+                            .jwtAuthenticationConverter(jwtAuthenticationConverter()));
+                })
                 .sessionManagement(session -> session
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 )
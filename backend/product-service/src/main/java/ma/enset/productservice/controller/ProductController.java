@@ -9,8 +9,12 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import ma.enset.productservice.dto.CatalogChangesDTO;
+import ma.enset.productservice.dto.ProductAvailabilityDTO;
 import ma.enset.productservice.dto.ProductRequestDTO;
 import ma.enset.productservice.dto.ProductResponseDTO;
+import ma.enset.productservice.dto.ProductSuggestionDTO;
+import ma.enset.productservice.dto.StockBatchRequestDTO;
 import ma.enset.productservice.service.ProductService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -111,16 +115,42 @@ public class ProductController {
         return ResponseEntity.noContent().build();
     }
 
+    @PutMapping("/{id}/hot")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Switch hot-product mode", description = "Hot products keep their stock in an in-memory ledger that is written to the database in the background, for flash sales. Only accessible by ADMIN role.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Hot mode updated"),
+            @ApiResponse(responseCode = "404", description = "Product not found"),
+            @ApiResponse(responseCode = "403", description = "Forbidden - Admin role required")
+    })
+    public ResponseEntity<ProductResponseDTO> setHot(
+            @PathVariable @Parameter(description = "Product ID") String id,
+            @RequestParam @Parameter(description = "Whether the product is hot") boolean enabled,
+            @AuthenticationPrincipal Jwt jwt) {
+        log.info("Admin {} setting hot mode of product {} to {}", jwt.getSubject(), id, enabled);
+        ProductResponseDTO product = productService.setHot(id, enabled);
+        return ResponseEntity.ok(product);
+    }
+
     @GetMapping("/search")
-    @Operation(summary = "Search products", description = "Search products by name. Accessible by ADMIN and CLIENT roles.")
+    @Operation(summary = "Search products", description = "Search products by name and description, best match first. Accessible by ADMIN and CLIENT roles.")
     public ResponseEntity<List<ProductResponseDTO>> searchProducts(
-            @RequestParam @Parameter(description = "Search query for product name") String name,
+            @RequestParam @Parameter(description = "Search query; every word must match") String name,
+            @RequestParam(required = false) @Parameter(description = "Maximum number of results") Integer limit,
             @AuthenticationPrincipal Jwt jwt) {
         log.info("User {} searching products with name: {}", jwt.getSubject(), name);
-        List<ProductResponseDTO> products = productService.searchProducts(name);
+        List<ProductResponseDTO> products = productService.searchProducts(name, limit);
         return ResponseEntity.ok(products);
     }
 
+    @GetMapping("/autocomplete")
+    @Operation(summary = "Autocomplete product names", description = "Suggest products whose name has a word starting with the last word typed. Accessible by ADMIN and CLIENT roles.")
+    public ResponseEntity<List<ProductSuggestionDTO>> autocomplete(
+            @RequestParam @Parameter(description = "Text typed so far") String prefix,
+            @RequestParam(required = false) @Parameter(description = "Maximum number of suggestions") Integer limit) {
+        return ResponseEntity.ok(productService.autocomplete(prefix, limit));
+    }
+
     @GetMapping("/in-stock")
     @Operation(summary = "Get in-stock products", description = "Retrieve all products with stock quantity greater than 0. Accessible by ADMIN and CLIENT roles.")
     @ApiResponses({
@@ -151,6 +181,14 @@ public class ProductController {
     }
 
     // Internal endpoints for inter-service communication
+    @GetMapping("/changes")
+    @Operation(summary = "Get catalog changes", description = "Ids of products whose name, price or description changed, or that were deleted, after the given cursor. Stock changes are not reported. Without cursor, only the current cursor is returned. Used by services caching product data.")
+    public ResponseEntity<CatalogChangesDTO> getCatalogChanges(
+            @RequestParam(required = false) @Parameter(description = "Cursor returned by the previous call") Long cursor) {
+        log.debug("Catalog changes requested after {}", cursor);
+        return ResponseEntity.ok(productService.getCatalogChanges(cursor));
+    }
+
     @GetMapping("/{id}/check-stock")
     @Operation(summary = "Check product stock", description = "Check if product has sufficient stock. Used for inter-service communication.")
     public ResponseEntity<Boolean> checkStock(
@@ -161,6 +199,15 @@ public class ProductController {
         return ResponseEntity.ok(available);
     }
 
+    @PostMapping("/availability")
+    @Operation(summary = "Check availability of several products", description = "Return name, price and stock availability for every requested product in a single lookup. Used for inter-service communication.")
+    public ResponseEntity<List<ProductAvailabilityDTO>> checkAvailability(
+            @Valid @RequestBody StockBatchRequestDTO request) {
+        log.debug("Availability check for {} items", request.items().size());
+        List<ProductAvailabilityDTO> availability = productService.checkAvailability(request.items());
+        return ResponseEntity.ok(availability);
+    }
+
     @PutMapping("/{id}/reduce-stock")
     @Operation(summary = "Reduce product stock", description = "Reduce product stock after order. Used for inter-service communication.")
     public ResponseEntity<Void> reduceStock(
@@ -180,5 +227,31 @@ public class ProductController {
         productService.restoreStock(id, quantity);
         return ResponseEntity.ok().build();
     }
+
+    @PutMapping("/reserve-stock")
+    @Operation(summary = "Reserve stock for several products", description = "Atomically reduce stock for every item of an order. Either all items are reserved or none. Requests repeating an Idempotency-Key are applied once. Used for inter-service communication.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Stock reserved for all items"),
+            @ApiResponse(responseCode = "400", description = "Insufficient stock for at least one item"),
+            @ApiResponse(responseCode = "404", description = "Product not found")
+    })
+    public ResponseEntity<Void> reserveStock(
+            @RequestHeader(value = "Idempotency-Key", required = false) @Parameter(description = "Key identifying this reservation") String idempotencyKey,
+            @Valid @RequestBody StockBatchRequestDTO request) {
+        log.info("Reserving stock for {} items (key: {})", request.items().size(), idempotencyKey);
+        productService.reserveStock(idempotencyKey, request.items());
+        return ResponseEntity.ok().build();
+    }
+
+    @PutMapping("/release-stock")
+    @Operation(summary = "Release stock for several products", description = "Give back stock for every item of a cancelled order in one transaction. When the referenced reservation was never applied it is voided instead. Used for inter-service communication.")
+    public ResponseEntity<Void> releaseStock(
+            @RequestHeader(value = "Idempotency-Key", required = false) @Parameter(description = "Key identifying this release") String idempotencyKey,
+            @RequestParam(required = false) @Parameter(description = "Idempotency key of the reservation being released") String reservationKey,
+            @Valid @RequestBody StockBatchRequestDTO request) {
+        log.info("Releasing stock for {} items (key: {}, reservation: {})", request.items().size(), idempotencyKey, reservationKey);
+        productService.releaseStock(idempotencyKey, reservationKey, request.items());
+        return ResponseEntity.ok().build();
+    }
 }
 
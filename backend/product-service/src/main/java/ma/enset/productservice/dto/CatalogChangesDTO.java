@@ -0,0 +1,12 @@
+package ma.enset.productservice.dto;
+
+import java.util.List;
+
+/**
+ * Products whose catalog data changed after the requested cursor, and the cursor to send on the next call.
+ */
+public record CatalogChangesDTO(
+        long cursor,
+        List<String> productIds
+) {
+}
@@ -0,0 +1,14 @@
+package ma.enset.productservice.dto;
+
+import java.math.BigDecimal;
+
+public record ProductAvailabilityDTO(
+        String productId,
+        boolean found,
+        String name,
+        BigDecimal price,
+        Integer stockQuantity,
+        Integer requestedQuantity,
+        boolean available
+) {
+}
@@ -9,6 +9,7 @@ public record ProductResponseDTO(
         String description,
         BigDecimal price,
         Integer stockQuantity,
+        boolean hot,
         LocalDateTime createdAt,
         LocalDateTime updatedAt
 ) {
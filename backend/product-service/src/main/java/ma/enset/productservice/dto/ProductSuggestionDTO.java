@@ -0,0 +1,7 @@
+package ma.enset.productservice.dto;
+
+public record ProductSuggestionDTO(
+        String id,
+        String name
+) {
+}
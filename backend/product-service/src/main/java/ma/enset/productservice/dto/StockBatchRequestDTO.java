@@ -0,0 +1,13 @@
+package ma.enset.productservice.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+public record StockBatchRequestDTO(
+        @NotEmpty(message = "At least one item is required")
+        @Valid
+        List<StockItemRequestDTO> items
+) {
+}
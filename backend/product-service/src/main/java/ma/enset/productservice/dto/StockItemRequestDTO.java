@@ -0,0 +1,15 @@
+package ma.enset.productservice.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+public record StockItemRequestDTO(
+        @NotBlank(message = "Product ID is required")
+        String productId,
+
+        @NotNull(message = "Quantity is required")
+        @Positive(message = "Quantity must be positive")
+        Integer quantity
+) {
+}
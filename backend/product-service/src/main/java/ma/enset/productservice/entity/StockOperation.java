@@ -0,0 +1,35 @@
+package ma.enset.productservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ma.enset.productservice.enums.StockOperationType;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Idempotency record for bulk stock operations, written in the same transaction as the stock change.
+ */
+@Entity
+@Table(name = "stock_operations")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockOperation {
+
+    @Id
+    @Column(length = 100)
+    private String idempotencyKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StockOperationType type;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+}
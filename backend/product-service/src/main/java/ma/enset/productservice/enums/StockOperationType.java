@@ -0,0 +1,11 @@
+package ma.enset.productservice.enums;
+
+public enum StockOperationType {
+    RESERVE,
+    RELEASE,
+    /**
+     * Recorded for a reservation that was released before it was ever applied,
+     * so a late delivery of that reservation becomes a no-op.
+     */
+    VOID
+}
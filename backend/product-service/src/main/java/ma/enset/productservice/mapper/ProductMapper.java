@@ -15,6 +15,7 @@ public interface ProductMapper {
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
+    @Mapping(target = "hot", ignore = true)
     Product toEntity(ProductRequestDTO dto);
 
     ProductResponseDTO toResponseDTO(Product product);
@@ -24,5 +25,6 @@ public interface ProductMapper {
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
+    @Mapping(target = "hot", ignore = true)
     void updateEntityFromDTO(ProductRequestDTO dto, @MappingTarget Product product);
 }
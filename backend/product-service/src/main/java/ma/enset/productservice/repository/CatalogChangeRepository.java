@@ -0,0 +1,25 @@
+package ma.enset.productservice.repository;
+
+import ma.enset.productservice.entity.CatalogChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CatalogChangeRepository extends JpaRepository<CatalogChange, Long> {
+
+    List<CatalogChange> findByIdGreaterThanOrderById(Long id);
+
+    @Query("select max(c.id) from CatalogChange c where c.changedAt < :before")
+    Optional<Long> findMaxIdChangedBefore(@Param("before") LocalDateTime before);
+
+    @Modifying
+    @Query("delete from CatalogChange c where c.changedAt < :cutoff")
+    int deleteChangedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
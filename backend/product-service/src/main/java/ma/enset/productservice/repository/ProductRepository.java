@@ -1,17 +1,97 @@
 package ma.enset.productservice.repository;
 
+import jakarta.persistence.QueryHint;
 import ma.enset.productservice.entity.Product;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, String> {
 
+    interface SearchableProduct {
+
+        String getId();
+
+        String getName();
+
+        String getDescription();
+    }
+
     List<Product> findByNameContainingIgnoreCase(String name);
 
+    /**
+     * Text columns of the whole catalog for the search index; the caller must be in a transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select p.id as id, p.name as name, p.description as description from Product p")
+    Stream<SearchableProduct> streamSearchableBy();
+
     List<Product> findByStockQuantityGreaterThan(Integer quantity);
 
     List<Product> findByStockQuantityLessThanEqual(Integer quantity);
+
+    @Query("select p.id from Product p where p.hot = true")
+    List<String> findHotProductIds();
+
+    @Query("select p.stockQuantity from Product p where p.id = :id")
+    Optional<Integer> findStockQuantityById(@Param("id") String id);
+
+    /**
+     * Atomically decrement stock only if enough is available.
+     * Returns the number of updated rows (0 when the product is missing, hot or stock is insufficient).
+     * Hot products are excluded because their stock is handed out in slices with {@link #takeHotStock}.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            update Product p
+            set p.stockQuantity = p.stockQuantity - :quantity, p.updatedAt = local datetime
+            where p.id = :id and p.hot = false and p.stockQuantity >= :quantity
+            """)
+    int decrementStock(@Param("id") String id, @Param("quantity") int quantity);
+
+    /**
+     * Take {@code quantity} units of a hot product out of the database, only if enough are left.
+     * The row then holds what no instance has taken into its in-memory slice.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            update Product p
+            set p.stockQuantity = p.stockQuantity - :quantity, p.updatedAt = local datetime
+            where p.id = :id and p.hot = true and p.stockQuantity >= :quantity
+            """)
+    int takeHotStock(@Param("id") String id, @Param("quantity") int quantity);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            update Product p
+            set p.stockQuantity = p.stockQuantity + :quantity, p.updatedAt = local datetime
+            where p.id = :id and p.hot = false
+            """)
+    int incrementStock(@Param("id") String id, @Param("quantity") int quantity);
+
+    /**
+     * Apply a stock delta regardless of the hot flag. Used to give in-memory slices back to the database.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            update Product p
+            set p.stockQuantity = p.stockQuantity + :delta, p.updatedAt = local datetime
+            where p.id = :id
+            """)
+    int adjustStock(@Param("id") String id, @Param("delta") int delta);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Product p set p.hot = :hot, p.updatedAt = local datetime where p.id = :id")
+    int updateHot(@Param("id") String id, @Param("hot") boolean hot);
 }
@@ -0,0 +1,9 @@
+package ma.enset.productservice.repository;
+
+import ma.enset.productservice.entity.StockOperation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StockOperationRepository extends JpaRepository<StockOperation, String> {
+}
@@ -0,0 +1,231 @@
+package ma.enset.productservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.productservice.config.HotStockProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory stock for hot products.
+ * <p>
+ * Each instance holds a slice of a hot product's stock, taken out of the database row with a conditional update,
+ * so the slices of all instances and the row never add up to more than the product had. The slice is split
+ * across padded counters: a reservation decrements the counter of its own stripe with a compare-and-set instead
+ * of queueing on the product row, and only gathers from other stripes when its own runs dry. When the slice
+ * cannot cover a reservation, the service takes it and a new slice from the database. {@link HotStockReconciler}
+ * hands slices back once their product is no longer hot and on shutdown.
+ */
+@Slf4j
+@Component
+public class HotStockLedger {
+
+    public enum Outcome {
+        RESERVED,
+        INSUFFICIENT,
+        NOT_TRACKED
+    }
+
+    /**
+     * Units of the slice left when a product stopped being tracked, to be given back to the database.
+     */
+    public record Retirement(int stock) {
+    }
+
+    private final Map<String, StripedStock> stocks = new ConcurrentHashMap<>();
+    private final int stripes;
+    private final int sliceSize;
+
+    public HotStockLedger(HotStockProperties properties) {
+        this.stripes = Math.max(1, properties.getStripes());
+        this.sliceSize = Math.max(0, properties.getSliceSize());
+    }
+
+    /**
+     * Units taken from the database on top of a reservation when the slice runs dry.
+     */
+    public int sliceSize() {
+        return sliceSize;
+    }
+
+    public boolean isTracked(String productId) {
+        return stocks.containsKey(productId);
+    }
+
+    public Set<String> trackedProductIds() {
+        return Set.copyOf(stocks.keySet());
+    }
+
+    /**
+     * Add {@code units} already taken out of the database to the product's slice, tracking it if needed.
+     */
+    public void addSlice(String productId, int units) {
+        // A retired stock refuses the units; by then it has left the map and the next round starts a new one
+        while (!stocks.computeIfAbsent(productId, id -> new StripedStock(stripes)).add(units)) {
+            Thread.onSpinWait();
+        }
+        log.debug("Hot product {} slice grew by {} units", productId, units);
+    }
+
+    public Outcome reserve(String productId, int quantity) {
+        StripedStock stock = stocks.get(productId);
+        return stock == null ? Outcome.NOT_TRACKED : stock.reserve(quantity);
+    }
+
+    /**
+     * @return false when the product is not tracked and the stock must be given back in the database
+     */
+    public boolean release(String productId, int quantity) {
+        StripedStock stock = stocks.get(productId);
+        return stock != null && stock.release(quantity);
+    }
+
+    public OptionalInt available(String productId) {
+        StripedStock stock = stocks.get(productId);
+        return stock == null ? OptionalInt.empty() : OptionalInt.of(stock.total());
+    }
+
+    /**
+     * Stop tracking the product once in-flight reservations on it have finished.
+     * The caller is responsible for giving the units left back to the database.
+     *
+     * @return the final state, or null when the product was not tracked
+     */
+    public Retirement retire(String productId) {
+        StripedStock stock = stocks.remove(productId);
+        if (stock == null) {
+            return null;
+        }
+        Retirement retirement = new Retirement(stock.retire());
+        log.info("Product {} no longer tracked, {} units left in its slice", productId, retirement.stock());
+        return retirement;
+    }
+
+    static final class StripedStock {
+
+        // 16 ints keep used cells 64 bytes apart so stripes never share a cache line
+        private static final int PADDING = 16;
+
+        private final AtomicIntegerArray cells;
+        private final int stripes;
+        private final LongAdder inFlight = new LongAdder();
+        private volatile boolean retired;
+
+        StripedStock(int stripes) {
+            this.stripes = stripes;
+            this.cells = new AtomicIntegerArray(stripes * PADDING);
+        }
+
+        Outcome reserve(int quantity) {
+            if (!enter()) {
+                return Outcome.NOT_TRACKED;
+            }
+            try {
+                int home = homeStripe();
+                for (int i = 0; i < stripes; i++) {
+                    int index = ((home + i) % stripes) * PADDING;
+                    int current;
+                    while ((current = cells.get(index)) >= quantity) {
+                        if (cells.compareAndSet(index, current, current - quantity)) {
+                            return Outcome.RESERVED;
+                        }
+                    }
+                }
+                // No single stripe holds enough: gather from several and give everything back on a shortfall
+                int taken = gather(quantity);
+                if (taken == quantity) {
+                    return Outcome.RESERVED;
+                }
+                cells.getAndAdd(home * PADDING, taken);
+                return Outcome.INSUFFICIENT;
+            } finally {
+                exit();
+            }
+        }
+
+        boolean release(int quantity) {
+            if (!enter()) {
+                return false;
+            }
+            try {
+                cells.getAndAdd(homeStripe() * PADDING, quantity);
+                return true;
+            } finally {
+                exit();
+            }
+        }
+
+        /**
+         * Spread {@code units} over all stripes.
+         */
+        boolean add(int units) {
+            if (!enter()) {
+                return false;
+            }
+            try {
+                for (int stripe = 0; stripe < stripes; stripe++) {
+                    cells.getAndAdd(stripe * PADDING, units / stripes + (stripe < units % stripes ? 1 : 0));
+                }
+                return true;
+            } finally {
+                exit();
+            }
+        }
+
+        int total() {
+            int total = 0;
+            for (int stripe = 0; stripe < stripes; stripe++) {
+                total += cells.get(stripe * PADDING);
+            }
+            return total;
+        }
+
+        int retire() {
+            retired = true;
+            while (inFlight.sum() != 0) {
+                Thread.onSpinWait();
+            }
+            return total();
+        }
+
+        private int gather(int quantity) {
+            int taken = 0;
+            for (int stripe = 0; stripe < stripes && taken < quantity; stripe++) {
+                int index = stripe * PADDING;
+                int current;
+                while (taken < quantity && (current = cells.get(index)) > 0) {
+                    int take = Math.min(current, quantity - taken);
+                    if (cells.compareAndSet(index, current, current - take)) {
+                        taken += take;
+                    }
+                }
+            }
+            return taken;
+        }
+
+        /**
+         * Registers the caller before it touches the cells so retirement can wait for it.
+         */
+        private boolean enter() {
+            inFlight.increment();
+            if (retired) {
+                inFlight.decrement();
+                return false;
+            }
+            return true;
+        }
+
+        private void exit() {
+            inFlight.decrement();
+        }
+
+        private int homeStripe() {
+            return (int) (Thread.currentThread().threadId() % stripes);
+        }
+    }
+}
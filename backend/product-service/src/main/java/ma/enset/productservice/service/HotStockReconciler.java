@@ -0,0 +1,58 @@
+package ma.enset.productservice.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.productservice.repository.ProductRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Gives the slices held in the {@link HotStockLedger} back to the database: periodically for products that are
+ * no longer hot (switched by another instance, or deleted), and for every product on shutdown.
+ * Giving units back is always safe, so a product switched hot again meanwhile simply takes a new slice.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HotStockReconciler {
+
+    private final HotStockLedger hotStockLedger;
+    private final ProductRepository productRepository;
+
+    @Scheduled(fixedDelayString = "${product.hot-stock.check-interval-ms:1000}")
+    public void returnStaleSlices() {
+        Set<String> tracked = hotStockLedger.trackedProductIds();
+        if (tracked.isEmpty()) {
+            return;
+        }
+        Set<String> hot = Set.copyOf(productRepository.findHotProductIds());
+        tracked.stream()
+                .filter(productId -> !hot.contains(productId))
+                .forEach(this::returnSlice);
+    }
+
+    @PreDestroy
+    public void returnAllSlices() {
+        log.info("Returning hot product stock slices before shutdown");
+        hotStockLedger.trackedProductIds().forEach(this::returnSlice);
+    }
+
+    private void returnSlice(String productId) {
+        HotStockLedger.Retirement retirement = hotStockLedger.retire(productId);
+        if (retirement == null || retirement.stock() == 0) {
+            return;
+        }
+        try {
+            if (productRepository.adjustStock(productId, retirement.stock()) == 0) {
+                log.info("Product {} no longer exists, dropping {} units of its slice", productId, retirement.stock());
+            }
+        } catch (RuntimeException e) {
+            // Keep the units in memory so the next round retries instead of losing them
+            log.error("Failed to return {} units of product {}: {}", retirement.stock(), productId, e.getMessage());
+            hotStockLedger.addSlice(productId, retirement.stock());
+        }
+    }
+}
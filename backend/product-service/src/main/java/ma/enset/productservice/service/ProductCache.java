@@ -0,0 +1,151 @@
+package ma.enset.productservice.service;
+
+import ma.enset.common.datasource.ReadReplicaProperties;
+import ma.enset.productservice.dto.ProductResponseDTO;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache for catalog reads.
+ * <p>
+ * {@value #PRODUCTS} holds one response per product id. {@value #PRODUCT_LISTS} holds list views as ordered
+ * product ids, resolved through the per-id entries like search results are, so a stock or price change only evicts the product that
+ * changed and list views are evicted only when their membership can change. Evictions run after the
+ * surrounding transaction commits so a concurrent reader cannot put the old row back. With read replicas, a read
+ * that misses right after the commit can still load the old row from a replica that is behind, so every eviction
+ * is repeated once replicas in rotation are known to have the change.
+ * Size, TTL and statistics come from {@code spring.cache.caffeine.spec}.
+ */
+@Component
+public class ProductCache {
+
+    public static final String PRODUCTS = "products";
+    public static final String PRODUCT_LISTS = "product-lists";
+
+    public static final String ALL_VIEW = "all";
+    public static final String IN_STOCK_VIEW = "in-stock";
+
+    private final Cache products;
+    private final Cache lists;
+    private final Duration replicaLag;
+
+    public ProductCache(CacheManager cacheManager, ReadReplicaProperties replicas) {
+        this.products = Objects.requireNonNull(cacheManager.getCache(PRODUCTS));
+        this.lists = Objects.requireNonNull(cacheManager.getCache(PRODUCT_LISTS));
+        this.replicaLag = replicas.isEnabled() ? replicas.getMaxLag() : Duration.ZERO;
+    }
+
+    public ProductResponseDTO get(String id, Supplier<ProductResponseDTO> loader) {
+        try {
+            return products.get(id, loader::get);
+        } catch (Cache.ValueRetrievalException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @param loader      loads the whole view on a miss
+     * @param batchLoader loads the products of a cached view whose own entries were evicted
+     */
+    @SuppressWarnings("unchecked")
+    public List<ProductResponseDTO> getList(String view,
+                                            Supplier<List<ProductResponseDTO>> loader,
+                                            Function<Collection<String>, List<ProductResponseDTO>> batchLoader) {
+        List<String> ids = lists.get(view, List.class);
+        if (ids == null) {
+            List<ProductResponseDTO> loaded = loader.get();
+            loaded.forEach(product -> products.putIfAbsent(product.id(), product));
+            lists.put(view, loaded.stream().map(ProductResponseDTO::id).toList());
+            return loaded;
+        }
+        return getAll(ids, batchLoader);
+    }
+
+    /**
+     * Products in the order of {@code ids}, loading the uncached ones with one call to {@code batchLoader}.
+     * Ids of products that no longer exist are skipped.
+     */
+    public List<ProductResponseDTO> getAll(List<String> ids,
+                                           Function<Collection<String>, List<ProductResponseDTO>> batchLoader) {
+        Map<String, ProductResponseDTO> resolved = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String id : ids) {
+            ProductResponseDTO cached = products.get(id, ProductResponseDTO.class);
+            resolved.put(id, cached);
+            if (cached == null) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            batchLoader.apply(missing).forEach(product -> {
+                products.putIfAbsent(product.id(), product);
+                resolved.put(product.id(), product);
+            });
+        }
+        return resolved.values().stream().filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Takes effect once the surrounding transaction commits, and not at all if it rolls back.
+     */
+    public void evictProduct(String id) {
+        afterCommit(() -> products.evict(id));
+    }
+
+    /**
+     * Takes effect once the surrounding transaction commits, like {@link #evictProduct}.
+     */
+    public void evictViews(Predicate<String> views) {
+        afterCommit(() -> {
+            if (lists instanceof CaffeineCache caffeineCache) {
+                caffeineCache.getNativeCache().asMap().keySet().removeIf(key -> views.test((String) key));
+            } else {
+                lists.clear();
+            }
+        });
+    }
+
+    /**
+     * Views that list a product: everything, and in-stock when it has stock.
+     */
+    public static Predicate<String> viewsListing(boolean inStock) {
+        return view -> view.equals(ALL_VIEW) || (inStock && view.equals(IN_STOCK_VIEW));
+    }
+
+    private void afterCommit(Runnable eviction) {
+        Runnable evictions = replicaLag.isZero() ? eviction : () -> {
+            eviction.run();
+            CompletableFuture.delayedExecutor(replicaLag.toMillis(), TimeUnit.MILLISECONDS).execute(eviction);
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictions.run();
+                }
+            });
+        } else {
+            evictions.run();
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package ma.enset.productservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.productservice.dto.ProductSuggestionDTO;
+import ma.enset.productservice.repository.ProductRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index over product names and descriptions.
+ * <p>
+ * Words are folded to lower case without accents. Every word is indexed whole, for prefix lookups, and as
+ * trigrams, so a search term of three or more characters matches inside words like the former
+ * {@code LIKE '%term%'} query did. Shorter terms match word prefixes. All terms of a query must match;
+ * results are ranked by where they matched, name before description and whole words before prefixes
+ * before infixes.
+ * <p>
+ * The index is built from the database once the application is ready and then kept up to date by
+ * {@link ProductServiceImpl} after each committed product write. Until it is built, {@link #isReady()} is false.
+ */
+@Slf4j
+@Component
+public class ProductSearchIndex {
+
+    private static final int GRAM = 3;
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private record Document(String productId, String name, String[] nameWords, String[] descriptionWords) {
+    }
+
+    /**
+     * Ascending document ids. Ids only grow, so adding a document appends.
+     */
+    private static final class Postings {
+
+        private int[] ids = new int[2];
+        private int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        void remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+                size--;
+            }
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+
+    private final ProductRepository productRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private final List<Document> documents = new ArrayList<>();
+    private final Map<String, Integer> documentIds = new HashMap<>();
+    private final NavigableMap<String, Postings> words = new TreeMap<>();
+    private final Map<String, Postings> grams = new HashMap<>();
+    // Writes made while the index is being built, replayed once it is complete
+    private List<Runnable> pendingWrites;
+    private volatile boolean ready;
+
+    public ProductSearchIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long start = System.nanoTime();
+        write(() -> pendingWrites = new ArrayList<>());
+        ProductSearchIndex fresh = new ProductSearchIndex(productRepository);
+        try (Stream<ProductRepository.SearchableProduct> products = productRepository.streamSearchableBy()) {
+            products.forEach(product -> fresh.add(product.getId(), product.getName(), product.getDescription()));
+        } catch (RuntimeException e) {
+            write(() -> pendingWrites = null);
+            throw e;
+        }
+        write(() -> {
+            documents.clear();
+            documents.addAll(fresh.documents);
+            documentIds.clear();
+            documentIds.putAll(fresh.documentIds);
+            words.clear();
+            words.putAll(fresh.words);
+            grams.clear();
+            grams.putAll(fresh.grams);
+            pendingWrites.forEach(Runnable::run);
+            pendingWrites = null;
+        });
+        ready = true;
+        log.info("Indexed {} products for search in {} ms", documentIds.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void index(String productId, String name, String description) {
+        write(() -> {
+            remove0(productId);
+            add(productId, name, description);
+            if (pendingWrites != null) {
+                pendingWrites.add(() -> {
+                    remove0(productId);
+                    add(productId, name, description);
+                });
+            }
+        });
+    }
+
+    public void remove(String productId) {
+        write(() -> {
+            remove0(productId);
+            if (pendingWrites != null) {
+                pendingWrites.add(() -> remove0(productId));
+            }
+        });
+    }
+
+    /**
+     * @return ids of the products matching every term of {@code query}, best match first
+     */
+    public List<String> search(String query, int limit) {
+        String[] terms = distinctWords(query);
+        if (terms.length == 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            int[] candidates = matchAll(terms);
+            return top(candidates, terms, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Products with a name word starting with the last term of {@code prefix} and matching the terms before it.
+     */
+    public List<ProductSuggestionDTO> autocomplete(String prefix, int limit) {
+        String[] terms = distinctWords(prefix);
+        if (terms.length == 0) {
+            return List.of();
+        }
+        String last = terms[terms.length - 1];
+        lock.readLock().lock();
+        try {
+            int[] candidates = matchAll(terms);
+            List<Document> suggestions = new ArrayList<>();
+            for (int id : candidates) {
+                Document document = documents.get(id);
+                if (startsAnyWord(document.nameWords(), last)) {
+                    suggestions.add(document);
+                }
+            }
+            // Names whose first word completes the prefix come first, then shorter names
+            suggestions.sort(Comparator
+                    .comparing((Document document) -> !document.nameWords()[0].startsWith(last))
+                    .thenComparingInt(document -> document.name().length())
+                    .thenComparing(Document::name));
+            return suggestions.stream()
+                    .limit(limit)
+                    .map(document -> new ProductSuggestionDTO(document.productId(), document.name()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static String[] words(String text) {
+        if (text == null || text.isBlank()) {
+            return new String[0];
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        return Arrays.stream(NON_WORD.split(folded)).filter(word -> !word.isEmpty()).toArray(String[]::new);
+    }
+
+    private static String[] distinctWords(String text) {
+        return new LinkedHashSet<>(Arrays.asList(words(text))).toArray(String[]::new);
+    }
+
+    private void write(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(String productId, String name, String description) {
+        int id = documents.size();
+        Document document = new Document(productId, name, words(name), words(description));
+        documents.add(document);
+        documentIds.put(productId, id);
+        for (String word : distinctWordsOf(document)) {
+            words.computeIfAbsent(word, w -> new Postings()).add(id);
+        }
+        for (String gram : gramsOf(document)) {
+            grams.computeIfAbsent(gram, g -> new Postings()).add(id);
+        }
+    }
+
+    private void remove0(String productId) {
+        Integer id = documentIds.remove(productId);
+        if (id == null) {
+            return;
+        }
+        Document document = documents.set(id, null);
+        for (String word : distinctWordsOf(document)) {
+            removePosting(words, word, id);
+        }
+        for (String gram : gramsOf(document)) {
+            removePosting(grams, gram, id);
+        }
+    }
+
+    private static void removePosting(Map<String, Postings> index, String key, int id) {
+        Postings postings = index.get(key);
+        if (postings != null) {
+            postings.remove(id);
+            if (postings.size == 0) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static Set<String> distinctWordsOf(Document document) {
+        Set<String> all = new LinkedHashSet<>(Arrays.asList(document.nameWords()));
+        all.addAll(Arrays.asList(document.descriptionWords()));
+        return all;
+    }
+
+    private static Set<String> gramsOf(Document document) {
+        Set<String> all = new LinkedHashSet<>();
+        for (String word : distinctWordsOf(document)) {
+            for (int i = 0; i + GRAM <= word.length(); i++) {
+                all.add(word.substring(i, i + GRAM));
+            }
+        }
+        return all;
+    }
+
+    private int[] matchAll(String[] terms) {
+        // Longer terms are usually more selective, so they narrow the candidates first
+        String[] ordered = terms.clone();
+        Arrays.sort(ordered, Comparator.comparingInt(String::length).reversed());
+        int[] candidates = null;
+        for (String term : ordered) {
+            int[] matches = match(term);
+            candidates = candidates == null ? matches : intersect(candidates, matches);
+            if (candidates.length == 0) {
+                break;
+            }
+        }
+        return candidates;
+    }
+
+    private int[] match(String term) {
+        if (term.length() < GRAM) {
+            // Too short for trigrams: union of the words starting with the term
+            return words.subMap(term, true, term + Character.MAX_VALUE, false).values().stream()
+                    .flatMapToInt(postings -> Arrays.stream(postings.ids, 0, postings.size))
+                    .sorted()
+                    .distinct()
+                    .toArray();
+        }
+
+        List<Postings> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM <= term.length(); i++) {
+            Postings postings = grams.get(term.substring(i, i + GRAM));
+            if (postings == null) {
+                return new int[0];
+            }
+            lists.add(postings);
+        }
+        lists.sort(Comparator.comparingInt(postings -> postings.size));
+        int[] candidates = lists.getFirst().toArray();
+        for (int i = 1; i < lists.size() && candidates.length > 0; i++) {
+            candidates = intersect(candidates, candidates.length, lists.get(i).ids, lists.get(i).size);
+        }
+        // Every trigram occurring somewhere does not mean the term occurs in one word
+        int n = 0;
+        for (int id : candidates) {
+            Document document = documents.get(id);
+            if (containsInAnyWord(document.nameWords(), term) || containsInAnyWord(document.descriptionWords(), term)) {
+                candidates[n++] = id;
+            }
+        }
+        return Arrays.copyOf(candidates, n);
+    }
+
+    private static boolean containsInAnyWord(String[] words, String term) {
+        for (String word : words) {
+            if (word.contains(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean startsAnyWord(String[] words, String term) {
+        for (String word : words) {
+            if (word.startsWith(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        return intersect(a, a.length, b, b.length);
+    }
+
+    private static int[] intersect(int[] a, int aSize, int[] b, int bSize) {
+        int[] out = new int[Math.min(aSize, bSize)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < aSize && j < bSize) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static double score(Document document, String[] terms) {
+        double score = 0;
+        for (String term : terms) {
+            score += Math.max(3 * fieldScore(document.nameWords(), term), fieldScore(document.descriptionWords(), term));
+        }
+        return score;
+    }
+
+    private static double fieldScore(String[] words, String term) {
+        double best = 0;
+        for (String word : words) {
+            if (word.equals(term)) {
+                return 3;
+            }
+            if (word.startsWith(term)) {
+                best = Math.max(best, 2);
+            } else if (word.contains(term)) {
+                best = Math.max(best, 1);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Best {@code limit} candidates, keeping only that many in a heap rather than sorting every match.
+     */
+    private List<String> top(int[] candidates, String[] terms, int limit) {
+        record Scored(Document document, double score) {
+        }
+        Comparator<Scored> ranking = Comparator.comparingDouble(Scored::score)
+                .thenComparing(scored -> scored.document().name(), Comparator.reverseOrder());
+        PriorityQueue<Scored> best = new PriorityQueue<>(ranking);
+        for (int id : candidates) {
+            Document document = documents.get(id);
+            double score = score(document, terms);
+            // Most candidates cannot beat the current worst of a full heap; skip them without allocating
+            if (best.size() == limit && score < best.peek().score()) {
+                continue;
+            }
+            best.add(new Scored(document, score));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        return best.stream()
+                .sorted(ranking.reversed())
+                .map(scored -> scored.document().productId())
+                .toList();
+    }
+}
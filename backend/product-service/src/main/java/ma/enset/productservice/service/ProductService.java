@@ -1,7 +1,11 @@
 package ma.enset.productservice.service;
 
+import ma.enset.productservice.dto.CatalogChangesDTO;
+import ma.enset.productservice.dto.ProductAvailabilityDTO;
 import ma.enset.productservice.dto.ProductRequestDTO;
 import ma.enset.productservice.dto.ProductResponseDTO;
+import ma.enset.productservice.dto.ProductSuggestionDTO;
+import ma.enset.productservice.dto.StockItemRequestDTO;
 
 import java.util.List;
 
@@ -17,13 +21,31 @@ public interface ProductService {
 
     void deleteProduct(String id);
 
+    /**
+     * Ids of products whose catalog data changed after {@code cursor}; stock changes are not reported.
+     */
+    CatalogChangesDTO getCatalogChanges(Long cursor);
+
     boolean checkStock(String productId, Integer quantity);
 
+    List<ProductAvailabilityDTO> checkAvailability(List<StockItemRequestDTO> items);
+
     void reduceStock(String productId, Integer quantity);
 
     void restoreStock(String productId, Integer quantity);
 
-    List<ProductResponseDTO> searchProducts(String name);
+    void reserveStock(String idempotencyKey, List<StockItemRequestDTO> items);
+
+    void releaseStock(String idempotencyKey, String reservationKey, List<StockItemRequestDTO> items);
+
+    ProductResponseDTO setHot(String id, boolean hot);
+
+    /**
+     * Products matching every word of {@code query} in their name or description, best match first.
+     */
+    List<ProductResponseDTO> searchProducts(String query, Integer limit);
+
+    List<ProductSuggestionDTO> autocomplete(String prefix, Integer limit);
 
     List<ProductResponseDTO> getInStockProducts();
 
@@ -2,17 +2,41 @@ package ma.enset.productservice.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import ma.enset.productservice.config.ProductSearchProperties;
+import ma.enset.productservice.dto.CatalogChangesDTO;
+import ma.enset.productservice.dto.ProductAvailabilityDTO;
 import ma.enset.productservice.dto.ProductRequestDTO;
 import ma.enset.productservice.dto.ProductResponseDTO;
+import ma.enset.productservice.dto.ProductSuggestionDTO;
+import ma.enset.productservice.dto.StockItemRequestDTO;
+import ma.enset.productservice.entity.CatalogChange;
 import ma.enset.productservice.entity.Product;
+import ma.enset.productservice.entity.StockOperation;
+import ma.enset.productservice.enums.StockOperationType;
 import ma.enset.productservice.exception.InsufficientStockException;
 import ma.enset.productservice.exception.ProductNotFoundException;
 import ma.enset.productservice.mapper.ProductMapper;
+import ma.enset.productservice.repository.CatalogChangeRepository;
 import ma.enset.productservice.repository.ProductRepository;
+import ma.enset.productservice.repository.StockOperationRepository;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -20,14 +44,28 @@ import java.util.List;
 @Transactional
 public class ProductServiceImpl implements ProductService {
 
+    // Consumers that fall further behind than this simply wait for their cache TTL
+    private static final Duration CATALOG_CHANGE_RETENTION = Duration.ofDays(1);
+
+    // A change log id still missing after this long belongs to a rolled back transaction
+    private static final Duration CATALOG_CHANGE_COMMIT_GRACE = Duration.ofMinutes(1);
+
     private final ProductRepository productRepository;
     private final ProductMapper productMapper;
+    private final StockOperationRepository stockOperationRepository;
+    private final HotStockLedger hotStockLedger;
+    private final CatalogChangeRepository catalogChangeRepository;
+    private final ProductCache productCache;
+    private final ProductSearchIndex searchIndex;
+    private final ProductSearchProperties searchProperties;
 
     @Override
     public ProductResponseDTO createProduct(ProductRequestDTO request) {
         log.info("Creating new product: {}", request.name());
         Product product = productMapper.toEntity(request);
         Product savedProduct = productRepository.save(product);
+        productCache.evictViews(ProductCache.viewsListing(savedProduct.getStockQuantity() > 0));
+        afterCommit(() -> searchIndex.index(savedProduct.getId(), savedProduct.getName(), savedProduct.getDescription()));
         log.info("Product created with id: {}", savedProduct.getId());
         return productMapper.toResponseDTO(savedProduct);
     }
@@ -36,17 +74,16 @@ public class ProductServiceImpl implements ProductService {
     @Transactional(readOnly = true)
     public ProductResponseDTO getProductById(String id) {
         log.debug("Fetching product by id: {}", id);
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new ProductNotFoundException(id));
-        return productMapper.toResponseDTO(product);
+        return withLiveStock(productCache.get(id, () -> productRepository.findById(id)
+                .map(productMapper::toResponseDTO)
+                .orElseThrow(() -> new ProductNotFoundException(id))));
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<ProductResponseDTO> getAllProducts() {
         log.debug("Fetching all products");
-        List<Product> products = productRepository.findAll();
-        return productMapper.toResponseDTOList(products);
+        return cachedView(ProductCache.ALL_VIEW, productRepository::findAll);
     }
 
     @Override
@@ -55,73 +92,411 @@ public class ProductServiceImpl implements ProductService {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ProductNotFoundException(id));
         
+        int liveStock = currentStock(product);
         productMapper.updateEntityFromDTO(request, product);
+
+        if (product.isHot()) {
+            // The new stock replaces the row and this instance's slice; slices other instances hold
+            // (at most slice-size units each) stay with them until the product is no longer hot
+            HotStockLedger.Retirement retirement = hotStockLedger.retire(id);
+            if (retirement != null) {
+                onRollback(() -> hotStockLedger.addSlice(id, retirement.stock()));
+            }
+        }
         Product updatedProduct = productRepository.save(product);
+        recordCatalogChange(id);
+        productCache.evictProduct(id);
+        if (liveStock <= 0 && request.stockQuantity() > 0) {
+            // Back in stock; the other views resolve the product by id and need no eviction
+            productCache.evictViews(ProductCache.IN_STOCK_VIEW::equals);
+        }
+        afterCommit(() -> searchIndex.index(id, updatedProduct.getName(), updatedProduct.getDescription()));
         log.info("Product updated: {}", id);
-        return productMapper.toResponseDTO(updatedProduct);
+        return toResponseDTO(updatedProduct);
     }
 
     @Override
     public void deleteProduct(String id) {
         log.info("Deleting product with id: {}", id);
-        if (!productRepository.existsById(id)) {
-            throw new ProductNotFoundException(id);
-        }
-        productRepository.deleteById(id);
+        Product product = productRepository.findById(id)
+                .orElseThrow(() -> new ProductNotFoundException(id));
+        productRepository.delete(product);
+        recordCatalogChange(id);
+        productCache.evictProduct(id);
+        productCache.evictViews(ProductCache.viewsListing(true));
+        afterCommit(() -> searchIndex.remove(id));
+        hotStockLedger.retire(id);
         log.info("Product deleted: {}", id);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CatalogChangesDTO getCatalogChanges(Long cursor) {
+        // Ids are taken at insert but become visible at commit, so a smaller id can appear after a larger one.
+        // The cursor only moves past a missing id once it is older than the grace period; entries beyond it
+        // are reported again until then
+        LocalDateTime settled = LocalDateTime.now().minus(CATALOG_CHANGE_COMMIT_GRACE);
+        if (cursor == null) {
+            return new CatalogChangesDTO(catalogChangeRepository.findMaxIdChangedBefore(settled).orElse(0L), List.of());
+        }
+        List<CatalogChange> changes = catalogChangeRepository.findByIdGreaterThanOrderById(cursor);
+        long next = cursor;
+        for (CatalogChange change : changes) {
+            if (change.getId() != next + 1 && !change.getChangedAt().isBefore(settled)) {
+                break;
+            }
+            next = change.getId();
+        }
+        List<String> productIds = changes.stream().map(CatalogChange::getProductId).distinct().toList();
+        log.debug("{} products changed after {}, next cursor {}", productIds.size(), cursor, next);
+        return new CatalogChangesDTO(next, productIds);
+    }
+
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.HOURS)
+    public void purgeCatalogChanges() {
+        int purged = catalogChangeRepository.deleteChangedBefore(LocalDateTime.now().minus(CATALOG_CHANGE_RETENTION));
+        log.debug("Purged {} catalog change entries", purged);
+    }
+
+    private void recordCatalogChange(String productId) {
+        catalogChangeRepository.save(CatalogChange.builder().productId(productId).build());
+    }
+
     @Override
     @Transactional(readOnly = true)
     public boolean checkStock(String productId, Integer quantity) {
         log.debug("Checking stock for product: {}, quantity: {}", productId, quantity);
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new ProductNotFoundException(productId));
-        boolean available = product.getStockQuantity() >= quantity;
+        boolean available = currentStock(product) >= quantity;
         log.debug("Stock check result for {}: {}", productId, available);
         return available;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<ProductAvailabilityDTO> checkAvailability(List<StockItemRequestDTO> items) {
+        // The same product may appear on several lines, so compare stock against the summed quantity
+        Map<String, Integer> requested = new LinkedHashMap<>();
+        items.forEach(item -> requested.merge(item.productId(), item.quantity(), Integer::sum));
+        log.debug("Checking availability for {} products", requested.size());
+
+        Map<String, Product> products = productRepository.findAllById(requested.keySet()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        return requested.entrySet().stream()
+                .map(entry -> {
+                    Product product = products.get(entry.getKey());
+                    if (product == null) {
+                        return new ProductAvailabilityDTO(entry.getKey(), false, null, null, null, entry.getValue(), false);
+                    }
+                    int stock = currentStock(product);
+                    return new ProductAvailabilityDTO(
+                            product.getId(),
+                            true,
+                            product.getName(),
+                            product.getPrice(),
+                            stock,
+                            entry.getValue(),
+                            stock >= entry.getValue());
+                })
+                .toList();
+    }
+
     @Override
     public void reduceStock(String productId, Integer quantity) {
         log.info("Reducing stock for product: {}, quantity: {}", productId, quantity);
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new ProductNotFoundException(productId));
-        
-        if (product.getStockQuantity() < quantity) {
-            throw new InsufficientStockException(productId, quantity, product.getStockQuantity());
-        }
-        
-        product.setStockQuantity(product.getStockQuantity() - quantity);
-        productRepository.save(product);
-        log.info("Stock reduced for product: {}. New stock: {}", productId, product.getStockQuantity());
+        takeStock(productId, quantity);
+        log.info("Stock reduced for product: {}", productId);
     }
 
     @Override
     public void restoreStock(String productId, Integer quantity) {
         log.info("Restoring stock for product: {}, quantity: {}", productId, quantity);
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new ProductNotFoundException(productId));
-        
-        product.setStockQuantity(product.getStockQuantity() + quantity);
-        productRepository.save(product);
-        log.info("Stock restored for product: {}. New stock: {}", productId, product.getStockQuantity());
+        if (!giveBackStock(productId, quantity)) {
+            throw new ProductNotFoundException(productId);
+        }
+        log.info("Stock restored for product: {}", productId);
+    }
+
+    @Override
+    public void reserveStock(String idempotencyKey, List<StockItemRequestDTO> items) {
+        if (alreadyProcessed(idempotencyKey)) {
+            return;
+        }
+        Map<String, Integer> requested = aggregateByProduct(items);
+        log.info("Reserving stock for {} products", requested.size());
+
+        // Any failure throws and rolls back the decrements already applied in this transaction
+        requested.forEach(this::takeStock);
+        recordOperation(idempotencyKey, StockOperationType.RESERVE);
+        log.info("Stock reserved for products: {}", requested.keySet());
+    }
+
+    @Override
+    public void releaseStock(String idempotencyKey, String reservationKey, List<StockItemRequestDTO> items) {
+        if (alreadyProcessed(idempotencyKey)) {
+            return;
+        }
+        if (reservationKey != null && !stockOperationRepository.existsById(reservationKey)) {
+            // Nothing was reserved yet: void the reservation so a late delivery cannot apply it
+            log.info("Reservation {} was never applied, voiding it instead of releasing stock", reservationKey);
+            recordOperation(reservationKey, StockOperationType.VOID);
+            recordOperation(idempotencyKey, StockOperationType.RELEASE);
+            return;
+        }
+
+        Map<String, Integer> requested = aggregateByProduct(items);
+        log.info("Releasing stock for {} products", requested.size());
+
+        requested.forEach((productId, quantity) -> {
+            // A product deleted since the order was placed has no stock left to give back
+            if (!giveBackStock(productId, quantity)) {
+                log.warn("Skipping stock release for missing product: {}", productId);
+            }
+        });
+        recordOperation(idempotencyKey, StockOperationType.RELEASE);
+        log.info("Stock released for products: {}", requested.keySet());
+    }
+
+    private boolean alreadyProcessed(String idempotencyKey) {
+        if (idempotencyKey != null && stockOperationRepository.existsById(idempotencyKey)) {
+            log.info("Stock operation {} already processed, skipping", idempotencyKey);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Flushed immediately so a concurrent duplicate fails on the primary key and rolls back its stock changes.
+     */
+    private void recordOperation(String idempotencyKey, StockOperationType type) {
+        if (idempotencyKey != null) {
+            stockOperationRepository.saveAndFlush(StockOperation.builder()
+                    .idempotencyKey(idempotencyKey)
+                    .type(type)
+                    .build());
+        }
+    }
+
+    @Override
+    public ProductResponseDTO setHot(String id, boolean hot) {
+        log.info("Switching hot mode of product {} to {}", id, hot);
+        // Locks the row, so database stock updates for this product wait until the switch commits
+        if (productRepository.updateHot(id, hot) == 0) {
+            throw new ProductNotFoundException(id);
+        }
+
+        // A hot product's instances take their slices on their next reservation. Slices held by other instances
+        // go back to the database on their next reconciliation
+        if (!hot) {
+            HotStockLedger.Retirement retirement = hotStockLedger.retire(id);
+            if (retirement != null) {
+                productRepository.adjustStock(id, retirement.stock());
+                onRollback(() -> hotStockLedger.addSlice(id, retirement.stock()));
+            }
+        }
+        productCache.evictProduct(id);
+        return getProductById(id);
+    }
+
+    /**
+     * Take stock from this instance's slice for hot products, or with a conditional update otherwise.
+     */
+    private void takeStock(String productId, Integer quantity) {
+        switch (hotStockLedger.reserve(productId, quantity)) {
+            case RESERVED -> onRollback(() -> hotStockLedger.release(productId, quantity));
+            case INSUFFICIENT -> takeHotStock(productId, quantity);
+            case NOT_TRACKED -> decrementOrFail(productId, quantity);
+        }
+    }
+
+    private void decrementOrFail(String productId, Integer quantity) {
+        if (productRepository.decrementStock(productId, quantity) == 1) {
+            productCache.evictProduct(productId);
+        } else {
+            Product product = productRepository.findById(productId)
+                    .orElseThrow(() -> new ProductNotFoundException(productId));
+            if (product.isHot()) {
+                // Hot, possibly switched by another instance: this instance has no slice yet
+                takeHotStock(productId, quantity);
+                return;
+            }
+            throw new InsufficientStockException(productId, quantity, product.getStockQuantity());
+        }
+    }
+
+    /**
+     * The slice cannot cover the reservation: take it from the database together with a new slice, which joins
+     * the ledger once the transaction commits so a rollback gives both back to the row.
+     */
+    private void takeHotStock(String productId, Integer quantity) {
+        int slice = hotStockLedger.sliceSize();
+        if (slice > 0 && productRepository.takeHotStock(productId, quantity + slice) == 1) {
+            afterCommit(() -> hotStockLedger.addSlice(productId, slice));
+        } else if (productRepository.takeHotStock(productId, quantity) == 0) {
+            Product product = productRepository.findById(productId)
+                    .orElseThrow(() -> new ProductNotFoundException(productId));
+            if (!product.isHot() && productRepository.decrementStock(productId, quantity) == 1) {
+                // Switched back to database stock meanwhile
+                productCache.evictProduct(productId);
+                return;
+            }
+            throw new InsufficientStockException(productId, quantity, currentStock(product));
+        }
+        productCache.evictProduct(productId);
+    }
+
+    /**
+     * @return false when the product does not exist
+     */
+    private boolean giveBackStock(String productId, Integer quantity) {
+        if (hotStockLedger.release(productId, quantity)) {
+            onRollback(() -> {
+                if (hotStockLedger.reserve(productId, quantity) != HotStockLedger.Outcome.RESERVED) {
+                    log.warn("Could not take back {} units released for hot product {}", quantity, productId);
+                }
+            });
+            if (hotStockLedger.available(productId).orElse(0) == quantity) {
+                productCache.evictViews(ProductCache.IN_STOCK_VIEW::equals);
+            }
+            return true;
+        }
+        if (productRepository.incrementStock(productId, quantity) == 1) {
+            productCache.evictProduct(productId);
+            if (productRepository.findStockQuantityById(productId).orElse(0).equals(quantity)) {
+                // Back from zero: the product joins the in-stock view
+                productCache.evictViews(ProductCache.IN_STOCK_VIEW::equals);
+            }
+            return true;
+        }
+        // Hot without a slice here: the units join the row the slices are taken from
+        if (productRepository.adjustStock(productId, quantity) == 0) {
+            return false;
+        }
+        productCache.evictProduct(productId);
+        return true;
+    }
+
+    /**
+     * Undo an in-memory stock change when the surrounding transaction rolls back.
+     */
+    private void onRollback(Runnable compensation) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        compensation.run();
+                    }
+                }
+            });
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * A hot product's stock is what the row holds plus this instance's slice; slices held by other
+     * instances are not counted.
+     */
+    private int currentStock(Product product) {
+        return product.isHot()
+                ? product.getStockQuantity() + hotStockLedger.available(product.getId()).orElse(0)
+                : product.getStockQuantity();
+    }
+
+    private ProductResponseDTO toResponseDTO(Product product) {
+        ProductResponseDTO response = productMapper.toResponseDTO(product);
+        return product.isHot() ? withStockQuantity(response, currentStock(product)) : response;
+    }
+
+    /**
+     * Cached responses carry the database stock; a hot product's slice in the ledger comes on top.
+     */
+    private ProductResponseDTO withLiveStock(ProductResponseDTO response) {
+        if (!response.hot()) {
+            return response;
+        }
+        OptionalInt slice = hotStockLedger.available(response.id());
+        return slice.isPresent() ? withStockQuantity(response, response.stockQuantity() + slice.getAsInt()) : response;
+    }
+
+    private static ProductResponseDTO withStockQuantity(ProductResponseDTO response, int stockQuantity) {
+        return new ProductResponseDTO(response.id(), response.name(), response.description(), response.price(),
+                stockQuantity, response.hot(), response.createdAt(), response.updatedAt());
+    }
+
+    private List<ProductResponseDTO> cachedView(String view, Supplier<List<Product>> query) {
+        return productCache.getList(view, () -> productMapper.toResponseDTOList(query.get()), this::loadProducts)
+                .stream()
+                .map(this::withLiveStock)
+                .toList();
+    }
+
+    private List<ProductResponseDTO> loadProducts(Collection<String> ids) {
+        return productMapper.toResponseDTOList(productRepository.findAllById(ids));
+    }
+
+    private List<ProductResponseDTO> toResponseDTOList(List<Product> products) {
+        return products.stream().map(this::toResponseDTO).toList();
+    }
+
+    /**
+     * Sum quantities per product and sort by id so concurrent reservations lock rows in the same order.
+     */
+    private Map<String, Integer> aggregateByProduct(List<StockItemRequestDTO> items) {
+        Map<String, Integer> requested = new TreeMap<>();
+        items.forEach(item -> requested.merge(item.productId(), item.quantity(), Integer::sum));
+        return requested;
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<ProductResponseDTO> searchProducts(String name) {
-        log.debug("Searching products by name: {}", name);
-        List<Product> products = productRepository.findByNameContainingIgnoreCase(name);
-        return productMapper.toResponseDTOList(products);
+    public List<ProductResponseDTO> searchProducts(String query, Integer limit) {
+        log.debug("Searching products: {}", query);
+        int max = limit(limit, searchProperties.getDefaultLimit());
+        if (!searchIndex.isReady()) {
+            // Only until the index has been built after startup
+            return productRepository.findByNameContainingIgnoreCase(query).stream()
+                    .limit(max)
+                    .map(this::toResponseDTO)
+                    .toList();
+        }
+        return productCache.getAll(searchIndex.search(query, max), this::loadProducts).stream()
+                .map(this::withLiveStock)
+                .toList();
+    }
+
+    @Override
+    public List<ProductSuggestionDTO> autocomplete(String prefix, Integer limit) {
+        return searchIndex.autocomplete(prefix, limit(limit, searchProperties.getAutocompleteLimit()));
+    }
+
+    private int limit(Integer requested, int defaultLimit) {
+        return Math.clamp(requested == null ? defaultLimit : requested, 1, searchProperties.getMaxLimit());
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<ProductResponseDTO> getInStockProducts() {
         log.debug("Fetching all in-stock products");
-        List<Product> products = productRepository.findByStockQuantityGreaterThan(0);
-        return productMapper.toResponseDTOList(products);
+        // The view is evicted when a product comes back in stock; products that ran out are filtered here
+        return cachedView(ProductCache.IN_STOCK_VIEW, () -> productRepository.findByStockQuantityGreaterThan(0))
+                .stream()
+                .filter(product -> product.stockQuantity() > 0)
+                .toList();
     }
 
     @Override
@@ -129,7 +504,7 @@ public class ProductServiceImpl implements ProductService {
     public List<ProductResponseDTO> getLowStockProducts(Integer threshold) {
         log.debug("Fetching low-stock products with threshold: {}", threshold);
         List<Product> products = productRepository.findByStockQuantityLessThanEqual(threshold);
-        return productMapper.toResponseDTOList(products);
+        return toResponseDTOList(products);
     }
 }
 
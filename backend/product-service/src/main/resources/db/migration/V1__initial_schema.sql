@@ -0,0 +1,34 @@
+-- Baseline of the schema previously created by ddl-auto, plus indexes for the product queries.
+-- IF NOT EXISTS lets this run against databases that ddl-auto already populated.
+
+create table if not exists products (
+    id             varchar(255)   not null,
+    name           varchar(255)   not null,
+    description    varchar(1000),
+    price          numeric(10, 2) not null,
+    stock_quantity integer        not null,
+    hot            boolean        default false not null,
+    created_at     timestamp(6),
+    updated_at     timestamp(6),
+    primary key (id)
+);
+
+create table if not exists stock_operations (
+    idempotency_key varchar(100) not null,
+    type            varchar(255) not null,
+    created_at      timestamp(6),
+    primary key (idempotency_key)
+);
+
+create table if not exists product_catalog_changes (
+    id         bigint generated by default as identity,
+    product_id varchar(255) not null,
+    changed_at timestamp(6) not null,
+    primary key (id)
+);
+
+-- In-stock and low-stock listings
+create index if not exists idx_products_stock on products (stock_quantity);
+
+-- Change log polling and purge
+create index if not exists idx_product_catalog_changes_changed on product_catalog_changes (changed_at);
@@ -0,0 +1,4 @@
+-- Databases built by ddl-auto before V1 already had the products table, so V1 skipped it along with the hot
+-- column added since. Add what such a table lacks; on a schema created by V1 this does nothing.
+
+alter table products add column if not exists hot boolean default false not null;
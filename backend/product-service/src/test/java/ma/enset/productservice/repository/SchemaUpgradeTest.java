@@ -0,0 +1,45 @@
+package ma.enset.productservice.repository;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A database that ddl-auto built before the migrations existed is baselined, migrated in place and then
+ * accepted by Hibernate's validation.
+ */
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:products-upgrade;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:db/ddl-auto-baseline.sql'",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.flyway.baseline-on-migrate=true",
+        "spring.flyway.baseline-version=0"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class SchemaUpgradeTest {
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void ddlAutoSchemaIsMigratedInPlace() {
+        assertThat(Arrays.stream(flyway.info().applied()).map(MigrationInfo::getVersion).map(String::valueOf))
+                .containsExactly("0", "1", "2");
+        assertThat(flyway.info().pending()).isEmpty();
+
+        assertThat(productRepository.findById("legacy-product")).hasValueSatisfying(product -> {
+            assertThat(product.getStockQuantity()).isEqualTo(7);
+            assertThat(product.isHot()).isFalse();
+        });
+    }
+}
@@ -0,0 +1,67 @@
+package ma.enset.productservice.service;
+
+import ma.enset.productservice.config.ProductSearchProperties;
+import ma.enset.productservice.dto.CatalogChangesDTO;
+import ma.enset.productservice.entity.CatalogChange;
+import ma.enset.productservice.mapper.ProductMapper;
+import ma.enset.productservice.repository.CatalogChangeRepository;
+import ma.enset.productservice.repository.ProductRepository;
+import ma.enset.productservice.repository.StockOperationRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * The change log cursor only moves past a missing id once that id can no longer be committed.
+ */
+class CatalogChangesTest {
+
+    private final CatalogChangeRepository catalogChangeRepository = mock(CatalogChangeRepository.class);
+    private final ProductService productService = new ProductServiceImpl(mock(ProductRepository.class),
+            mock(ProductMapper.class), mock(StockOperationRepository.class), mock(HotStockLedger.class),
+            catalogChangeRepository, mock(ProductCache.class), mock(ProductSearchIndex.class),
+            new ProductSearchProperties());
+
+    @Test
+    void firstCallReturnsOnlyTheCursor() {
+        given(catalogChangeRepository.findMaxIdChangedBefore(any())).willReturn(Optional.of(12L));
+
+        CatalogChangesDTO changes = productService.getCatalogChanges(null);
+
+        assertThat(changes.cursor()).isEqualTo(12);
+        assertThat(changes.productIds()).isEmpty();
+    }
+
+    @Test
+    void cursorStopsBeforeARecentGap() {
+        LocalDateTime now = LocalDateTime.now();
+        given(catalogChangeRepository.findByIdGreaterThanOrderById(4L)).willReturn(List.of(
+                change(5, "p-1", now), change(6, "p-2", now), change(8, "p-1", now)));
+
+        CatalogChangesDTO changes = productService.getCatalogChanges(4L);
+
+        // Id 7 may belong to a transaction still in flight, so the next poll reads from 6 again
+        assertThat(changes.cursor()).isEqualTo(6);
+        assertThat(changes.productIds()).containsExactly("p-1", "p-2");
+    }
+
+    @Test
+    void cursorSkipsAGapOnceItIsOld() {
+        LocalDateTime old = LocalDateTime.now().minusMinutes(5);
+        given(catalogChangeRepository.findByIdGreaterThanOrderById(4L)).willReturn(List.of(
+                change(5, "p-1", old), change(8, "p-3", old)));
+
+        assertThat(productService.getCatalogChanges(4L).cursor()).isEqualTo(8);
+    }
+
+    private CatalogChange change(long id, String productId, LocalDateTime changedAt) {
+        return new CatalogChange(id, productId, changedAt);
+    }
+}
@@ -0,0 +1,136 @@
+package ma.enset.productservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.common.datasource.ReadReplicaProperties;
+import ma.enset.productservice.config.HotStockProperties;
+import ma.enset.productservice.config.ProductSearchProperties;
+import ma.enset.productservice.entity.Product;
+import ma.enset.productservice.exception.InsufficientStockException;
+import ma.enset.productservice.mapper.ProductMapperImpl;
+import ma.enset.productservice.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reservations per second on a single contended product, through the row-update path and through the
+ * hot-product ledger. Run with {@code mvn test -Dtest=HotStockBenchmarkTest -Dbenchmarks=true}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:hot-stock;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "spring.datasource.hikari.maximum-pool-size=20",
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.ma.enset.productservice=WARN",
+        "product.hot-stock.slice-size=10000",
+        "product.hot-stock.check-interval-ms=100000"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ProductServiceImpl.class, ProductMapperImpl.class, HotStockLedger.class, HotStockReconciler.class,
+        ProductCache.class, ProductSearchIndex.class})
+@EnableConfigurationProperties({HotStockProperties.class, ProductSearchProperties.class, ReadReplicaProperties.class})
+class HotStockBenchmarkTest {
+
+    private static final int THREADS = 16;
+    private static final Duration RUN_TIME = Duration.ofSeconds(3);
+    private static final int INITIAL_STOCK = 50_000_000;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private HotStockReconciler hotStockReconciler;
+
+    @Test
+    void compareReservationThroughput() throws Exception {
+        String rowProductId = createProduct("row-locked");
+        String hotProductId = createProduct("hot");
+        productService.setHot(hotProductId, true);
+
+        // Warm up both paths before measuring
+        run(rowProductId, Duration.ofSeconds(1));
+        run(hotProductId, Duration.ofSeconds(1));
+
+        long rowWarmup = INITIAL_STOCK - productRepository.findStockQuantityById(rowProductId).orElseThrow();
+        long rowReservations = run(rowProductId, RUN_TIME);
+        hotStockReconciler.returnAllSlices();
+        long hotWarmup = INITIAL_STOCK - productRepository.findStockQuantityById(hotProductId).orElseThrow();
+        long hotReservations = run(hotProductId, RUN_TIME);
+        hotStockReconciler.returnAllSlices();
+
+        double seconds = RUN_TIME.toMillis() / 1000.0;
+        log.warn("reduceStock on one product with {} threads: row update {} ops/s, hot ledger {} ops/s",
+                THREADS, Math.round(rowReservations / seconds), Math.round(hotReservations / seconds));
+
+        // Once the slices are back, the row must account for every reservation
+        assertThat(productRepository.findStockQuantityById(rowProductId).orElseThrow())
+                .isEqualTo((int) (INITIAL_STOCK - rowWarmup - rowReservations));
+        assertThat(productRepository.findStockQuantityById(hotProductId).orElseThrow())
+                .isEqualTo((int) (INITIAL_STOCK - hotWarmup - hotReservations));
+    }
+
+    private long run(String productId, Duration duration) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    long deadline = System.nanoTime() + duration.toNanos();
+                    long reservations = 0;
+                    while (System.nanoTime() < deadline) {
+                        try {
+                            productService.reduceStock(productId, 1);
+                            reservations++;
+                        } catch (InsufficientStockException e) {
+                            break;
+                        }
+                    }
+                    return reservations;
+                }));
+            }
+            start.countDown();
+            long total = 0;
+            for (Future<Long> result : results) {
+                total += result.get(duration.toSeconds() + 30, TimeUnit.SECONDS);
+            }
+            return total;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private String createProduct(String name) {
+        return productRepository.save(Product.builder()
+                .name(name)
+                .price(new BigDecimal("10.00"))
+                .stockQuantity(INITIAL_STOCK)
+                .build()).getId();
+    }
+}
@@ -0,0 +1,88 @@
+package ma.enset.productservice.service;
+
+import ma.enset.productservice.config.HotStockProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HotStockLedgerTest {
+
+    private static final String PRODUCT_ID = "hot-1";
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        HotStockLedger ledger = ledger(8);
+        ledger.addSlice(PRODUCT_ID, 1_000);
+
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    int reserved = 0;
+                    for (int i = 0; i < 200; i++) {
+                        // Mixed sizes force reservations to gather across stripes near the end
+                        int quantity = i % 3 + 1;
+                        if (ledger.reserve(PRODUCT_ID, quantity) == HotStockLedger.Outcome.RESERVED) {
+                            reserved += quantity;
+                        }
+                    }
+                    return reserved;
+                }));
+            }
+            start.countDown();
+
+            int reserved = 0;
+            for (Future<Integer> result : results) {
+                reserved += result.get(10, TimeUnit.SECONDS);
+            }
+            assertThat(reserved).isLessThanOrEqualTo(1_000);
+            assertThat(ledger.available(PRODUCT_ID).getAsInt()).isEqualTo(1_000 - reserved);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void reservationLargerThanAnyStripeGathersFromSeveral() {
+        HotStockLedger ledger = ledger(4);
+        ledger.addSlice(PRODUCT_ID, 10);
+
+        assertThat(ledger.reserve(PRODUCT_ID, 9)).isEqualTo(HotStockLedger.Outcome.RESERVED);
+        assertThat(ledger.reserve(PRODUCT_ID, 2)).isEqualTo(HotStockLedger.Outcome.INSUFFICIENT);
+        assertThat(ledger.available(PRODUCT_ID).getAsInt()).isEqualTo(1);
+    }
+
+    @Test
+    void retirementHandsBackWhatIsLeftOfTheSlice() {
+        HotStockLedger ledger = ledger(4);
+        ledger.addSlice(PRODUCT_ID, 100);
+
+        ledger.reserve(PRODUCT_ID, 30);
+        ledger.release(PRODUCT_ID, 5);
+        ledger.addSlice(PRODUCT_ID, 20);
+        HotStockLedger.Retirement retirement = ledger.retire(PRODUCT_ID);
+
+        assertThat(retirement.stock()).isEqualTo(95);
+        assertThat(ledger.isTracked(PRODUCT_ID)).isFalse();
+        assertThat(ledger.reserve(PRODUCT_ID, 1)).isEqualTo(HotStockLedger.Outcome.NOT_TRACKED);
+        assertThat(ledger.release(PRODUCT_ID, 1)).isFalse();
+    }
+
+    private HotStockLedger ledger(int stripes) {
+        HotStockProperties properties = new HotStockProperties();
+        properties.setStripes(stripes);
+        return new HotStockLedger(properties);
+    }
+}
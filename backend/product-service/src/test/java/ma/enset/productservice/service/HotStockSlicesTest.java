@@ -0,0 +1,187 @@
+package ma.enset.productservice.service;
+
+import ma.enset.common.datasource.ReadReplicaProperties;
+import ma.enset.productservice.config.HotStockProperties;
+import ma.enset.productservice.config.ProductSearchProperties;
+import ma.enset.productservice.dto.StockItemRequestDTO;
+import ma.enset.productservice.entity.Product;
+import ma.enset.productservice.exception.InsufficientStockException;
+import ma.enset.productservice.mapper.ProductMapper;
+import ma.enset.productservice.mapper.ProductMapperImpl;
+import ma.enset.productservice.repository.CatalogChangeRepository;
+import ma.enset.productservice.repository.ProductRepository;
+import ma.enset.productservice.repository.StockOperationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two product-service instances sharing one database, each with its own ledger.
+ */
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:hot-stock-slices;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "product.hot-stock.stripes=4",
+        "product.hot-stock.slice-size=100"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ProductServiceImpl.class, ProductMapperImpl.class, HotStockLedger.class, HotStockReconciler.class,
+        ProductCache.class, ProductSearchIndex.class})
+@EnableConfigurationProperties({HotStockProperties.class, ProductSearchProperties.class, ReadReplicaProperties.class})
+class HotStockSlicesTest {
+
+    private static final int STOCK = 250;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private HotStockLedger hotStockLedger;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private StockOperationRepository stockOperationRepository;
+
+    @Autowired
+    private CatalogChangeRepository catalogChangeRepository;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private ProductSearchProperties searchProperties;
+
+    @Autowired
+    private HotStockProperties hotStockProperties;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private HotStockLedger otherLedger;
+    private Consumer<Consumer<ProductService>> otherInstance;
+    private String productId;
+
+    @BeforeEach
+    void setUp() {
+        stockOperationRepository.deleteAll();
+        productRepository.deleteAll();
+        hotStockLedger.trackedProductIds().forEach(hotStockLedger::retire);
+        productId = productRepository.save(Product.builder()
+                .name("Console")
+                .price(new BigDecimal("499.00"))
+                .stockQuantity(STOCK)
+                .build()).getId();
+
+        otherLedger = new HotStockLedger(hotStockProperties);
+        ProductService other = new ProductServiceImpl(productRepository, productMapper, stockOperationRepository,
+                otherLedger, catalogChangeRepository, productCache, searchIndex, searchProperties);
+        TransactionTemplate transactions = new TransactionTemplate(transactionManager);
+        otherInstance = call -> transactions.executeWithoutResult(status -> call.accept(other));
+    }
+
+    @Test
+    void instancesTogetherNeverReserveMoreThanTheStock() throws Exception {
+        productService.setHot(productId, true);
+
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                boolean onOther = t % 2 == 1;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    int reserved = 0;
+                    while (true) {
+                        try {
+                            if (onOther) {
+                                otherInstance.accept(service -> service.reduceStock(productId, 1));
+                            } else {
+                                productService.reduceStock(productId, 1);
+                            }
+                            reserved++;
+                        } catch (InsufficientStockException e) {
+                            return reserved;
+                        }
+                    }
+                }));
+            }
+            start.countDown();
+
+            int reserved = 0;
+            for (Future<Integer> result : results) {
+                reserved += result.get(30, TimeUnit.SECONDS);
+            }
+            assertThat(reserved).isEqualTo(STOCK);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(productRepository.findStockQuantityById(productId)).contains(0);
+        assertThat(hotStockLedger.available(productId).orElse(0)).isZero();
+        assertThat(otherLedger.available(productId).orElse(0)).isZero();
+    }
+
+    @Test
+    void instanceThatDidNotSwitchTheProductTakesItsOwnSlice() {
+        productService.setHot(productId, true);
+
+        otherInstance.accept(service -> service.reserveStock("order-1-reserve_stock",
+                List.of(new StockItemRequestDTO(productId, 3))));
+
+        assertThat(otherLedger.available(productId)).hasValue(100);
+        assertThat(productRepository.findStockQuantityById(productId)).contains(STOCK - 3 - 100);
+        assertThat(productService.getProductById(productId).stockQuantity()).isEqualTo(STOCK - 3 - 100);
+
+        productService.setHot(productId, false);
+        new HotStockReconciler(otherLedger, productRepository).returnStaleSlices();
+
+        assertThat(otherLedger.isTracked(productId)).isFalse();
+        assertThat(productRepository.findStockQuantityById(productId)).contains(STOCK - 3);
+    }
+
+    @Test
+    void rolledBackReservationLeavesTheSliceInTheRow() {
+        productService.setHot(productId, true);
+
+        try {
+            otherInstance.accept(service -> service.reserveStock("order-2-reserve_stock", List.of(
+                    new StockItemRequestDTO(productId, 3),
+                    new StockItemRequestDTO("missing", 1))));
+        } catch (RuntimeException expected) {
+            // The missing product fails the whole reservation
+        }
+
+        assertThat(otherLedger.isTracked(productId)).isFalse();
+        assertThat(productRepository.findStockQuantityById(productId)).contains(STOCK);
+    }
+}
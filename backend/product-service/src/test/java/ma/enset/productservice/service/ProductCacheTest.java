@@ -0,0 +1,129 @@
+package ma.enset.productservice.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import ma.enset.common.datasource.ReadReplicaProperties;
+import ma.enset.productservice.dto.ProductResponseDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class ProductCacheTest {
+
+    private final CaffeineCacheManager cacheManager = cacheManager();
+    private final ProductCache cache = new ProductCache(cacheManager, new ReadReplicaProperties());
+    private final List<Collection<String>> batchLoads = new ArrayList<>();
+
+    @Test
+    void updatedProductIsReloadedWithoutRebuildingListViews() {
+        cache.getList(ProductCache.ALL_VIEW, () -> List.of(product("p-1", "Keyboard", 5), product("p-2", "Mouse", 7)),
+                this::failOnBatchLoad);
+
+        cache.evictProduct("p-1");
+        List<ProductResponseDTO> all = cache.getList(ProductCache.ALL_VIEW, this::failOnViewLoad,
+                ids -> {
+                    batchLoads.add(List.copyOf(ids));
+                    return List.of(product("p-1", "Keyboard", 4));
+                });
+
+        assertThat(all).extracting(ProductResponseDTO::stockQuantity).containsExactly(4, 7);
+        assertThat(batchLoads).containsExactly(List.of("p-1"));
+        assertThat(cache.get("p-2", () -> {
+            throw new AssertionError("p-2 must still be cached");
+        }).name()).isEqualTo("Mouse");
+    }
+
+    @Test
+    void inStockViewIsKeptWhenAnOutOfStockProductIsAdded() {
+        cache.getList(ProductCache.ALL_VIEW, List::of, this::failOnBatchLoad);
+        cache.getList(ProductCache.IN_STOCK_VIEW, List::of, this::failOnBatchLoad);
+
+        cache.evictViews(ProductCache.viewsListing(false));
+
+        assertThat(cachedViews()).containsExactly(ProductCache.IN_STOCK_VIEW);
+    }
+
+    @Test
+    void evictionWaitsForTheCommit() {
+        cache.get("p-1", () -> product("p-1", "Keyboard", 5));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.evictProduct("p-1");
+            // A concurrent reader before the commit gets the old row and must not outlive it
+            assertThat(cache.get("p-1", () -> product("p-1", "Keyboard", 4)).stockQuantity()).isEqualTo(5);
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(cache.get("p-1", () -> product("p-1", "Keyboard", 4)).stockQuantity()).isEqualTo(4);
+    }
+
+    @Test
+    void rolledBackChangeEvictsNothing() {
+        cache.get("p-1", () -> product("p-1", "Keyboard", 5));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.evictProduct("p-1");
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(cache.get("p-1", () -> {
+            throw new AssertionError("p-1 must still be cached");
+        }).stockQuantity()).isEqualTo(5);
+    }
+
+    @Test
+    void evictionIsRepeatedOnceReplicasHaveCaughtUp() {
+        ReadReplicaProperties replicas = new ReadReplicaProperties();
+        replicas.setEnabled(true);
+        replicas.setMaxLag(Duration.ofMillis(200));
+        ProductCache replicated = new ProductCache(cacheManager, replicas);
+        replicated.get("p-1", () -> product("p-1", "Keyboard", 5));
+
+        replicated.evictProduct("p-1");
+        // A read served by a replica that has not applied the change yet
+        replicated.get("p-1", () -> product("p-1", "Keyboard", 5));
+
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() ->
+                assertThat(replicated.get("p-1", () -> product("p-1", "Keyboard", 4)).stockQuantity()).isEqualTo(4));
+    }
+
+    private Collection<Object> cachedViews() {
+        return ((CaffeineCache) cacheManager.getCache(ProductCache.PRODUCT_LISTS)).getNativeCache().asMap().keySet();
+    }
+
+    private List<ProductResponseDTO> failOnViewLoad() {
+        throw new AssertionError("view must be served from the cache");
+    }
+
+    private List<ProductResponseDTO> failOnBatchLoad(Collection<String> ids) {
+        throw new AssertionError("no product entry should be missing");
+    }
+
+    private static CaffeineCacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(ProductCache.PRODUCTS, ProductCache.PRODUCT_LISTS);
+        cacheManager.setCaffeine(Caffeine.newBuilder().maximumSize(100));
+        return cacheManager;
+    }
+
+    private static ProductResponseDTO product(String id, String name, int stock) {
+        return new ProductResponseDTO(id, name, null, new BigDecimal("10.00"), stock, false, null, null);
+    }
+}
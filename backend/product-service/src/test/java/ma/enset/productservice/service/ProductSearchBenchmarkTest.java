@@ -0,0 +1,109 @@
+package ma.enset.productservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.enset.productservice.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Search latency of the former {@code LIKE '%term%'} query against the in-memory index, at 100k and 1M products.
+ * Both the H2 catalog and the index live in the test JVM, so give it room:
+ * {@code mvn test -Dtest=ProductSearchBenchmarkTest -Dbenchmarks=true -DargLine=-Xmx3g}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:product-search;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.ma.enset.productservice=WARN"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(ProductSearchIndex.class)
+class ProductSearchBenchmarkTest {
+
+    private static final String[] ADJECTIVES = {"wireless", "mechanical", "gaming", "compact", "portable", "ergonomic",
+            "smart", "premium", "ultra", "silent", "rugged", "vintage", "modular", "digital", "classic", "pro"};
+    private static final String[] NOUNS = {"keyboard", "mouse", "monitor", "headset", "speaker", "webcam", "laptop",
+            "charger", "router", "tablet", "microphone", "controller", "printer", "scanner", "projector", "drive"};
+    private static final String[] QUERIES = {"keyboard", "wireless mouse", "board", "ergonomic pro", "projector 4217", "silent webcam 99"};
+    private static final int QUERIES_PER_RUN = 20;
+    private static final int LIMIT = 20;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void compareSearchLatency() {
+        int inserted = 0;
+        for (int size : new int[]{100_000, 1_000_000}) {
+            insertProducts(inserted, size - inserted);
+            inserted = size;
+            searchIndex.rebuild();
+
+            double like = averageMillis(query -> productRepository.findByNameContainingIgnoreCase(query).size());
+            double indexed = averageMillis(query -> searchIndex.search(query, LIMIT).size());
+            log.warn("Search over {} products: LIKE query {} ms, index {} ms per query",
+                    size, String.format("%.2f", like), String.format("%.3f", indexed));
+            assertThat(indexed).isLessThan(like);
+        }
+    }
+
+    private double averageMillis(Function<String, Integer> search) {
+        // Warm up, then time
+        for (int i = 0; i < QUERIES_PER_RUN; i++) {
+            search.apply(QUERIES[i % QUERIES.length]);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < QUERIES_PER_RUN; i++) {
+            search.apply(QUERIES[i % QUERIES.length]);
+        }
+        return (System.nanoTime() - start) / 1_000_000.0 / QUERIES_PER_RUN;
+    }
+
+    private void insertProducts(int offset, int count) {
+        Random random = new Random(offset);
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = offset; i < offset + count; i++) {
+            String name = ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " " + NOUNS[random.nextInt(NOUNS.length)] + " " + i;
+            String description = "A " + ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " "
+                    + NOUNS[random.nextInt(NOUNS.length)] + " for everyday use";
+            batch.add(new Object[]{UUID.randomUUID().toString(), name, description});
+            if (batch.size() == 10_000) {
+                flush(batch);
+            }
+        }
+        flush(batch);
+    }
+
+    private void flush(List<Object[]> batch) {
+        jdbcTemplate.batchUpdate("""
+                insert into products (id, name, description, price, stock_quantity, hot, created_at, updated_at)
+                values (?, ?, ?, 10.00, 100, false, current_timestamp, current_timestamp)
+                """, batch);
+        batch.clear();
+    }
+}
@@ -0,0 +1,137 @@
+package ma.enset.productservice.service;
+
+import ma.enset.productservice.dto.ProductSuggestionDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSearchIndexTest {
+
+    private final ProductSearchIndex index = new ProductSearchIndex(null);
+
+    @Test
+    void rankedSearchMatchesEveryTermAnywhereInAWord() {
+        index.index("p-1", "Wireless Keyboard", "Compact layout");
+        index.index("p-2", "Mechanical Keyboard", "Wireless, backlit keys");
+        index.index("p-3", "Keyboard cover", "Silicone");
+        index.index("p-4", "Gaming Mouse", "Wireless");
+
+        // Name matches rank above description matches; infixes like "board" still match
+        assertThat(index.search("wireless board", 10)).containsExactly("p-1", "p-2");
+        assertThat(index.search("KEYBOARD", 2)).hasSize(2);
+        assertThat(index.search("ké", 10)).containsExactlyInAnyOrder("p-1", "p-2", "p-3");
+        assertThat(index.search("trackpad", 10)).isEmpty();
+    }
+
+    @Test
+    void writesAreReflectedIncrementally() {
+        index.index("p-1", "Wireless Keyboard", null);
+        index.index("p-2", "Gaming Mouse", null);
+
+        index.index("p-1", "Wired Keyboard", null);
+        index.remove("p-2");
+
+        assertThat(index.search("wireless", 10)).isEmpty();
+        assertThat(index.search("wired", 10)).containsExactly("p-1");
+        assertThat(index.search("mouse", 10)).isEmpty();
+    }
+
+    @Test
+    void updatedProductStopsMatchingTheWordsItLost() {
+        index.index("p-1", "Wireless Keyboard", "Backlit keys");
+        index.index("p-2", "Mechanical Keyboard", null);
+
+        index.index("p-1", "Wired Mouse", null);
+
+        // Whole words, infixes and short prefixes of the old text are all gone
+        assertThat(index.search("wireless", 10)).isEmpty();
+        assertThat(index.search("backlit", 10)).isEmpty();
+        assertThat(index.search("eyboa", 10)).containsExactly("p-2");
+        assertThat(index.search("ke", 10)).containsExactly("p-2");
+        assertThat(index.search("keyboard", 10)).containsExactly("p-2");
+        assertThat(index.autocomplete("wi", 10)).extracting(ProductSuggestionDTO::name).containsExactly("Wired Mouse");
+        assertThat(index.search("wired mouse", 10)).containsExactly("p-1");
+    }
+
+    @Test
+    void removedProductMatchesNothingAndCanBeIndexedAgain() {
+        index.index("p-1", "Wireless Keyboard", "Backlit keys");
+        index.index("p-2", "Wireless Mouse", null);
+
+        index.remove("p-1");
+        index.remove("unknown");
+
+        assertThat(index.search("keyboard", 10)).isEmpty();
+        assertThat(index.search("backlit", 10)).isEmpty();
+        assertThat(index.search("ke", 10)).isEmpty();
+        assertThat(index.autocomplete("key", 10)).isEmpty();
+        assertThat(index.search("wireless", 10)).containsExactly("p-2");
+
+        index.index("p-1", "Wireless Keyboard", null);
+
+        assertThat(index.search("wireless", 10)).containsExactlyInAnyOrder("p-1", "p-2");
+        assertThat(index.search("keyboard", 10)).containsExactly("p-1");
+    }
+
+    @Test
+    void emptyQueriesMatchNothing() {
+        index.index("p-1", "Wireless Keyboard", null);
+
+        assertThat(index.search(null, 10)).isEmpty();
+        assertThat(index.search("", 10)).isEmpty();
+        assertThat(index.search("   ", 10)).isEmpty();
+        assertThat(index.search("-- !", 10)).isEmpty();
+        assertThat(index.autocomplete("", 10)).isEmpty();
+        assertThat(index.autocomplete(" ", 10)).isEmpty();
+    }
+
+    @Test
+    void multiTermQueriesNeedEveryTermInAnyOrderOrField() {
+        index.index("p-1", "Wireless Keyboard", "Backlit, USB receiver");
+        index.index("p-2", "Wireless Mouse", "USB receiver");
+        index.index("p-3", "Keyboard", "Bluetooth");
+
+        assertThat(index.search("keyboard usb", 10)).containsExactly("p-1");
+        assertThat(index.search("usb keyboard", 10)).containsExactly("p-1");
+        assertThat(index.search("wireless wireless mouse", 10)).containsExactly("p-2");
+        // A short prefix and an infix combine like any other terms
+        assertThat(index.search("wi ceiv", 10)).containsExactlyInAnyOrder("p-1", "p-2");
+        assertThat(index.search("keyboard bluetooth backlit", 10)).isEmpty();
+    }
+
+    @Test
+    void limitKeepsTheBestMatchesInRankOrder() {
+        for (int i = 0; i < 12; i++) {
+            index.index("cable-" + i, "Cable %02d".formatted(i), null);
+        }
+        for (int i = 0; i < 8; i++) {
+            index.index("adapter-" + i, "Adapter %02d".formatted(i), "With a cable");
+        }
+
+        List<String> all = index.search("cable", 100);
+
+        assertThat(all).hasSize(20);
+        // Name matches first, ties broken by name
+        assertThat(all.subList(0, 12)).containsExactly("cable-0", "cable-1", "cable-2", "cable-3", "cable-4",
+                "cable-5", "cable-6", "cable-7", "cable-8", "cable-9", "cable-10", "cable-11");
+        for (int limit = 1; limit <= all.size(); limit++) {
+            assertThat(index.search("cable", limit)).isEqualTo(all.subList(0, limit));
+        }
+    }
+
+    @Test
+    void autocompleteCompletesTheLastWordOfNames() {
+        index.index("p-1", "Mechanical Keyboard", null);
+        index.index("p-2", "Keyboard", null);
+        index.index("p-3", "Keycap set", null);
+        index.index("p-4", "Monitor", "Works with any keyboard");
+
+        assertThat(index.autocomplete("key", 10)).extracting(ProductSuggestionDTO::id)
+                .containsExactly("p-2", "p-3", "p-1");
+        assertThat(index.autocomplete("mechanical k", 10)).extracting(ProductSuggestionDTO::name)
+                .containsExactly("Mechanical Keyboard");
+        assertThat(index.autocomplete("key", 1)).hasSize(1);
+    }
+}
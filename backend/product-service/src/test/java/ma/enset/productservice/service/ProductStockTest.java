@@ -0,0 +1,149 @@
+package ma.enset.productservice.service;
+
+import ma.enset.common.datasource.ReadReplicaProperties;
+import ma.enset.productservice.config.HotStockProperties;
+import ma.enset.productservice.config.ProductSearchProperties;
+import ma.enset.productservice.dto.ProductAvailabilityDTO;
+import ma.enset.productservice.dto.StockItemRequestDTO;
+import ma.enset.productservice.entity.Product;
+import ma.enset.productservice.enums.StockOperationType;
+import ma.enset.productservice.exception.InsufficientStockException;
+import ma.enset.productservice.mapper.ProductMapperImpl;
+import ma.enset.productservice.repository.ProductRepository;
+import ma.enset.productservice.repository.StockOperationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Batch availability, multi-item reservations and their release, each service call in its own transaction
+ * as in production.
+ */
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:product-stock;DB_CLOSE_DELAY=-1"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ProductServiceImpl.class, ProductMapperImpl.class, HotStockLedger.class, ProductCache.class,
+        ProductSearchIndex.class})
+@EnableConfigurationProperties({HotStockProperties.class, ProductSearchProperties.class, ReadReplicaProperties.class})
+class ProductStockTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockOperationRepository stockOperationRepository;
+
+    private String keyboard;
+    private String mouse;
+
+    @BeforeEach
+    void setUp() {
+        stockOperationRepository.deleteAll();
+        productRepository.deleteAll();
+        keyboard = createProduct("Keyboard", 5);
+        mouse = createProduct("Mouse", 1);
+    }
+
+    @Test
+    void partialBatchReportsEachProductOnItsOwn() {
+        List<ProductAvailabilityDTO> availability = productService.checkAvailability(List.of(
+                new StockItemRequestDTO(keyboard, 2),
+                new StockItemRequestDTO(mouse, 3),
+                new StockItemRequestDTO("missing", 1),
+                new StockItemRequestDTO(keyboard, 2)));
+
+        assertThat(availability).hasSize(3);
+        assertThat(availability.get(0)).satisfies(product -> {
+            assertThat(product.productId()).isEqualTo(keyboard);
+            assertThat(product.requestedQuantity()).isEqualTo(4);
+            assertThat(product.available()).isTrue();
+        });
+        assertThat(availability.get(1)).satisfies(product -> {
+            assertThat(product.found()).isTrue();
+            assertThat(product.stockQuantity()).isEqualTo(1);
+            assertThat(product.available()).isFalse();
+        });
+        assertThat(availability.get(2)).satisfies(product -> {
+            assertThat(product.productId()).isEqualTo("missing");
+            assertThat(product.found()).isFalse();
+            assertThat(product.available()).isFalse();
+        });
+    }
+
+    @Test
+    void reservationRollsBackEveryItemWhenOneIsShort() {
+        assertThatThrownBy(() -> productService.reserveStock("order-1-reserve_stock", List.of(
+                new StockItemRequestDTO(keyboard, 2),
+                new StockItemRequestDTO(mouse, 3))))
+                .isInstanceOf(InsufficientStockException.class);
+
+        assertThat(stock(keyboard)).isEqualTo(5);
+        assertThat(stock(mouse)).isEqualTo(1);
+        assertThat(stockOperationRepository.existsById("order-1-reserve_stock")).isFalse();
+    }
+
+    @Test
+    void repeatedReservationKeyIsAppliedOnce() {
+        List<StockItemRequestDTO> items = List.of(new StockItemRequestDTO(keyboard, 2), new StockItemRequestDTO(mouse, 1));
+
+        productService.reserveStock("order-2-reserve_stock", items);
+        productService.reserveStock("order-2-reserve_stock", items);
+
+        assertThat(stock(keyboard)).isEqualTo(3);
+        assertThat(stock(mouse)).isZero();
+    }
+
+    @Test
+    void releaseOfAReservationNeverAppliedVoidsIt() {
+        List<StockItemRequestDTO> items = List.of(new StockItemRequestDTO(keyboard, 2));
+
+        productService.releaseStock("order-3-release_stock", "order-3-reserve_stock", items);
+        // A reservation delivered after its release must not take stock that will never be given back
+        productService.reserveStock("order-3-reserve_stock", items);
+
+        assertThat(stock(keyboard)).isEqualTo(5);
+        assertThat(stockOperationRepository.findById("order-3-reserve_stock").orElseThrow().getType())
+                .isEqualTo(StockOperationType.VOID);
+    }
+
+    @Test
+    void releaseOfAnAppliedReservationGivesStockBackOnce() {
+        List<StockItemRequestDTO> items = List.of(new StockItemRequestDTO(keyboard, 2));
+        productService.reserveStock("order-4-reserve_stock", items);
+
+        productService.releaseStock("order-4-release_stock", "order-4-reserve_stock", items);
+        productService.releaseStock("order-4-release_stock", "order-4-reserve_stock", items);
+
+        assertThat(stock(keyboard)).isEqualTo(5);
+    }
+
+    private String createProduct(String name, int stock) {
+        return productRepository.save(Product.builder()
+                .name(name)
+                .price(new BigDecimal("10.00"))
+                .stockQuantity(stock)
+                .build()).getId();
+    }
+
+    private int stock(String productId) {
+        return productRepository.findStockQuantityById(productId).orElseThrow();
+    }
+}
@@ -0,0 +1,13 @@
+-- The products table as ddl-auto created it before the schema moved to Flyway, with one existing product
+create table if not exists products (
+    id             varchar(255)   not null,
+    name           varchar(255)   not null,
+    description    varchar(1000),
+    price          numeric(10, 2) not null,
+    stock_quantity integer        not null,
+    created_at     timestamp(6),
+    updated_at     timestamp(6),
+    primary key (id)
+);
+
+merge into products (id, name, price, stock_quantity) key (id) values ('legacy-product', 'Legacy', 12.50, 7);
@@ -1,4 +1,4 @@
-import { useState } from 'react';
+import { useEffect, useRef, useState } from 'react';
 import { useNavigate } from 'react-router-dom';
 import { Trash2, Plus, Minus, ShoppingCart, Package } from 'lucide-react';
 import { useCart } from '../context/CartContext';
@@ -12,6 +12,12 @@ const CartPage = () => {
     const navigate = useNavigate();
     const { items, updateQuantity, removeItem, clearCart, totalAmount } = useCart();
     const [isCheckingOut, setIsCheckingOut] = useState(false);
+    // One key per cart content, so retrying a failed checkout cannot create a second order
+    const checkoutKey = useRef<string | null>(null);
+
+    useEffect(() => {
+        checkoutKey.current = null;
+    }, [items]);
 
     const handleCheckout = async () => {
         if (items.length === 0) return;
@@ -25,7 +31,9 @@ const CartPage = () => {
                 })),
             };
 
-            const order = await orderService.create(orderRequest);
+            checkoutKey.current ??= crypto.randomUUID();
+            const order = await orderService.create(orderRequest, checkoutKey.current);
+            checkoutKey.current = null;
             clearCart();
             navigate(`/orders/${order.id}`);
         } catch {
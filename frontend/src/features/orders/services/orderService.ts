@@ -10,8 +10,11 @@ export const orderService = {
         return response.data;
     },
 
-    create: async (order: OrderRequest): Promise<Order> => {
-        const response = await api.post<Order>(BASE_URL, order);
+    // Retries must reuse the same idempotencyKey so the server returns the first order instead of creating another
+    create: async (order: OrderRequest, idempotencyKey?: string): Promise<Order> => {
+        const response = await api.post<Order>(BASE_URL, order, {
+            headers: idempotencyKey ? { 'Idempotency-Key': idempotencyKey } : undefined,
+        });
         return response.data;
     },
 
@@ -0,0 +1,5 @@
+#!/bin/sh
+# Lets the read replicas of the `replicas` compose profile stream WAL from this database.
+# Runs once, when the data volume is initialized.
+set -e
+echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"